@@ -0,0 +1,21 @@
+package com.lifeinide.jsonql.hibernate.search6.benchmark;
+
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkAssociatedEntity;
+import com.lifeinide.jsonql.hibernate.search6.bridge.BaseDomainValueBridge;
+
+/**
+ * @author Lukasz Frankowski
+ */
+public class BenchmarkDomainValueBridge extends BaseDomainValueBridge<BenchmarkAssociatedEntity> {
+
+	@Override
+	public String getEntityIdAsString(BenchmarkAssociatedEntity entity) {
+		return String.valueOf(entity.getId());
+	}
+
+	@Override
+	public boolean isEntity(Object entity) {
+		return entity instanceof BenchmarkAssociatedEntity;
+	}
+
+}
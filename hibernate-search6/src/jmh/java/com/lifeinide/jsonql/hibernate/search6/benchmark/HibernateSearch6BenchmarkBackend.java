@@ -0,0 +1,74 @@
+package com.lifeinide.jsonql.hibernate.search6.benchmark;
+
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkAssociatedEntity;
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkBackend;
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkEntity;
+import com.lifeinide.jsonql.hibernate.search6.HibernateSearch6;
+import com.lifeinide.jsonql.hibernate.search6.HibernateSearch6QueryBuilderContext;
+import org.hibernate.search.engine.backend.analysis.AnalyzerNames;
+import org.hibernate.search.mapper.orm.Search;
+import org.hibernate.search.mapper.orm.cfg.HibernateOrmMapperSettings;
+import org.hibernate.search.mapper.orm.mapping.HibernateOrmMappingConfigurationContext;
+import org.hibernate.search.mapper.orm.mapping.HibernateOrmSearchMappingConfigurer;
+import org.hibernate.search.mapper.pojo.mapping.definition.programmatic.ProgrammaticMappingConfigurationContext;
+import org.hibernate.search.mapper.pojo.mapping.definition.programmatic.TypeMappingStep;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hibernate Search 6 backend of the benchmark corpus, mapping the benchmark entities the same way as {@code HibernateSearch6Entity}
+ * from tests.
+ *
+ * @author Lukasz Frankowski
+ */
+public class HibernateSearch6BenchmarkBackend implements BenchmarkBackend, HibernateOrmSearchMappingConfigurer {
+
+	@Override
+	public Map<String, String> properties(File indexDir, boolean manualIndexing) {
+		Map<String, String> properties = new HashMap<>();
+		properties.put(HibernateOrmMapperSettings.MAPPING_CONFIGURER, HibernateSearch6BenchmarkBackend.class.getName());
+		properties.put("hibernate.search.backend.directory.root", indexDir.getAbsolutePath());
+		if (manualIndexing)
+			properties.put("hibernate.search.automatic_indexing.strategy", "none");
+		return properties;
+	}
+
+	@Override
+	public void index(EntityManager entityManager) throws InterruptedException {
+		Search.session(entityManager).massIndexer(BenchmarkEntity.class, BenchmarkAssociatedEntity.class).startAndWait();
+	}
+
+	@Override
+	public void configure(HibernateOrmMappingConfigurationContext context) {
+		ProgrammaticMappingConfigurationContext mapping = context.programmaticMapping();
+
+		TypeMappingStep associatedEntity = mapping.type(BenchmarkAssociatedEntity.class);
+		associatedEntity.indexed();
+		// unlike @FullTextField annotation, the programmatic full text field has no default analyzer and would be indexed as one token
+		associatedEntity.property("q").fullTextField(HibernateSearch6.FIELD_TEXT).analyzer(AnalyzerNames.DEFAULT);
+
+		TypeMappingStep entity = mapping.type(BenchmarkEntity.class);
+		entity.indexed();
+		entity.property("q").fullTextField(HibernateSearch6.FIELD_TEXT).analyzer(AnalyzerNames.DEFAULT);
+		entity.property("number").keywordField(HibernateSearch6.FIELD_ID);
+		entity.property("stringVal").keywordField();
+		entity.property("booleanVal").genericField();
+		entity.property("longVal").genericField();
+		entity.property("decimalVal").scaledNumberField().decimalScale(2);
+		entity.property("dateVal").genericField();
+		entity.property("enumVal").keywordField();
+		entity.property("entityVal").keywordField().valueBridge(new BenchmarkDomainValueBridge());
+	}
+
+	@Override
+	public void opened(EntityManagerFactory entityManagerFactory) {
+		// the builder can't find the bridge in the entity annotations, so that it needs to be registered to accept IDs in filters
+		HibernateSearch6QueryBuilderContext.registerDomainValueBridge(Search.mapping(entityManagerFactory), BenchmarkEntity.class,
+			"entityVal", new BenchmarkDomainValueBridge());
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.lifeinide.jsonql.hibernate.search6.benchmark;
+
+import com.lifeinide.jsonql.core.dto.BasePageableRequest;
+import com.lifeinide.jsonql.core.enums.QueryCondition;
+import com.lifeinide.jsonql.core.enums.QueryConjunction;
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkCorpus;
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkEntity;
+import com.lifeinide.jsonql.hibernate.search6.DefaultHibernateSearch6FilterQueryBuilder;
+import com.lifeinide.jsonql.hibernate.search6.HibernateSearch6FilterQueryBuilder;
+import org.hibernate.search.engine.search.query.SearchQuery;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static com.lifeinide.jsonql.hibernate.benchmark.BenchmarkState.*;
+
+/**
+ * Benchmarks the construction of {@link DefaultHibernateSearch6FilterQueryBuilder} and compilation of each filter type, without
+ * touching the index. The benchmarks are the same as Hibernate Search 5 {@code QueryBuildingBenchmark} ones.
+ *
+ * @author Lukasz Frankowski
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBuildingBenchmark {
+
+	@Benchmark
+	public DefaultHibernateSearch6FilterQueryBuilder<BenchmarkEntity> construct(Session session) {
+		return newBuilder(session);
+	}
+
+	@Benchmark
+	public SearchQuery<BenchmarkEntity> singleValueFilter(Session session) {
+		return build(newBuilder(session).add("stringVal", singleValue(QueryCondition.eq, "s1")));
+	}
+
+	@Benchmark
+	public SearchQuery<BenchmarkEntity> listFilter(Session session) {
+		return build(newBuilder(session).add("stringVal", list(QueryConjunction.or, "s1", "s2", "s3", "s4", "s5")));
+	}
+
+	@Benchmark
+	public SearchQuery<BenchmarkEntity> valueRangeFilter(Session session) {
+		return build(newBuilder(session).add("decimalVal", valueRange(BigDecimal.ONE, BigDecimal.TEN)));
+	}
+
+	@Benchmark
+	public SearchQuery<BenchmarkEntity> dateRangeFilter(Session session) {
+		return build(newBuilder(session).add("dateVal", dateRange(LocalDate.of(2005, 1, 1), LocalDate.of(2006, 1, 1))));
+	}
+
+	@Benchmark
+	public SearchQuery<BenchmarkEntity> entityFilter(Session session) {
+		return build(newBuilder(session).add("entityVal", entity(1L)));
+	}
+
+	protected DefaultHibernateSearch6FilterQueryBuilder<BenchmarkEntity> newBuilder(Session session) {
+		return new DefaultHibernateSearch6FilterQueryBuilder<>(session.entityManager, BenchmarkEntity.class, BenchmarkCorpus.COMMON_WORD);
+	}
+
+	protected SearchQuery<BenchmarkEntity> build(HibernateSearch6FilterQueryBuilder<BenchmarkEntity, ?> builder) {
+		return builder.build(BasePageableRequest.ofUnpaged(), BasePageableRequest.ofUnpaged());
+	}
+
+}
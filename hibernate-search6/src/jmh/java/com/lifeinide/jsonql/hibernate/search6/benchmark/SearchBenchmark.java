@@ -0,0 +1,94 @@
+package com.lifeinide.jsonql.hibernate.search6.benchmark;
+
+import com.lifeinide.jsonql.core.dto.BasePageableRequest;
+import com.lifeinide.jsonql.core.dto.Page;
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkCorpus;
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkEntity;
+import com.lifeinide.jsonql.hibernate.search6.DefaultHibernateSearch6FilterQueryBuilder;
+import com.lifeinide.jsonql.hibernate.search6.FieldSearchStrategy;
+import com.lifeinide.jsonql.hibernate.search6.HibernateSearch6;
+import org.hibernate.search.engine.search.query.SearchQuery;
+import org.hibernate.search.mapper.orm.Search;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.lifeinide.jsonql.hibernate.benchmark.BenchmarkState.*;
+
+/**
+ * Benchmarks searching the corpus: phrase vs wildcard search, paging depth, counting and hydration of results. The benchmarks are
+ * the same as Hibernate Search 5 {@code SearchBenchmark} ones, to compare the results side by side.
+ *
+ * @author Lukasz Frankowski
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Paging {
+
+		@Param({"1", "10", "100", "1000"})
+		public int page;
+
+		@Param({"20", "100"})
+		public int pageSize;
+
+	}
+
+	@Benchmark
+	public Page<BenchmarkEntity> phraseSearch(Session session) {
+		Page<BenchmarkEntity> page = new DefaultHibernateSearch6FilterQueryBuilder<>(session.entityManager, BenchmarkEntity.class,
+			BenchmarkCorpus.RARE_WORD, Collections.singletonMap(HibernateSearch6.FIELD_TEXT, FieldSearchStrategy.DEFAULT))
+			.list(page(20, 1), null);
+		session.entityManager.clear();
+		return page;
+	}
+
+	@Benchmark
+	public Page<BenchmarkEntity> wildcardSearch(Session session) {
+		Page<BenchmarkEntity> page = new DefaultHibernateSearch6FilterQueryBuilder<>(session.entityManager, BenchmarkEntity.class,
+			BenchmarkCorpus.NUMBER_PREFIX, Collections.singletonMap(HibernateSearch6.FIELD_ID, FieldSearchStrategy.WILDCARD_PHRASE))
+			.list(page(20, 1), null);
+		session.entityManager.clear();
+		return page;
+	}
+
+	@Benchmark
+	public Page<BenchmarkEntity> paging(Session session, Paging paging) {
+		Page<BenchmarkEntity> page = newBuilder(session).list(page(paging.pageSize, paging.page), null);
+		session.entityManager.clear();
+		return page;
+	}
+
+	@Benchmark
+	public long count(Session session) {
+		return build(newBuilder(session)).fetchTotalHitCount();
+	}
+
+	/**
+	 * Searches a page of entity references only, to be compared with {@link #paging} to get the cost of hydration.
+	 */
+	@Benchmark
+	public List<?> idsOnly(Session session, Paging paging) {
+		return Search.session(session.entityManager)
+			.search(BenchmarkEntity.class)
+			.select(f -> f.entityReference())
+			.where(newBuilder(session).buildPredicate())
+			.fetchHits((paging.page - 1) * paging.pageSize, paging.pageSize);
+	}
+
+	protected DefaultHibernateSearch6FilterQueryBuilder<BenchmarkEntity> newBuilder(Session session) {
+		return new DefaultHibernateSearch6FilterQueryBuilder<>(session.entityManager, BenchmarkEntity.class, BenchmarkCorpus.COMMON_WORD);
+	}
+
+	protected SearchQuery<BenchmarkEntity> build(DefaultHibernateSearch6FilterQueryBuilder<BenchmarkEntity> builder) {
+		return builder.build(BasePageableRequest.ofUnpaged(), BasePageableRequest.ofUnpaged());
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.lifeinide.jsonql.hibernate.search6;
+
+import com.lifeinide.jsonql.core.dto.Page;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.persistence.EntityManager;
+import java.util.Map;
+
+/**
+ * @author Lukasz Frankowski
+ */
+public class DefaultHibernateSearch6FilterQueryBuilder<E>
+extends HibernateSearch6FilterQueryBuilder<E, Page<E>> {
+
+	public DefaultHibernateSearch6FilterQueryBuilder(@Nonnull EntityManager entityManager, @Nonnull Class<E> entityClass,
+													 @Nullable String q, @Nullable Map<String, FieldSearchStrategy> fields) {
+		super(entityManager, entityClass, q, fields);
+	}
+
+	public DefaultHibernateSearch6FilterQueryBuilder(@Nonnull EntityManager entityManager, @Nonnull Class<E> entityClass,
+													 @Nullable String q) {
+		super(entityManager, entityClass, q);
+	}
+
+	public DefaultHibernateSearch6FilterQueryBuilder(@Nonnull EntityManager entityManager, @Nullable String q,
+													 @Nonnull Map<String, FieldSearchStrategy> fields) {
+		super(entityManager, q, fields);
+	}
+
+	public DefaultHibernateSearch6FilterQueryBuilder(@Nonnull EntityManager entityManager, @Nullable String q) {
+		super(entityManager, q);
+	}
+
+}
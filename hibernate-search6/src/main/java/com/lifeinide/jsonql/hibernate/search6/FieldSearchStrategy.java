@@ -0,0 +1,36 @@
+package com.lifeinide.jsonql.hibernate.search6;
+
+/**
+ * Represents the way the field is searched with {@link HibernateSearch6FilterQueryBuilder}.
+ *
+ * @author Lukasz Frankowski
+ */
+public enum FieldSearchStrategy {
+
+	/**
+	 * Default field search strategy is the phrase search, appropriate to search in the {@link HibernateSearch6#FIELD_TEXT} field.
+	 */
+	DEFAULT,
+
+	/**
+	 * This search strategy uses full phrase match with wildcard as last character to find documents with keywords starting from search
+	 * string. This strategy is appropriate to lookup in this {@link HibernateSearch6#FIELD_ID} field.
+	 */
+	WILDCARD_PHRASE,
+
+	/**
+	 * This search strategy searches all fields having this strategy together, in a single simple query string query requiring all
+	 * terms of the search string, each of them matching in any of the fields. The search string is analyzed with each field analyzer.
+	 *
+	 * <p>
+	 * Unlike the Hibernate Search 5 {@code TERMS} strategy, the terms aren't grouped by their positions across the field analyzers,
+	 * the matches in several fields are summed instead of scored by the best field, and per-field boosts, tie breaker and minimum
+	 * number of terms which should match ({@code MultiFieldSearchOptions}) aren't supported. Thus a term removed by one of the
+	 * analyzers only (like a stopword) is still required in other fields, and the same search string can find fewer documents or score
+	 * them differently than in Hibernate Search 5. Hibernate Search 6.0 doesn't expose the analyzers of the fields, which are
+	 * required to build the Hibernate Search 5 query.
+	 * </p>
+	 */
+	TERMS;
+
+}
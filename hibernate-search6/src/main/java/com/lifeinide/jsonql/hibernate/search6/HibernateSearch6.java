@@ -0,0 +1,81 @@
+package com.lifeinide.jsonql.hibernate.search6;
+
+import org.hibernate.search.mapper.orm.Search;
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
+import org.hibernate.search.mapper.orm.scope.SearchScope;
+import org.hibernate.search.mapper.orm.session.SearchSession;
+
+import javax.annotation.Nonnull;
+import javax.persistence.EntityManager;
+
+/**
+ * Hibernate Search 6 session helper with the names of the common searchable fields, which are the same as in the Hibernate Search 5
+ * implementation, so that the entities can be migrated keeping their index field names.
+ *
+ * <p>
+ * The searchable fields are defined in the entity in the following way:
+ * <pre>{@code
+ * @FullTextField(name = HibernateSearch6.FIELD_TEXT)
+ * protected String description;
+ *
+ * @KeywordField(name = HibernateSearch6.FIELD_ID)
+ * protected String number;
+ * }</pre>
+ * </p>
+ *
+ * @author Lukasz Frankowski
+ */
+public class HibernateSearch6 {
+
+	/**
+	 * A field to store searchable case-insensitive all natural-language fields, analyzed with an analyzer.
+	 */
+	public static final String FIELD_TEXT = "text";
+
+	/**
+	 * A field to store searchable text identifiers (like invoice number), which are not analyzed.
+	 */
+	public static final String FIELD_ID = "textid";
+
+	protected EntityManager entityManager;
+	protected SearchSession searchSession = null;
+
+	public HibernateSearch6(@Nonnull EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	@Nonnull public EntityManager getEntityManager() {
+		return entityManager;
+	}
+
+	@Nonnull public SearchSession searchSession() {
+		if (searchSession==null)
+			searchSession = Search.session(entityManager);
+
+		return searchSession;
+	}
+
+	/**
+	 * Returns the search mapping of the entity manager factory.
+	 */
+	@Nonnull public SearchMapping searchMapping() {
+		return Search.mapping(entityManager.getEntityManagerFactory());
+	}
+
+	/**
+	 * Returns the search scope of given class, which can be either the indexed entity class or any of its supertypes, including
+	 * {@link Object} for the global search.
+	 */
+	@Nonnull public <E> SearchScope<E> scope(@Nonnull Class<E> cls) {
+		return searchSession().scope(cls);
+	}
+
+	public static String makeWild(String s) {
+		if (s==null || s.isEmpty())
+			return s;
+		if (s.endsWith("*"))
+			return s;
+		return s+"*";
+	}
+
+}
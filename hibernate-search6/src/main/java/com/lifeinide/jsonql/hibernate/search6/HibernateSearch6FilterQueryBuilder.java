@@ -0,0 +1,478 @@
+package com.lifeinide.jsonql.hibernate.search6;
+
+import com.lifeinide.jsonql.core.BaseFilterQueryBuilder;
+import com.lifeinide.jsonql.core.dto.BasePageableRequest;
+import com.lifeinide.jsonql.core.dto.Page;
+import com.lifeinide.jsonql.core.enums.QueryCondition;
+import com.lifeinide.jsonql.core.enums.QueryConjunction;
+import com.lifeinide.jsonql.core.enums.SortDirection;
+import com.lifeinide.jsonql.core.filters.*;
+import com.lifeinide.jsonql.core.intr.FilterQueryBuilder;
+import com.lifeinide.jsonql.core.intr.Pageable;
+import com.lifeinide.jsonql.core.intr.QueryFilter;
+import com.lifeinide.jsonql.core.intr.SortField;
+import com.lifeinide.jsonql.core.intr.Sortable;
+import com.lifeinide.jsonql.hibernate.search6.bridge.BaseDomainValueBridge;
+import org.hibernate.search.engine.search.common.BooleanOperator;
+import org.hibernate.search.engine.search.common.ValueConvert;
+import org.hibernate.search.engine.search.predicate.SearchPredicate;
+import org.hibernate.search.engine.search.predicate.dsl.BooleanPredicateClausesStep;
+import org.hibernate.search.engine.search.predicate.dsl.SearchPredicateFactory;
+import org.hibernate.search.engine.search.query.SearchQuery;
+import org.hibernate.search.engine.search.query.SearchResult;
+import org.hibernate.search.engine.search.query.dsl.SearchQueryOptionsStep;
+import org.hibernate.search.engine.search.sort.SearchSort;
+import org.hibernate.search.engine.search.sort.dsl.CompositeSortComponentsStep;
+import org.hibernate.search.engine.search.sort.dsl.SearchSortFactory;
+import org.hibernate.search.util.common.SearchException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.persistence.EntityManager;
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of {@link FilterQueryBuilder} for Hibernate Search 6 with embedded Lucene backend. This is the counterpart of the
+ * Hibernate Search 5 {@code HibernateSearchFilterQueryBuilder}, supporting the same searchable fields and filters, so that the
+ * application can be migrated to Hibernate Search 6 keeping the JSON-QL API.
+ *
+ * <h2>Searchable fields implementation</h2>
+ *
+ * {@link HibernateSearch6FilterQueryBuilder} searches entities of given type for a text contained in {@link HibernateSearch6#FIELD_TEXT}
+ * field with the phrase search, and in {@link HibernateSearch6#FIELD_ID} field with the wildcard search (this behavior is configurable
+ * using one of constructors, though):
+ *
+ * <pre>{@code
+ * @FullTextField(name = HibernateSearch6.FIELD_TEXT)
+ * protected String myfield;
+ *
+ * @KeywordField(name = HibernateSearch6.FIELD_ID)
+ * protected String mynumber;
+ * }</pre>
+ *
+ * The fields searched with {@link FieldSearchStrategy#TERMS} strategy find documents having all terms of the search string in any of
+ * these fields, which is simpler than in Hibernate Search 5 and can find fewer documents for the same search string, see the strategy
+ * description for details.
+ *
+ * <h2>Filtering fields implementation</h2>
+ *
+ * The filter fields are mapped with {@code @GenericField}, {@code @KeywordField} or {@code @ScaledNumberField} (for {@link java.math.BigDecimal}
+ * values) annotations. Unlike in Hibernate Search 5, numbers, dates and enums are indexed with their native types, so no custom bridges
+ * are required for range filters, and {@link QueryCondition#gt} and {@link QueryCondition#lt} conditions are also supported:
+ *
+ * <pre>{@code
+ * @GenericField
+ * protected Long myField;
+ *
+ * @ScaledNumberField(decimalScale = 2)
+ * protected BigDecimal myDecimal;
+ * }</pre>
+ *
+ * The filters are added to the query as non-scoring clauses, and {@code null} values ({@link QueryCondition#isNull} and
+ * {@link QueryCondition#notNull} conditions) are filtered with the Hibernate Search 6 exists predicate, without any class bridge.
+ *
+ * <h3>Value bridge for entities</h3>
+ *
+ * In case we want to store in the index the to-one relation, we need to provide a bridge extending {@link BaseDomainValueBridge}, which
+ * stores the entity ID. The filters on such field accept both the entities and their IDs:
+ *
+ * <pre>{@code
+ * @ManyToOne
+ * @KeywordField(valueBridge = @ValueBridgeRef(type = DomainValueBridge.class))
+ * protected MyEntity entity;
+ * }</pre>
+ *
+ * <h2>Sorting</h2>
+ *
+ * The results are sorted by the requested fields, which need to be mapped with {@code sortable = Sortable.YES}. Unsorted results are
+ * ordered by the score.
+ *
+ * @see HibernateSearch6 How to define searchable fields on entities
+ * @author Lukasz Frankowski
+ */
+public class HibernateSearch6FilterQueryBuilder<E, P extends Page<E>>
+extends BaseFilterQueryBuilder<E, P, SearchQuery<E>, HibernateSearch6QueryBuilderContext<E>, HibernateSearch6FilterQueryBuilder<E, P>> {
+
+	public static final Logger logger = LoggerFactory.getLogger(HibernateSearch6FilterQueryBuilder.class);
+
+	protected HibernateSearch6QueryBuilderContext<E> context;
+
+	/**
+	 * Builds a query builder for concrete entity class with customizable search fields.
+	 */
+	public HibernateSearch6FilterQueryBuilder(@Nonnull EntityManager entityManager, @Nonnull Class<E> entityClass, @Nullable String q,
+											  @Nullable Map<String, FieldSearchStrategy> fields) {
+		this(new HibernateSearch6(entityManager), entityClass, q, fields);
+	}
+
+	/**
+	 * Builds a query builder for concrete entity class with default search fields.
+	 */
+	public HibernateSearch6FilterQueryBuilder(@Nonnull EntityManager entityManager, @Nonnull Class<E> entityClass, @Nullable String q) {
+		this(entityManager, entityClass, q, defaultSearchFields());
+	}
+
+	/**
+	 * Builds a global query builder with customizable search fields.
+	 */
+	@SuppressWarnings("unchecked")
+	public HibernateSearch6FilterQueryBuilder(@Nonnull EntityManager entityManager, @Nullable String q,
+											  @Nullable Map<String, FieldSearchStrategy> fields) {
+		this(entityManager, (Class) Object.class, q, fields);
+	}
+
+	/**
+	 * Builds a global query builder with default search fields.
+	 */
+	public HibernateSearch6FilterQueryBuilder(@Nonnull EntityManager entityManager, @Nullable String q) {
+		this(entityManager, q, defaultSearchFields());
+	}
+
+	protected HibernateSearch6FilterQueryBuilder(@Nonnull HibernateSearch6 hibernateSearch, @Nonnull Class<E> entityClass,
+												 @Nullable String q, @Nullable Map<String, FieldSearchStrategy> fields) {
+		this.context = new HibernateSearch6QueryBuilderContext<>(q, entityClass, hibernateSearch);
+
+		SearchPredicateFactory f = context.getPredicateFactory();
+		BooleanPredicateClausesStep<?> fullTextQuery = f.bool();
+
+		boolean fieldFound = false;
+
+		if (fields!=null && q!=null) {
+			List<String> termsFields = new ArrayList<>();
+
+			for (Map.Entry<String, FieldSearchStrategy> entry: fields.entrySet()) {
+				if (FieldSearchStrategy.TERMS.equals(entry.getValue())) {
+					termsFields.add(entry.getKey());
+					continue;
+				}
+
+				try {
+					fullTextQuery.should(createFieldPredicate(entry.getValue(), entry.getKey(), q));
+					fieldFound = true;
+				} catch (SearchException e) {
+					// silently, this means that some of our full text fields don't exists in the entity
+				}
+			}
+
+			if (!termsFields.isEmpty()) {
+				try {
+					fullTextQuery.should(f.simpleQueryString()
+						.fields(termsFields.toArray(new String[0]))
+						.matching(q)
+						.defaultOperator(BooleanOperator.AND)
+						.toPredicate());
+					fieldFound = true;
+				} catch (SearchException e) {
+					// silently, as above
+				}
+			}
+		}
+
+		if (!fieldFound)
+			throw new SearchException(String.format("No fulltext fields found for: %s", entityClass.getSimpleName()));
+
+		context.getBooleanPredicate().must(fullTextQuery.toPredicate());
+	}
+
+	@Nonnull
+	@Override
+	public HibernateSearch6FilterQueryBuilder<E, P> add(@Nonnull String field, DateRangeQueryFilter filter) {
+		if (filter!=null) {
+			LocalDate from = filter.calculateFrom();
+			LocalDate to = filter.calculateTo();
+
+			try {
+				Field reflectField = context.getEntityField(field);
+
+				if (from!=null)
+					filter(createRangePredicate(field, QueryCondition.ge, filter.convert(from, reflectField)));
+				if (to!=null)
+					filter(createRangePredicate(field, QueryCondition.le, filter.convert(to, reflectField)));
+			} catch (NoSuchFieldException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		return this;
+	}
+
+	@Nonnull
+	@Override
+	public HibernateSearch6FilterQueryBuilder<E, P> add(@Nonnull String field, EntityQueryFilter<?> filter) {
+		return add(field, (SingleValueQueryFilter<?>) filter);
+	}
+
+	@Nonnull
+	@Override
+	public HibernateSearch6FilterQueryBuilder<E, P> add(@Nonnull String field, ListQueryFilter<? extends QueryFilter> filter) {
+		if (filter!=null) {
+
+			List<? extends QueryFilter> filters = filter.getFilters();
+			SearchPredicateFactory f = context.getPredicateFactory();
+			BooleanPredicateClausesStep<?> localPredicate = f.bool();
+			boolean or = QueryConjunction.or.equals(filter.getConjunction()) && filters!=null && filters.size()>1;
+			boolean positiveClause = false;
+
+			if (filters!=null && !filters.isEmpty()) {
+				for (QueryFilter qf1: filters) {
+					if (!(qf1 instanceof SingleValueQueryFilter))
+						throw new UnsupportedOperationException("Only QueryFilter is supported with ListQueryFilter for full text search");
+					SingleValueQueryFilter<?> qf = (SingleValueQueryFilter<?>) qf1;
+					if (or) {
+						if (isNullFilter(qf))
+							localPredicate.should(f.bool().mustNot(createExistsPredicate(field)).toPredicate());
+						else if (isNotNullFilter(qf))
+							localPredicate.should(createExistsPredicate(field));
+						else if (QueryCondition.eq.equals(qf.getCondition()))
+							localPredicate.should(createKeywordPredicate(field, qf.getValue()));
+						else if (isRangeCondition(qf.getCondition()))
+							localPredicate.should(createRangePredicate(field, qf.getCondition(), qf.getValue()));
+						else
+							throw new UnsupportedOperationException(String.format(
+								"Condition: %s is not supported with ListQueryFilter using or conjunction", qf.getCondition()));
+						positiveClause = true;
+					} else {
+						if (isNullFilter(qf))
+							localPredicate.mustNot(createExistsPredicate(field));
+						else if (isNotNullFilter(qf)) {
+							localPredicate.filter(createExistsPredicate(field));
+							positiveClause = true;
+						} else if (QueryCondition.eq.equals(qf.getCondition())) {
+							localPredicate.filter(createKeywordPredicate(field, qf.getValue()));
+							positiveClause = true;
+						} else if (QueryCondition.ne.equals(qf.getCondition()))
+							localPredicate.mustNot(createKeywordPredicate(field, qf.getValue()));
+						else if (isRangeCondition(qf.getCondition())) {
+							localPredicate.filter(createRangePredicate(field, qf.getCondition(), qf.getValue()));
+							positiveClause = true;
+						} else
+							throw new UnsupportedOperationException(String.format(
+								"Condition: %s is not supported with ListQueryFilter", qf.getCondition()));
+					}
+				}
+			}
+
+			// pure negative boolean query doesn't match anything in Lucene
+			if (!positiveClause)
+				localPredicate.filter(f.matchAll());
+
+			filter(localPredicate.toPredicate());
+
+		}
+
+		return this;
+
+	}
+
+	@Nonnull
+	@Override
+	public HibernateSearch6FilterQueryBuilder<E, P> add(@Nonnull String field, SingleValueQueryFilter<?> filter) {
+		if (filter!=null) {
+			if (isNullFilter(filter))
+				mustNot(createExistsPredicate(field));
+			else if (isNotNullFilter(filter))
+				filter(createExistsPredicate(field));
+			else if (QueryCondition.eq.equals(filter.getCondition()))
+				filter(createKeywordPredicate(field, filter.getValue()));
+			else if (QueryCondition.ne.equals(filter.getCondition()))
+				mustNot(createKeywordPredicate(field, filter.getValue()));
+			else if (isRangeCondition(filter.getCondition()))
+				filter(createRangePredicate(field, filter.getCondition(), filter.getValue()));
+			else
+				throw new IllegalArgumentException(
+					String.format("Condition: %s not supported for HibernateSearch6FilterQueryBuilder", filter.getCondition()));
+		}
+
+		return this;
+	}
+
+	@Nonnull
+	@Override
+	public HibernateSearch6FilterQueryBuilder<E, P> add(@Nonnull String field, ValueRangeQueryFilter<? extends Number> filter) {
+		if (filter!=null) {
+			if (filter.getFrom()!=null)
+				filter(createRangePredicate(field, QueryCondition.ge, filter.getFrom()));
+			if (filter.getTo()!=null)
+				filter(createRangePredicate(field, QueryCondition.le, filter.getTo()));
+		}
+
+		return this;
+
+	}
+
+	@Nonnull
+	@Override
+	public HibernateSearch6QueryBuilderContext<E> context() {
+		return context;
+	}
+
+	@Nonnull
+	@Override
+	public SearchQuery<E> build(@Nonnull Pageable pageable, @Nonnull Sortable<?> sortable) {
+		SearchQueryOptionsStep<?, E, ?, ?, ?> query = context.getHibernateSearch().searchSession()
+			.search(context.getScope())
+			.where(buildPredicate());
+
+		SearchSort sort = buildSort(sortable);
+		if (sort!=null)
+			query.sort(sort);
+
+		return query.toQuery();
+	}
+
+	@Nonnull
+	@SuppressWarnings("unchecked")
+	@Override
+	public P list(Pageable pageable, Sortable<?> sortable) {
+		if (pageable==null)
+			pageable = BasePageableRequest.ofUnpaged();
+		if (sortable==null)
+			sortable = BasePageableRequest.ofUnpaged();
+
+		SearchQuery<E> query = build(pageable, sortable);
+
+		if (logger.isTraceEnabled())
+			logger.trace("Executing full text query: {}", query.queryString());
+
+		SearchResult<E> result;
+		if (pageable.isPaged())
+			result = query.fetch(pageable.getOffset(), getPageSize(pageable));
+		else if (maxResults!=null)
+			result = query.fetch(maxResults);
+		else
+			result = query.fetchAll();
+
+		return (P) buildPageableResult(getPageSize(pageable), pageable.getPage(), Math.toIntExact(result.total().hitCount()),
+			result.hits());
+	}
+
+	/**
+	 * Returns the predicate of all search fields and filters added to this builder.
+	 */
+	@Nonnull
+	public SearchPredicate buildPredicate() {
+		return context.getBooleanPredicate().toPredicate();
+	}
+
+	/**
+	 * Returns the sort of the requested sort fields, or {@code null} for the default sort by score.
+	 */
+	@Nullable
+	protected SearchSort buildSort(Sortable<?> sortable) {
+		List<? extends SortField> sortFields = sortable==null ? null : sortable.getSort();
+		if (sortFields==null || sortFields.isEmpty())
+			return null;
+
+		SearchSortFactory f = context.getScope().sort();
+		CompositeSortComponentsStep<?> sort = f.composite();
+		for (SortField sortField: sortFields) {
+			if (SortDirection.DESC.equals(sortField.getSortDirection()))
+				sort.add(f.field(sortField.getSortField()).desc().toSort());
+			else
+				sort.add(f.field(sortField.getSortField()).asc().toSort());
+		}
+
+		return sort.toSort();
+	}
+
+	/**
+	 * Adds the filter predicate, which doesn't affect the score.
+	 */
+	protected void filter(SearchPredicate predicate) {
+		context.getBooleanPredicate().filter(predicate);
+	}
+
+	protected void mustNot(SearchPredicate predicate) {
+		context.getBooleanPredicate().mustNot(predicate);
+	}
+
+	protected boolean isNullFilter(SingleValueQueryFilter<?> filter) {
+		return QueryCondition.isNull.equals(filter.getCondition())
+			|| (QueryCondition.eq.equals(filter.getCondition()) && filter.getValue()==null);
+	}
+
+	protected boolean isNotNullFilter(SingleValueQueryFilter<?> filter) {
+		return QueryCondition.notNull.equals(filter.getCondition())
+			|| (QueryCondition.ne.equals(filter.getCondition()) && filter.getValue()==null);
+	}
+
+	protected boolean isRangeCondition(QueryCondition condition) {
+		return QueryCondition.ge.equals(condition) || QueryCondition.le.equals(condition)
+			|| QueryCondition.gt.equals(condition) || QueryCondition.lt.equals(condition);
+	}
+
+	/**
+	 * Creates the predicate matching documents having any value of the field.
+	 */
+	protected SearchPredicate createExistsPredicate(String field) {
+		return context.getPredicateFactory().exists().field(field).toPredicate();
+	}
+
+	/**
+	 * Creates the predicate matching the exact value of the field.
+	 */
+	protected SearchPredicate createKeywordPredicate(String field, Object value) {
+		BaseDomainValueBridge<?> bridge = context.getDomainValueBridge(field);
+		if (bridge!=null)
+			return context.getPredicateFactory().match().field(field).matching(bridge.toFilterValue(value), ValueConvert.NO).toPredicate();
+
+		return context.getPredicateFactory().match().field(field).matching(context.convertValue(field, value)).toPredicate();
+	}
+
+	/**
+	 * Creates the predicate matching field values greater or lower than the value, according to the range condition.
+	 */
+	protected SearchPredicate createRangePredicate(String field, QueryCondition condition, Object value) {
+		SearchPredicateFactory f = context.getPredicateFactory();
+		BaseDomainValueBridge<?> bridge = context.getDomainValueBridge(field);
+		Object indexValue = bridge!=null ? bridge.toFilterValue(value) : context.convertValue(field, value);
+		ValueConvert convert = bridge!=null ? ValueConvert.NO : ValueConvert.YES;
+
+		switch (condition) {
+			case ge:
+				return f.range().field(field).atLeast(indexValue, convert).toPredicate();
+			case gt:
+				return f.range().field(field).greaterThan(indexValue, convert).toPredicate();
+			case le:
+				return f.range().field(field).atMost(indexValue, convert).toPredicate();
+			case lt:
+				return f.range().field(field).lessThan(indexValue, convert).toPredicate();
+			default:
+				throw new IllegalArgumentException(String.format("Condition: %s is not a range condition", condition));
+		}
+	}
+
+	protected SearchPredicate createFieldPredicate(FieldSearchStrategy strategy, String field, String query) {
+		switch (strategy) {
+			case DEFAULT:
+				return context.getPredicateFactory()
+					.phrase()
+					.field(field)
+					.matching(query)
+					.toPredicate();
+			case WILDCARD_PHRASE:
+				return context.getPredicateFactory()
+					.wildcard()
+					.field(field)
+					.matching(HibernateSearch6.makeWild(query))
+					.toPredicate();
+			default:
+				throw new IllegalStateException(String.format("Strategy: %s is not implemented", strategy));
+		}
+	}
+
+	public static Map<String, FieldSearchStrategy> defaultSearchFields() {
+		Map<String, FieldSearchStrategy> map = new LinkedHashMap<>();
+		map.put(HibernateSearch6.FIELD_TEXT, FieldSearchStrategy.DEFAULT);
+		map.put(HibernateSearch6.FIELD_ID, FieldSearchStrategy.WILDCARD_PHRASE);
+		return map;
+	}
+
+}
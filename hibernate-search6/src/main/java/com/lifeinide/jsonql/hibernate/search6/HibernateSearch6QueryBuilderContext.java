@@ -0,0 +1,265 @@
+package com.lifeinide.jsonql.hibernate.search6;
+
+import com.lifeinide.jsonql.core.BaseQueryBuilderContext;
+import com.lifeinide.jsonql.hibernate.search6.bridge.BaseDomainValueBridge;
+import org.hibernate.search.engine.search.predicate.dsl.BooleanPredicateClausesStep;
+import org.hibernate.search.engine.search.predicate.dsl.SearchPredicateFactory;
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
+import org.hibernate.search.mapper.orm.scope.SearchScope;
+import org.hibernate.search.mapper.pojo.bridge.mapping.annotation.ValueBridgeRef;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.GenericField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordField;
+import org.hibernate.search.util.common.SearchException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author Lukasz Frankowski
+ */
+public class HibernateSearch6QueryBuilderContext<E> extends BaseQueryBuilderContext {
+
+	/** The bridges registered for the search mappings, released together with their mapping **/
+	protected static final Map<SearchMapping, Map<Class<?>, Map<String, BaseDomainValueBridge<?>>>> registeredDomainValueBridges =
+		Collections.synchronizedMap(new WeakHashMap<>());
+
+	protected String query;
+	protected Class<E> entityClass;
+	protected HibernateSearch6 hibernateSearch;
+	protected SearchScope<E> scope;
+	protected BooleanPredicateClausesStep<?> booleanPredicate;
+	protected Map<String, Class<?>> fieldTypes = new HashMap<>();
+	protected Map<String, BaseDomainValueBridge<?>> domainValueBridges = new HashMap<>();
+
+	public HibernateSearch6QueryBuilderContext(@Nullable String query, @Nonnull Class<E> entityClass,
+											   @Nonnull HibernateSearch6 hibernateSearch) {
+		this.query = query;
+		this.entityClass = entityClass;
+		this.hibernateSearch = hibernateSearch;
+		this.scope = hibernateSearch.scope(entityClass);
+		this.booleanPredicate = getPredicateFactory().bool();
+	}
+
+	@Nullable public String getQuery() {
+		return query;
+	}
+
+	@Nonnull public Class<E> getEntityClass() {
+		return entityClass;
+	}
+
+	@Nonnull public HibernateSearch6 getHibernateSearch() {
+		return hibernateSearch;
+	}
+
+	@Nonnull public SearchScope<E> getScope() {
+		return scope;
+	}
+
+	@Nonnull public SearchPredicateFactory getPredicateFactory() {
+		return scope.predicate();
+	}
+
+	@Nonnull public BooleanPredicateClausesStep<?> getBooleanPredicate() {
+		return booleanPredicate;
+	}
+
+	/**
+	 * Returns the type of the entity class field for given field name or {@code null} if the field is unknown for the entity (for
+	 * example in the global search).
+	 */
+	@Nullable public Class<?> getFieldType(@Nonnull String field) {
+		if (!fieldTypes.containsKey(field)) {
+			try {
+				fieldTypes.put(field, getEntityField(field).getType());
+			} catch (NoSuchFieldException e) {
+				fieldTypes.put(field, null);
+			}
+		}
+
+		return fieldTypes.get(field);
+	}
+
+	/**
+	 * Registers the {@link BaseDomainValueBridge} used to index given field of the entity class in given search mapping. The bridges
+	 * set with {@link KeywordField#valueBridge()} or {@link GenericField#valueBridge()} annotations are found automatically, and this
+	 * method is required only for the fields mapped with the programmatic mapping, which can't be read from the entity class. The
+	 * bridges are used only by the query builders of the same mapping, and are released when the mapping is garbage collected.
+	 */
+	public static void registerDomainValueBridge(@Nonnull SearchMapping mapping, @Nonnull Class<?> entityClass, @Nonnull String field,
+												 @Nonnull BaseDomainValueBridge<?> bridge) {
+		registeredDomainValueBridges.computeIfAbsent(mapping, m -> new ConcurrentHashMap<>())
+			.computeIfAbsent(entityClass, cls -> new ConcurrentHashMap<>())
+			.put(field, bridge);
+	}
+
+	/**
+	 * Returns the {@link BaseDomainValueBridge} used to index given field or {@code null} if the field is indexed without it.
+	 */
+	@Nullable public BaseDomainValueBridge<?> getDomainValueBridge(@Nonnull String field) {
+		if (!domainValueBridges.containsKey(field)) {
+			BaseDomainValueBridge<?> bridge = getRegisteredDomainValueBridge(field);
+
+			if (bridge==null) {
+				try {
+					Field entityField = getEntityField(field);
+					KeywordField keywordField = entityField.getAnnotation(KeywordField.class);
+					GenericField genericField = entityField.getAnnotation(GenericField.class);
+					if (keywordField!=null)
+						bridge = createDomainValueBridge(keywordField.valueBridge());
+					else if (genericField!=null)
+						bridge = createDomainValueBridge(genericField.valueBridge());
+				} catch (NoSuchFieldException e) {
+					// silently, the field is not an entity field
+				}
+			}
+
+			domainValueBridges.put(field, bridge);
+		}
+
+		return domainValueBridges.get(field);
+	}
+
+	@Nullable protected BaseDomainValueBridge<?> getRegisteredDomainValueBridge(@Nonnull String field) {
+		Map<Class<?>, Map<String, BaseDomainValueBridge<?>>> mappingBridges =
+			registeredDomainValueBridges.get(hibernateSearch.searchMapping());
+		if (mappingBridges==null)
+			return null;
+
+		for (Class<?> cls = entityClass; cls!=null; cls = cls.getSuperclass()) {
+			Map<String, BaseDomainValueBridge<?>> bridges = mappingBridges.get(cls);
+			if (bridges!=null && bridges.containsKey(field))
+				return bridges.get(field);
+		}
+
+		return null;
+	}
+
+	protected BaseDomainValueBridge<?> createDomainValueBridge(ValueBridgeRef ref) {
+		if (!BaseDomainValueBridge.class.isAssignableFrom(ref.type()))
+			return null;
+
+		try {
+			return (BaseDomainValueBridge<?>) ref.type().getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new SearchException(String.format("Can't instantiate value bridge: %s", ref.type().getName()), e);
+		}
+	}
+
+	/**
+	 * Converts the filter value to the type of the entity field, so that it is accepted by Hibernate Search 6 query DSL, which requires
+	 * exactly the same type of values as the indexed property. Numbers are converted to the field number type and strings to the field
+	 * enum type. Other values are returned as is.
+	 */
+	@SuppressWarnings("unchecked")
+	@Nullable public Object convertValue(@Nonnull String field, @Nullable Object value) {
+		Class<?> type = getFieldType(field);
+		if (value==null || type==null)
+			return value;
+
+		type = wrap(type);
+		if (type.isInstance(value))
+			return value;
+
+		if (value instanceof Number) {
+			Number number = (Number) value;
+			if (Long.class.equals(type))
+				return number.longValue();
+			if (Integer.class.equals(type))
+				return number.intValue();
+			if (Short.class.equals(type))
+				return number.shortValue();
+			if (Double.class.equals(type))
+				return number.doubleValue();
+			if (Float.class.equals(type))
+				return number.floatValue();
+			if (BigDecimal.class.equals(type))
+				return new BigDecimal(number.toString());
+		}
+
+		if (value instanceof String && type.isEnum())
+			return Enum.valueOf((Class) type, (String) value);
+
+		return value;
+	}
+
+	protected static Class<?> wrap(Class<?> type) {
+		if (!type.isPrimitive())
+			return type;
+		if (boolean.class.equals(type))
+			return Boolean.class;
+		if (long.class.equals(type))
+			return Long.class;
+		if (int.class.equals(type))
+			return Integer.class;
+		if (short.class.equals(type))
+			return Short.class;
+		if (double.class.equals(type))
+			return Double.class;
+		if (float.class.equals(type))
+			return Float.class;
+		return type;
+	}
+
+	/**
+	 * Returns the entity class field for given field name. For dotted paths of {@code @IndexedEmbedded} associations, like
+	 * {@code "entityVal.name"}, the associations are followed and the field of the associated entity class is returned.
+	 */
+	@Nonnull public Field getEntityField(@Nonnull String path) throws NoSuchFieldException {
+		Class<?> type = entityClass;
+		Field field = null;
+
+		for (String name: path.split("\\.")) {
+			if (field!=null)
+				type = getElementType(field);
+			field = getDeclaredField(type, name);
+		}
+
+		return field;
+	}
+
+	protected static Field getDeclaredField(Class<?> type, String name) throws NoSuchFieldException {
+		for (Class<?> c = type; c!=null; c = c.getSuperclass()) {
+			try {
+				return c.getDeclaredField(name);
+			} catch (NoSuchFieldException e) {
+				// continue with superclass
+			}
+		}
+
+		throw new NoSuchFieldException(String.format("%s.%s", type.getSimpleName(), name));
+	}
+
+	/**
+	 * Returns the type of the associated entity, which is the field type for to-one associations or the element type for to-many ones.
+	 */
+	protected static Class<?> getElementType(Field field) {
+		if (field.getType().isArray())
+			return field.getType().getComponentType();
+
+		if (Collection.class.isAssignableFrom(field.getType()) || Map.class.isAssignableFrom(field.getType())) {
+			Type genericType = field.getGenericType();
+			if (genericType instanceof ParameterizedType) {
+				Type[] args = ((ParameterizedType) genericType).getActualTypeArguments();
+				Type elementType = args[args.length-1];
+				if (elementType instanceof Class)
+					return (Class<?>) elementType;
+				if (elementType instanceof ParameterizedType)
+					return (Class<?>) ((ParameterizedType) elementType).getRawType();
+			}
+		}
+
+		return field.getType();
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.lifeinide.jsonql.hibernate.search6.bridge;
+
+import com.lifeinide.jsonql.hibernate.search6.HibernateSearch6FilterQueryBuilder;
+import com.lifeinide.jsonql.hibernate.search6.HibernateSearch6QueryBuilderContext;
+import org.hibernate.search.mapper.pojo.bridge.ValueBridge;
+import org.hibernate.search.mapper.pojo.bridge.runtime.ValueBridgeToIndexedValueContext;
+
+/**
+ * A {@link ValueBridge} to reflect entity objects in the index as their IDs. To be implemented by the application.
+ *
+ * <p>
+ * The filters on such fields accept both entities and their IDs, see {@link #toFilterValue}. If the field is mapped with the
+ * programmatic mapping instead of annotations, the bridge needs to be registered for the search mapping with
+ * {@link HibernateSearch6QueryBuilderContext#registerDomainValueBridge}.
+ * </p>
+ *
+ * @param <E> Entity type, which must be a raw class for Hibernate Search to infer the bridged value type.
+ * @see HibernateSearch6FilterQueryBuilder How to use this bridge in searchable entities
+ * @author Lukasz Frankowski
+ */
+@SuppressWarnings("unchecked")
+public abstract class BaseDomainValueBridge<E> implements ValueBridge<E, String> {
+
+	/**
+	 * Returns the entity ID as {@link String} so that the full text search index can store it and make searchable.
+	 * @param entity (not null) entity
+	 * @return String representation of entity ID.
+	 */
+	public abstract String getEntityIdAsString(E entity);
+
+	/**
+	 * Checks whether the object is of {@link E} entity type.
+	 * @param entity (nullable) entity
+	 */
+	public abstract boolean isEntity(Object entity);
+
+	@Override
+	public String toIndexedValue(E value, ValueBridgeToIndexedValueContext context) {
+		return value==null ? null : getEntityIdAsString(value);
+	}
+
+	/**
+	 * Converts the filter value, which can be either the entity or its ID, to the indexed value.
+	 */
+	public String toFilterValue(Object value) {
+		if (isEntity(value))
+			return getEntityIdAsString((E) value);
+		if (value==null)
+			return null;
+		return value.toString();
+	}
+
+}
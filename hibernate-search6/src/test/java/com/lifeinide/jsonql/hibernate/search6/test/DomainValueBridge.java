@@ -0,0 +1,20 @@
+package com.lifeinide.jsonql.hibernate.search6.test;
+
+import com.lifeinide.jsonql.hibernate.search6.bridge.BaseDomainValueBridge;
+
+/**
+ * @author Lukasz Frankowski
+ */
+public class DomainValueBridge extends BaseDomainValueBridge<HibernateSearch6AssociatedEntity> {
+
+	@Override
+	public String getEntityIdAsString(HibernateSearch6AssociatedEntity entity) {
+		return String.valueOf(entity.getId());
+	}
+
+	@Override
+	public boolean isEntity(Object entity) {
+		return entity instanceof HibernateSearch6AssociatedEntity;
+	}
+
+}
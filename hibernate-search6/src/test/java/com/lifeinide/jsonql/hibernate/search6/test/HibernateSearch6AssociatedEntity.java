@@ -0,0 +1,60 @@
+package com.lifeinide.jsonql.hibernate.search6.test;
+
+import com.lifeinide.jsonql.core.test.IJsonQLBaseTestEntity;
+import com.lifeinide.jsonql.hibernate.search6.HibernateSearch6;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordField;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * @author Lukasz Frankowski
+ */
+@Entity
+@Indexed
+public class HibernateSearch6AssociatedEntity implements IJsonQLBaseTestEntity<Long> {
+
+	@Id Long id;
+
+	@FullTextField(name = HibernateSearch6.FIELD_TEXT)
+	protected String q = HibernateSearch6QueryBuilderTest.SEARCHABLE_STRING;
+
+	@KeywordField
+	protected String name = HibernateSearch6QueryBuilderTest.ASSOCIATED_NAME;
+
+	public HibernateSearch6AssociatedEntity() {
+	}
+
+	public HibernateSearch6AssociatedEntity(Long id) {
+		this.id = id;
+	}
+
+	@Override
+	public Long getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getQ() {
+		return q;
+	}
+
+	public void setQ(String q) {
+		this.q = q;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+}
@@ -0,0 +1,147 @@
+package com.lifeinide.jsonql.hibernate.search6.test;
+
+import com.lifeinide.jsonql.core.test.IJsonQLTestEntity;
+import com.lifeinide.jsonql.core.test.IJsonQLTestParentEntity;
+import com.lifeinide.jsonql.core.test.JsonQLTestEntityEnum;
+import com.lifeinide.jsonql.hibernate.search6.HibernateSearch6;
+import org.hibernate.search.engine.backend.types.Sortable;
+import org.hibernate.search.mapper.pojo.bridge.mapping.annotation.ValueBridgeRef;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.*;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * The counterpart of {@code HibernateSearchEntity} mapped with Hibernate Search 6 annotations.
+ *
+ * @author Lukasz Frankowski
+ */
+@Entity
+@Indexed
+public class HibernateSearch6Entity implements IJsonQLTestEntity<Long>, IJsonQLTestParentEntity<Long, HibernateSearch6AssociatedEntity> {
+
+	@Id private Long id;
+
+	@FullTextField(name = HibernateSearch6.FIELD_TEXT)
+	protected String q = HibernateSearch6QueryBuilderTest.SEARCHABLE_STRING;
+
+	@KeywordField(sortable = Sortable.YES)
+	protected String stringVal;
+
+	@GenericField(sortable = Sortable.YES)
+	protected boolean booleanVal;
+
+	@GenericField(sortable = Sortable.YES)
+	protected Long longVal;
+
+	@ScaledNumberField(decimalScale = 2, sortable = Sortable.YES)
+	protected BigDecimal decimalVal;
+
+	@GenericField(sortable = Sortable.YES)
+	protected LocalDate dateVal;
+
+	@Enumerated(EnumType.STRING)
+	@KeywordField(sortable = Sortable.YES)
+	protected JsonQLTestEntityEnum enumVal;
+
+	@ManyToOne
+	@KeywordField(valueBridge = @ValueBridgeRef(type = DomainValueBridge.class))
+	protected HibernateSearch6AssociatedEntity entityVal;
+
+	public HibernateSearch6Entity() {
+	}
+
+	public HibernateSearch6Entity(Long id) {
+		this.id = id;
+	}
+
+	@Override
+	public Long getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getQ() {
+		return q;
+	}
+
+	public void setQ(String q) {
+		this.q = q;
+	}
+
+	@Override
+	public String getStringVal() {
+		return stringVal;
+	}
+
+	@Override
+	public void setStringVal(String stringVal) {
+		this.stringVal = stringVal;
+	}
+
+	@Override
+	public boolean isBooleanVal() {
+		return booleanVal;
+	}
+
+	@Override
+	public void setBooleanVal(boolean booleanVal) {
+		this.booleanVal = booleanVal;
+	}
+
+	@Override
+	public Long getLongVal() {
+		return longVal;
+	}
+
+	@Override
+	public void setLongVal(Long longVal) {
+		this.longVal = longVal;
+	}
+
+	@Override
+	public BigDecimal getDecimalVal() {
+		return decimalVal;
+	}
+
+	@Override
+	public void setDecimalVal(BigDecimal decimalVal) {
+		this.decimalVal = decimalVal;
+	}
+
+	@Override
+	public LocalDate getDateVal() {
+		return dateVal;
+	}
+
+	@Override
+	public void setDateVal(LocalDate dateVal) {
+		this.dateVal = dateVal;
+	}
+
+	@Override
+	public JsonQLTestEntityEnum getEnumVal() {
+		return enumVal;
+	}
+
+	@Override
+	public void setEnumVal(JsonQLTestEntityEnum enumVal) {
+		this.enumVal = enumVal;
+	}
+
+	@Override
+	public HibernateSearch6AssociatedEntity getEntityVal() {
+		return entityVal;
+	}
+
+	@Override
+	public void setEntityVal(HibernateSearch6AssociatedEntity entityVal) {
+		this.entityVal = entityVal;
+	}
+
+}
@@ -0,0 +1,169 @@
+package com.lifeinide.jsonql.hibernate.search6.test;
+
+import com.lifeinide.jsonql.core.dto.Page;
+import com.lifeinide.jsonql.core.enums.QueryCondition;
+import com.lifeinide.jsonql.core.filters.SingleValueQueryFilter;
+import com.lifeinide.jsonql.core.test.JsonQLBaseQueryBuilderTest;
+import com.lifeinide.jsonql.core.test.JsonQLQueryBuilderTestFeature;
+import com.lifeinide.jsonql.hibernate.search6.DefaultHibernateSearch6FilterQueryBuilder;
+import com.lifeinide.jsonql.hibernate.search6.HibernateSearch6;
+import com.lifeinide.jsonql.hibernate.search6.HibernateSearch6FilterQueryBuilder;
+import com.lifeinide.jsonql.hibernate.search6.HibernateSearch6QueryBuilderContext;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nonnull;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Runs the same test suite as for Hibernate Search 5 implementation with {@link HibernateSearch6FilterQueryBuilder}.
+ *
+ * @author Lukasz Frankowski
+ */
+public class HibernateSearch6QueryBuilderTest extends JsonQLBaseQueryBuilderTest<
+	EntityManager,
+	Long,
+	HibernateSearch6Entity,
+	HibernateSearch6FilterQueryBuilder<HibernateSearch6Entity, Page<HibernateSearch6Entity>>
+> {
+
+	public static final String PERSISTENCE_UNIT_NAME = "test-jpa-search6";
+	public static final String INDEX_BASE = "tmp-search6";
+	public static final String SEARCHABLE_STRING = "in the middle of nowhere";
+	public static final String SEARCHABLE_STRING_PART = "middle";
+	public static final String ASSOCIATED_NAME = "associated";
+
+	protected EntityManagerFactory entityManagerFactory;
+
+	@BeforeAll
+	public void init() {
+		entityManagerFactory = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT_NAME);
+		doWithEntityManager(em -> populateData(em::persist));
+	}
+
+	@AfterAll
+	public void done() {
+		if (entityManagerFactory!=null)
+			entityManagerFactory.close();
+
+		try {
+			FileUtils.deleteDirectory(FileSystems.getDefault().getPath(INDEX_BASE).toFile());
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	protected boolean supports(JsonQLQueryBuilderTestFeature feature) {
+		switch (feature) {
+			case STRICT_DECIMALS:
+			case SORTING:
+				return false;
+		}
+
+		return super.supports(feature);
+	}
+
+	@Nonnull
+	@Override
+	protected HibernateSearch6Entity buildEntity(Long previousId) {
+		return new HibernateSearch6Entity(previousId==null ? 1L : previousId+1);
+	}
+
+	@Override
+	protected HibernateSearch6AssociatedEntity buildAssociatedEntity() {
+		return new HibernateSearch6AssociatedEntity(1L);
+	}
+
+	@Override
+	protected void doTest(BiConsumer<EntityManager, HibernateSearch6FilterQueryBuilder<HibernateSearch6Entity, Page<HibernateSearch6Entity>>> c) {
+		doWithEntityManager(em -> c.accept(em, new HibernateSearch6FilterQueryBuilder<>(em, HibernateSearch6Entity.class, SEARCHABLE_STRING)));
+	}
+
+	@Test
+	public void testLocalAndGlobalSearch() {
+		doWithEntityManager(em -> {
+			DefaultHibernateSearch6FilterQueryBuilder<?> qb =
+				new DefaultHibernateSearch6FilterQueryBuilder<>(em, HibernateSearch6Entity.class, SEARCHABLE_STRING_PART);
+			Page<?> page = qb.list();
+			Assertions.assertEquals(100, page.getCount());
+
+			qb = new DefaultHibernateSearch6FilterQueryBuilder<>(em, SEARCHABLE_STRING_PART);
+			page = qb.list();
+			Assertions.assertEquals(101, page.getCount());
+		});
+	}
+
+	@Test
+	public void testNullFiltering() {
+		doWithEntityManager(em -> {
+			long expectedNullCount = em.createQuery("select count(e) from HibernateSearch6Entity e where e.longVal is null", Long.class)
+				.getSingleResult();
+			Assertions.assertTrue(expectedNullCount > 0);
+			Assertions.assertTrue(expectedNullCount < 100);
+
+			long nullCount = new DefaultHibernateSearch6FilterQueryBuilder<>(em, HibernateSearch6Entity.class, SEARCHABLE_STRING_PART)
+				.add("longVal", singleValueFilter(QueryCondition.isNull, null)).list().getCount();
+			long notNullCount = new DefaultHibernateSearch6FilterQueryBuilder<>(em, HibernateSearch6Entity.class, SEARCHABLE_STRING_PART)
+				.add("longVal", singleValueFilter(QueryCondition.notNull, null)).list().getCount();
+			Assertions.assertEquals(expectedNullCount, nullCount);
+			Assertions.assertEquals(100 - expectedNullCount, notNullCount);
+		});
+	}
+
+	@Test
+	public void testEntityFilterById() {
+		doWithEntityManager(em -> {
+			HibernateSearch6AssociatedEntity associatedEntity = em.find(HibernateSearch6AssociatedEntity.class, 1L);
+			long entityCount = new DefaultHibernateSearch6FilterQueryBuilder<>(em, HibernateSearch6Entity.class, SEARCHABLE_STRING_PART)
+				.add("entityVal", singleValueFilter(QueryCondition.eq, associatedEntity)).list().getCount();
+			long idCount = new DefaultHibernateSearch6FilterQueryBuilder<>(em, HibernateSearch6Entity.class, SEARCHABLE_STRING_PART)
+				.add("entityVal", singleValueFilter(QueryCondition.eq, 1L)).list().getCount();
+			Assertions.assertEquals(entityCount, idCount);
+		});
+	}
+
+	@Test
+	public void testRegisteredDomainValueBridge() {
+		doWithEntityManager(em -> {
+			HibernateSearch6 search = new HibernateSearch6(em);
+			DomainValueBridge bridge = new DomainValueBridge();
+			HibernateSearch6QueryBuilderContext.registerDomainValueBridge(search.searchMapping(), HibernateSearch6Entity.class,
+				"registeredVal", bridge);
+
+			Assertions.assertSame(bridge, new HibernateSearch6QueryBuilderContext<>(null, HibernateSearch6Entity.class, search)
+				.getDomainValueBridge("registeredVal"));
+			Assertions.assertNull(new HibernateSearch6QueryBuilderContext<>(null, HibernateSearch6AssociatedEntity.class, search)
+				.getDomainValueBridge("registeredVal"));
+		});
+	}
+
+	protected <T> SingleValueQueryFilter<T> singleValueFilter(QueryCondition condition, T value) {
+		SingleValueQueryFilter<T> filter = new SingleValueQueryFilter<>();
+		filter.setCondition(condition);
+		filter.setValue(value);
+		return filter;
+	}
+
+	protected void doWithEntityManager(Consumer<EntityManager> c) {
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		entityManager.getTransaction().begin();
+
+		try {
+			c.accept(entityManager);
+		} finally {
+			entityManager.getTransaction().commit();
+			entityManager.close();
+		}
+	}
+
+}
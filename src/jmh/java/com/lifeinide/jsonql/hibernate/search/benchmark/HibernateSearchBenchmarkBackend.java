@@ -0,0 +1,70 @@
+package com.lifeinide.jsonql.hibernate.search.benchmark;
+
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkAssociatedEntity;
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkBackend;
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkEntity;
+import com.lifeinide.jsonql.hibernate.search.HibernateSearch;
+import com.lifeinide.jsonql.hibernate.search.bridge.BigDecimalRangeBridge;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.Factory;
+import org.hibernate.search.annotations.Norms;
+import org.hibernate.search.annotations.Store;
+import org.hibernate.search.cfg.Environment;
+import org.hibernate.search.cfg.SearchMapping;
+import org.hibernate.search.jpa.Search;
+
+import javax.persistence.EntityManager;
+import java.io.File;
+import java.lang.annotation.ElementType;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hibernate Search 5 backend of the benchmark corpus, mapping the benchmark entities the same way as {@code HibernateSearchEntity} from
+ * tests.
+ *
+ * @author Lukasz Frankowski
+ */
+public class HibernateSearchBenchmarkBackend implements BenchmarkBackend {
+
+	@Override
+	public Map<String, String> properties(File indexDir, boolean manualIndexing) {
+		Map<String, String> properties = new HashMap<>();
+		properties.put(Environment.MODEL_MAPPING, HibernateSearchBenchmarkBackend.class.getName());
+		properties.put("hibernate.search.default.indexBase", indexDir.getAbsolutePath());
+		if (manualIndexing)
+			properties.put("hibernate.search.indexing_strategy", "manual");
+		return properties;
+	}
+
+	@Override
+	public void index(EntityManager entityManager) throws InterruptedException {
+		Search.getFullTextEntityManager(entityManager).createIndexer(BenchmarkEntity.class, BenchmarkAssociatedEntity.class)
+			.startAndWait();
+	}
+
+	@Factory
+	public SearchMapping searchMapping() {
+		SearchMapping mapping = new SearchMapping();
+
+		mapping.entity(BenchmarkAssociatedEntity.class).indexed()
+			.property("q", ElementType.FIELD).field().name(HibernateSearch.FIELD_TEXT).analyzer(EnglishAnalyzer.class);
+
+		mapping.entity(BenchmarkEntity.class).indexed()
+			.property("q", ElementType.FIELD).field().name(HibernateSearch.FIELD_TEXT).analyzer(EnglishAnalyzer.class)
+			.property("number", ElementType.FIELD).field().name(HibernateSearch.FIELD_ID).analyze(Analyze.NO).norms(Norms.NO)
+			.property("stringVal", ElementType.FIELD).field().analyze(Analyze.NO).norms(Norms.NO).store(Store.YES)
+			.property("booleanVal", ElementType.FIELD).field().analyze(Analyze.NO).norms(Norms.NO).store(Store.YES)
+			.property("longVal", ElementType.FIELD).field().analyze(Analyze.NO).norms(Norms.NO).store(Store.YES)
+			.property("decimalVal", ElementType.FIELD).field().analyze(Analyze.NO).norms(Norms.NO).store(Store.YES)
+				.bridge(BigDecimalRangeBridge.class)
+			.property("dateVal", ElementType.FIELD).field().analyze(Analyze.NO).norms(Norms.NO).store(Store.YES)
+			.property("enumVal", ElementType.FIELD).field().analyze(Analyze.NO).norms(Norms.NO).store(Store.YES)
+			.property("entityVal", ElementType.FIELD).field().analyze(Analyze.NO).norms(Norms.NO).store(Store.YES)
+				.bridge(BenchmarkDomainFieldBridge.class);
+
+		return mapping;
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.lifeinide.jsonql.hibernate.search.benchmark;
+
+import com.lifeinide.jsonql.core.dto.BasePageableRequest;
+import com.lifeinide.jsonql.core.enums.QueryCondition;
+import com.lifeinide.jsonql.core.enums.QueryConjunction;
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkCorpus;
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkEntity;
+import com.lifeinide.jsonql.hibernate.search.DefaultHibernateSearchFilterQueryBuilder;
+import com.lifeinide.jsonql.hibernate.search.HibernateSearchFilterQueryBuilder;
+import org.hibernate.search.jpa.FullTextQuery;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static com.lifeinide.jsonql.hibernate.benchmark.BenchmarkState.*;
+
+/**
+ * Benchmarks the construction of {@link DefaultHibernateSearchFilterQueryBuilder} and compilation of each filter type, without touching
+ * the index.
+ *
+ * @author Lukasz Frankowski
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBuildingBenchmark {
+
+	@Benchmark
+	public DefaultHibernateSearchFilterQueryBuilder<BenchmarkEntity> construct(Session session) {
+		return newBuilder(session);
+	}
+
+	@Benchmark
+	public FullTextQuery singleValueFilter(Session session) {
+		return build(newBuilder(session).add("stringVal", singleValue(QueryCondition.eq, "s1")));
+	}
+
+	@Benchmark
+	public FullTextQuery listFilter(Session session) {
+		return build(newBuilder(session).add("stringVal", list(QueryConjunction.or, "s1", "s2", "s3", "s4", "s5")));
+	}
+
+	@Benchmark
+	public FullTextQuery valueRangeFilter(Session session) {
+		return build(newBuilder(session).add("decimalVal", valueRange(BigDecimal.ONE, BigDecimal.TEN)));
+	}
+
+	@Benchmark
+	public FullTextQuery dateRangeFilter(Session session) {
+		return build(newBuilder(session).add("dateVal", dateRange(LocalDate.of(2005, 1, 1), LocalDate.of(2006, 1, 1))));
+	}
+
+	@Benchmark
+	public FullTextQuery entityFilter(Session session) {
+		return build(newBuilder(session).add("entityVal", entity(1L)));
+	}
+
+	protected DefaultHibernateSearchFilterQueryBuilder<BenchmarkEntity> newBuilder(Session session) {
+		return new DefaultHibernateSearchFilterQueryBuilder<>(session.entityManager, BenchmarkEntity.class, BenchmarkCorpus.COMMON_WORD);
+	}
+
+	protected FullTextQuery build(HibernateSearchFilterQueryBuilder<BenchmarkEntity, ?> builder) {
+		return builder.build(BasePageableRequest.ofUnpaged(), BasePageableRequest.ofUnpaged());
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.lifeinide.jsonql.hibernate.search.benchmark;
+
+import com.lifeinide.jsonql.core.dto.BasePageableRequest;
+import com.lifeinide.jsonql.core.dto.Page;
+import com.lifeinide.jsonql.core.enums.QueryCondition;
+import com.lifeinide.jsonql.core.enums.QueryConjunction;
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkCorpus;
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkEntity;
+import com.lifeinide.jsonql.hibernate.search.DefaultHibernateSearchFilterQueryBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static com.lifeinide.jsonql.hibernate.benchmark.BenchmarkState.*;
+
+/**
+ * Mixed query workload executed concurrently by many threads sharing the same corpus index and {@code EntityManagerFactory}, each
+ * thread with its own {@code EntityManager}. Measures both the throughput and the latency distribution. To be run with different
+ * thread counts by {@link ScalabilityHarness}.
+ *
+ * @author Lukasz Frankowski
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScalabilityBenchmark {
+
+	@Benchmark
+	public Page<BenchmarkEntity> fullText(Session session) {
+		Page<BenchmarkEntity> page = newBuilder(session, BenchmarkCorpus.RARE_WORD).list(page(20, 1), null);
+		session.entityManager.clear();
+		return page;
+	}
+
+	@Benchmark
+	public Page<BenchmarkEntity> filtered(Session session) {
+		Page<BenchmarkEntity> page = newBuilder(session, BenchmarkCorpus.COMMON_WORD)
+			.add("stringVal", list(QueryConjunction.or, "s1", "s2", "s3"))
+			.add("decimalVal", valueRange(BigDecimal.ONE, BigDecimal.TEN))
+			.list(page(20, 1), null);
+		session.entityManager.clear();
+		return page;
+	}
+
+	@Benchmark
+	public Page<BenchmarkEntity> paged(Session session) {
+		Page<BenchmarkEntity> page = newBuilder(session, BenchmarkCorpus.COMMON_WORD)
+			.add("entityVal", entity(1L))
+			.list(page(20, 50), null);
+		session.entityManager.clear();
+		return page;
+	}
+
+	@Benchmark
+	public int counted(Session session) {
+		return newBuilder(session, BenchmarkCorpus.COMMON_WORD)
+			.add("stringVal", singleValue(QueryCondition.ne, "s1"))
+			.build(BasePageableRequest.ofUnpaged(), BasePageableRequest.ofUnpaged())
+			.getResultSize();
+	}
+
+	protected DefaultHibernateSearchFilterQueryBuilder<BenchmarkEntity> newBuilder(Session session, String q) {
+		return new DefaultHibernateSearchFilterQueryBuilder<>(session.entityManager, BenchmarkEntity.class, q);
+	}
+
+}
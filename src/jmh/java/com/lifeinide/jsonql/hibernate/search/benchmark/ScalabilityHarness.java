@@ -0,0 +1,149 @@
+package com.lifeinide.jsonql.hibernate.search.benchmark;
+
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkCorpus;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.StackProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.util.Statistics;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Runs {@link ScalabilityBenchmark} with increasing number of threads and reports for each thread count, workload and benchmark
+ * parameters the throughput, the scaling relative to the lowest thread count (the single thread by default), p50/p99 latencies, and the
+ * hottest stacks sampled with {@link StackProfiler}, which indicate the contention hot spots. Full results for each thread count are
+ * written in JSON format to the results directory.
+ *
+ * <p>
+ * Configured with system properties (see {@code gradle scalability} task):
+ * {@code jsonql.benchmark.threads} (default {@code 1,2,4,8}), {@code jsonql.benchmark.rows} (default {@code 100000}),
+ * {@code jsonql.benchmark.corpusDir} and {@code jsonql.benchmark.resultsDir}.
+ * </p>
+ *
+ * @author Lukasz Frankowski
+ */
+public class ScalabilityHarness {
+
+	public static final String THREADS_PROPERTY = "jsonql.benchmark.threads";
+	public static final String ROWS_PROPERTY = "jsonql.benchmark.rows";
+	public static final String RESULTS_DIR_PROPERTY = "jsonql.benchmark.resultsDir";
+
+	public static void main(String[] args) throws RunnerException {
+		String corpusDir = System.getProperty(BenchmarkCorpus.CORPUS_DIR_PROPERTY, "build/jmh-corpus");
+		File resultsDir = new File(System.getProperty(RESULTS_DIR_PROPERTY, "build/reports/jmh/scalability"));
+		String rows = System.getProperty(ROWS_PROPERTY, "100000");
+		resultsDir.mkdirs();
+
+		SortedMap<Integer, Collection<RunResult>> results = new TreeMap<>();
+		for (String threads: System.getProperty(THREADS_PROPERTY, "1,2,4,8").split(",")) {
+			int threadCount = Integer.parseInt(threads.trim());
+
+			Options options = new OptionsBuilder()
+				.include(ScalabilityBenchmark.class.getName())
+				.threads(threadCount)
+				.param("rows", rows.split(","))
+				.jvmArgsAppend(String.format("-D%s=%s", BenchmarkCorpus.CORPUS_DIR_PROPERTY, corpusDir))
+				.addProfiler(StackProfiler.class, "lines=5;top=10;detailLine=true")
+				.resultFormat(ResultFormatType.JSON)
+				.result(new File(resultsDir, String.format("scalability-threads-%d.json", threadCount)).getPath())
+				.build();
+
+			results.put(threadCount, new Runner(options).run());
+		}
+
+		System.out.print(report(results));
+	}
+
+	/**
+	 * @param results The results by thread count, sorted ascending. The scores of the lowest thread count are the scaling baseline.
+	 */
+	protected static String report(SortedMap<Integer, Collection<RunResult>> results) {
+		String scaling = results.isEmpty() ? "scaling" : String.format("vs %dt", results.firstKey());
+		StringBuilder sb = new StringBuilder(String.format("%n%-60s %8s %14s %8s %10s %10s%n", "benchmark", "threads", "ops/ms",
+			scaling, "p50 ms", "p99 ms"));
+		Map<String, Double> baselineScores = new LinkedHashMap<>();
+		List<String> hotSpots = new ArrayList<>();
+
+		for (Map.Entry<Integer, Collection<RunResult>> entry: results.entrySet()) {
+			Map<String, RunResult> throughput = new LinkedHashMap<>();
+			Map<String, RunResult> sampleTime = new LinkedHashMap<>();
+
+			for (RunResult runResult: entry.getValue()) {
+				BenchmarkParams params = runResult.getParams();
+				switch (params.getMode()) {
+					case Throughput:
+						throughput.put(benchmarkKey(params), runResult);
+						break;
+					case SampleTime:
+						sampleTime.put(benchmarkKey(params), runResult);
+						break;
+				}
+			}
+
+			for (Map.Entry<String, RunResult> benchmark: throughput.entrySet()) {
+				double score = benchmark.getValue().getPrimaryResult().getScore();
+				// a benchmark missing in the baseline run has no scaling
+				double baseline = entry.getKey().equals(results.firstKey())
+					? baselineScores.computeIfAbsent(benchmark.getKey(), k -> score)
+					: baselineScores.getOrDefault(benchmark.getKey(), Double.NaN);
+
+				double p50 = Double.NaN, p99 = Double.NaN;
+				RunResult latency = sampleTime.get(benchmark.getKey());
+				if (latency!=null) {
+					Statistics statistics = latency.getPrimaryResult().getStatistics();
+					p50 = statistics.getPercentile(50);
+					p99 = statistics.getPercentile(99);
+				}
+
+				sb.append(String.format("%-60s %8d %14.3f %8.2f %10.3f %10.3f%n", benchmark.getKey(), entry.getKey(), score,
+					score / baseline, p50, p99));
+
+				for (String label: benchmark.getValue().getSecondaryResults().keySet())
+					if (label.contains("stack")) {
+						Result<?> stack = benchmark.getValue().getSecondaryResults().get(label);
+						hotSpots.add(String.format("%n--- %s, %d threads ---%n%s", benchmark.getKey(), entry.getKey(),
+							stack.extendedInfo()));
+					}
+			}
+		}
+
+		sb.append(String.format("%nContention hot spots:%n"));
+		for (String hotSpot: hotSpots)
+			sb.append(hotSpot);
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the short benchmark name with its parameters, like {@code ScalabilityBenchmark.fullText(rows=100000)}, identifying the
+	 * results of the same benchmark across the thread counts.
+	 */
+	protected static String benchmarkKey(BenchmarkParams params) {
+		String benchmark = params.getBenchmark();
+		StringBuilder sb = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+
+		if (!params.getParamsKeys().isEmpty()) {
+			StringJoiner joiner = new StringJoiner(",", "(", ")");
+			for (String key: params.getParamsKeys())
+				joiner.add(String.format("%s=%s", key, params.getParam(key)));
+			sb.append(joiner);
+		}
+
+		return sb.toString();
+	}
+
+}
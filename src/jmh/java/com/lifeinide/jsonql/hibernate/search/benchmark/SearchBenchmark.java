@@ -0,0 +1,93 @@
+package com.lifeinide.jsonql.hibernate.search.benchmark;
+
+import com.lifeinide.jsonql.core.dto.BasePageableRequest;
+import com.lifeinide.jsonql.core.dto.Page;
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkCorpus;
+import com.lifeinide.jsonql.hibernate.benchmark.BenchmarkEntity;
+import com.lifeinide.jsonql.hibernate.search.DefaultHibernateSearchFilterQueryBuilder;
+import com.lifeinide.jsonql.hibernate.search.FieldSearchStrategy;
+import com.lifeinide.jsonql.hibernate.search.HibernateSearch;
+import org.hibernate.search.engine.ProjectionConstants;
+import org.hibernate.search.jpa.FullTextQuery;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.lifeinide.jsonql.hibernate.benchmark.BenchmarkState.*;
+
+/**
+ * Benchmarks searching the corpus: phrase vs wildcard search, paging depth, counting and hydration of results.
+ *
+ * @author Lukasz Frankowski
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Paging {
+
+		@Param({"1", "10", "100", "1000"})
+		public int page;
+
+		@Param({"20", "100"})
+		public int pageSize;
+
+	}
+
+	@Benchmark
+	public Page<BenchmarkEntity> phraseSearch(Session session) {
+		Page<BenchmarkEntity> page = new DefaultHibernateSearchFilterQueryBuilder<>(session.entityManager, BenchmarkEntity.class,
+			BenchmarkCorpus.RARE_WORD, Collections.singletonMap(HibernateSearch.FIELD_TEXT, FieldSearchStrategy.DEFAULT))
+			.list(page(20, 1), null);
+		session.entityManager.clear();
+		return page;
+	}
+
+	@Benchmark
+	public Page<BenchmarkEntity> wildcardSearch(Session session) {
+		Page<BenchmarkEntity> page = new DefaultHibernateSearchFilterQueryBuilder<>(session.entityManager, BenchmarkEntity.class,
+			BenchmarkCorpus.NUMBER_PREFIX, Collections.singletonMap(HibernateSearch.FIELD_ID, FieldSearchStrategy.WILDCARD_PHRASE))
+			.list(page(20, 1), null);
+		session.entityManager.clear();
+		return page;
+	}
+
+	@Benchmark
+	public Page<BenchmarkEntity> paging(Session session, Paging paging) {
+		Page<BenchmarkEntity> page = newBuilder(session).list(page(paging.pageSize, paging.page), null);
+		session.entityManager.clear();
+		return page;
+	}
+
+	@Benchmark
+	public int count(Session session) {
+		return build(newBuilder(session)).getResultSize();
+	}
+
+	/**
+	 * Searches a page of ids only, to be compared with {@link #paging} to get the cost of hydration.
+	 */
+	@Benchmark
+	public List<?> idsOnly(Session session, Paging paging) {
+		FullTextQuery query = build(newBuilder(session));
+		query.setProjection(ProjectionConstants.ID);
+		query.setFirstResult((paging.page - 1) * paging.pageSize);
+		query.setMaxResults(paging.pageSize);
+		return query.getResultList();
+	}
+
+	protected DefaultHibernateSearchFilterQueryBuilder<BenchmarkEntity> newBuilder(Session session) {
+		return new DefaultHibernateSearchFilterQueryBuilder<>(session.entityManager, BenchmarkEntity.class, BenchmarkCorpus.COMMON_WORD);
+	}
+
+	protected FullTextQuery build(DefaultHibernateSearchFilterQueryBuilder<BenchmarkEntity> builder) {
+		return builder.build(BasePageableRequest.ofUnpaged(), BasePageableRequest.ofUnpaged());
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.lifeinide.jsonql.hibernate.benchmark;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * An entity associated with {@link BenchmarkEntity}, indexed with its {@code q} full text field.
+ *
+ * @author Lukasz Frankowski
+ */
+@Entity
+public class BenchmarkAssociatedEntity {
+
+	@Id private Long id;
+
+	protected String q;
+
+	public BenchmarkAssociatedEntity() {
+	}
+
+	public BenchmarkAssociatedEntity(Long id, String q) {
+		this.id = id;
+		this.q = q;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getQ() {
+		return q;
+	}
+
+	public void setQ(String q) {
+		this.q = q;
+	}
+
+}
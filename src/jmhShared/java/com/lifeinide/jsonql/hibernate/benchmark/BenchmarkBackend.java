@@ -0,0 +1,35 @@
+package com.lifeinide.jsonql.hibernate.benchmark;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.File;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * The search backend of {@link BenchmarkCorpus}, mapping {@link BenchmarkEntity} and {@link BenchmarkAssociatedEntity} to the index and
+ * building the index. Each benchmarked module provides its implementation as a {@link ServiceLoader} service.
+ *
+ * @author Lukasz Frankowski
+ */
+public interface BenchmarkBackend {
+
+	/**
+	 * Returns the persistence unit properties configuring the index mapping and the index location.
+	 * @param indexDir The directory of the index files.
+	 * @param manualIndexing Whether the automatic indexing of persisted entities should be disabled.
+	 */
+	Map<String, String> properties(File indexDir, boolean manualIndexing);
+
+	/**
+	 * Indexes all entities of the corpus.
+	 */
+	void index(EntityManager entityManager) throws InterruptedException;
+
+	/**
+	 * Configures the search of the opened {@link EntityManagerFactory}, for example registers the bridges of the programmatic mapping.
+	 */
+	default void opened(EntityManagerFactory entityManagerFactory) {
+	}
+
+}
@@ -0,0 +1,10 @@
+package com.lifeinide.jsonql.hibernate.benchmark;
+
+/**
+ * @author Lukasz Frankowski
+ */
+public enum BenchmarkCategory {
+
+	ALPHA, BETA, GAMMA, DELTA, EPSILON;
+
+}
@@ -0,0 +1,182 @@
+package com.lifeinide.jsonql.hibernate.benchmark;
+
+import org.apache.commons.io.FileUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.ServiceLoader;
+import java.util.function.Consumer;
+
+/**
+ * Synthetic corpus of {@link BenchmarkEntity} documents stored in H2 file database and local filesystem index. The corpus is generated
+ * once per size into {@code jsonql.benchmark.corpusDir} directory and reused by subsequent benchmark runs. The documents are the same
+ * for all search backends, and the index is built by the {@link BenchmarkBackend} found on the classpath.
+ *
+ * @author Lukasz Frankowski
+ */
+public class BenchmarkCorpus {
+
+	public static final String PERSISTENCE_UNIT_NAME = "jmh-jpa";
+	public static final String CORPUS_DIR_PROPERTY = "jsonql.benchmark.corpusDir";
+	public static final String READY_MARKER = "corpus.ready";
+
+	/** The word contained in every document **/
+	public static final String COMMON_WORD = "nowhere";
+
+	/** The word contained in every hundredth document **/
+	public static final String RARE_WORD = "middle";
+
+	/** The prefix of {@link BenchmarkEntity#getNumber()} for wildcard searches, matching every tenth document **/
+	public static final String NUMBER_PREFIX = "INV/7";
+
+	public static final int ASSOCIATED_RATIO = 100;
+	public static final int BATCH_SIZE = 1000;
+	public static final long SEED = 42;
+
+	protected static final String[] WORDS = {
+		"apple", "river", "stone", "cloud", "forest", "silver", "window", "garden", "winter", "summer", "engine", "letter", "market",
+		"planet", "bridge", "castle", "desert", "island", "valley", "harbor", "meadow", "canyon", "glacier", "lantern", "compass",
+		"anchor", "feather", "thunder", "orchard", "village"
+	};
+
+	protected final int rows;
+	protected final File dir;
+	protected final BenchmarkBackend backend;
+
+	public BenchmarkCorpus(int rows) {
+		this.rows = rows;
+		this.dir = new File(System.getProperty(CORPUS_DIR_PROPERTY, "build/jmh-corpus"), String.valueOf(rows));
+
+		Iterator<BenchmarkBackend> backends = ServiceLoader.load(BenchmarkBackend.class).iterator();
+		if (!backends.hasNext())
+			throw new IllegalStateException(String.format("No %s found on the classpath", BenchmarkBackend.class.getSimpleName()));
+		this.backend = backends.next();
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getAssociatedCount() {
+		return Math.max(1, rows / ASSOCIATED_RATIO);
+	}
+
+	/**
+	 * Opens {@link EntityManagerFactory} for the corpus, generating it first if it doesn't exist yet.
+	 */
+	public EntityManagerFactory open() {
+		if (!new File(dir, READY_MARKER).exists())
+			generate();
+
+		EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT_NAME, properties(false));
+		backend.opened(entityManagerFactory);
+		return entityManagerFactory;
+	}
+
+	protected Map<String, String> properties(boolean manualIndexing) {
+		Map<String, String> properties = new HashMap<>(backend.properties(new File(dir, "index"), manualIndexing));
+		properties.put("javax.persistence.jdbc.url", String.format("jdbc:h2:file:%s", new File(dir, "db").getAbsolutePath()));
+		return properties;
+	}
+
+	protected void generate() {
+		try {
+			FileUtils.deleteDirectory(dir);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		// rows are inserted without indexing, and then indexed in bulk with the mass indexer
+		EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT_NAME, properties(true));
+		try {
+			Random random = new Random(SEED);
+
+			doInTransaction(entityManagerFactory, em -> {
+				for (long id = 1; id <= getAssociatedCount(); id++)
+					em.persist(new BenchmarkAssociatedEntity(id, sentence(random, 4)));
+			});
+
+			for (long batchStart = 1; batchStart <= rows; batchStart += BATCH_SIZE) {
+				long batchEnd = Math.min(rows, batchStart + BATCH_SIZE - 1);
+				long from = batchStart;
+				doInTransaction(entityManagerFactory, em -> {
+					for (long id = from; id <= batchEnd; id++)
+						em.persist(buildEntity(em, random, id));
+				});
+			}
+		} finally {
+			entityManagerFactory.close();
+		}
+
+		entityManagerFactory = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT_NAME, properties(false));
+		try {
+			EntityManager em = entityManagerFactory.createEntityManager();
+			try {
+				backend.index(em);
+			} finally {
+				em.close();
+			}
+
+			FileUtils.touch(new File(dir, READY_MARKER));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			entityManagerFactory.close();
+		}
+	}
+
+	protected BenchmarkEntity buildEntity(EntityManager em, Random random, long id) {
+		BenchmarkEntity entity = new BenchmarkEntity(id);
+
+		String q = sentence(random, 6) + " " + COMMON_WORD;
+		if (id % 100 == 0)
+			q += " " + RARE_WORD;
+		entity.setQ(q);
+
+		entity.setNumber(String.format("INV/%d/%d", id % 10, id));
+		entity.setStringVal("s" + (id % 1000));
+		entity.setBooleanVal(id % 2 == 0);
+		entity.setLongVal(id % 10000);
+		entity.setDecimalVal(BigDecimal.valueOf(id % 100000, 2));
+		entity.setDateVal(LocalDate.of(2000, 1, 1).plusDays(id % 7300));
+		entity.setEnumVal(BenchmarkCategory.values()[(int) (id % BenchmarkCategory.values().length)]);
+		entity.setEntityVal(em.getReference(BenchmarkAssociatedEntity.class, id % getAssociatedCount() + 1));
+
+		return entity;
+	}
+
+	protected static String sentence(Random random, int words) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < words; i++) {
+			if (i > 0)
+				sb.append(' ');
+			sb.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return sb.toString();
+	}
+
+	protected static void doInTransaction(EntityManagerFactory entityManagerFactory, Consumer<EntityManager> c) {
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		entityManager.getTransaction().begin();
+
+		try {
+			c.accept(entityManager);
+		} finally {
+			entityManager.getTransaction().commit();
+			entityManager.close();
+		}
+	}
+
+}
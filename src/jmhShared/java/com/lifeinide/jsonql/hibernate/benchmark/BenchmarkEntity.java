@@ -0,0 +1,125 @@
+package com.lifeinide.jsonql.hibernate.benchmark;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * A document of the synthetic benchmark corpus. The entity is shared by the benchmarks of all search backends, and each backend maps
+ * it to the index programmatically (see {@link BenchmarkBackend}), the same way as its test entity is mapped with annotations.
+ *
+ * @author Lukasz Frankowski
+ */
+@Entity
+public class BenchmarkEntity {
+
+	@Id private Long id;
+
+	protected String q;
+
+	protected String number;
+
+	protected String stringVal;
+
+	protected boolean booleanVal;
+
+	protected Long longVal;
+
+	protected BigDecimal decimalVal;
+
+	protected LocalDate dateVal;
+
+	@Enumerated(EnumType.STRING)
+	protected BenchmarkCategory enumVal;
+
+	@ManyToOne(fetch = FetchType.LAZY)
+	protected BenchmarkAssociatedEntity entityVal;
+
+	public BenchmarkEntity() {
+	}
+
+	public BenchmarkEntity(Long id) {
+		this.id = id;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getQ() {
+		return q;
+	}
+
+	public void setQ(String q) {
+		this.q = q;
+	}
+
+	public String getNumber() {
+		return number;
+	}
+
+	public void setNumber(String number) {
+		this.number = number;
+	}
+
+	public String getStringVal() {
+		return stringVal;
+	}
+
+	public void setStringVal(String stringVal) {
+		this.stringVal = stringVal;
+	}
+
+	public boolean isBooleanVal() {
+		return booleanVal;
+	}
+
+	public void setBooleanVal(boolean booleanVal) {
+		this.booleanVal = booleanVal;
+	}
+
+	public Long getLongVal() {
+		return longVal;
+	}
+
+	public void setLongVal(Long longVal) {
+		this.longVal = longVal;
+	}
+
+	public BigDecimal getDecimalVal() {
+		return decimalVal;
+	}
+
+	public void setDecimalVal(BigDecimal decimalVal) {
+		this.decimalVal = decimalVal;
+	}
+
+	public LocalDate getDateVal() {
+		return dateVal;
+	}
+
+	public void setDateVal(LocalDate dateVal) {
+		this.dateVal = dateVal;
+	}
+
+	public BenchmarkCategory getEnumVal() {
+		return enumVal;
+	}
+
+	public void setEnumVal(BenchmarkCategory enumVal) {
+		this.enumVal = enumVal;
+	}
+
+	public BenchmarkAssociatedEntity getEntityVal() {
+		return entityVal;
+	}
+
+	public void setEntityVal(BenchmarkAssociatedEntity entityVal) {
+		this.entityVal = entityVal;
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.lifeinide.jsonql.hibernate.benchmark;
+
+import com.lifeinide.jsonql.core.dto.DefaultPageableRequest;
+import com.lifeinide.jsonql.core.enums.QueryCondition;
+import com.lifeinide.jsonql.core.enums.QueryConjunction;
+import com.lifeinide.jsonql.core.filters.*;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared JMH states and fixtures for benchmarks of all search backends.
+ *
+ * @author Lukasz Frankowski
+ */
+public class BenchmarkState {
+
+	/**
+	 * The corpus shared by all benchmark threads. The size is configured with {@code -PjmhRows=...}.
+	 */
+	@State(Scope.Benchmark)
+	public static class Corpus {
+
+		@Param({"100000"})
+		public int rows;
+
+		public EntityManagerFactory entityManagerFactory;
+
+		@Setup(Level.Trial)
+		public void open() {
+			entityManagerFactory = new BenchmarkCorpus(rows).open();
+		}
+
+		@TearDown(Level.Trial)
+		public void close() {
+			if (entityManagerFactory!=null)
+				entityManagerFactory.close();
+		}
+
+	}
+
+	/**
+	 * Per-thread {@link EntityManager} with an open transaction, as used in a typical request.
+	 */
+	@State(Scope.Thread)
+	public static class Session {
+
+		public EntityManager entityManager;
+
+		@Setup(Level.Iteration)
+		public void open(Corpus corpus) {
+			entityManager = corpus.entityManagerFactory.createEntityManager();
+			entityManager.getTransaction().begin();
+		}
+
+		@TearDown(Level.Iteration)
+		public void close() {
+			entityManager.getTransaction().commit();
+			entityManager.close();
+		}
+
+	}
+
+	public static DefaultPageableRequest page(int pageSize, int page) {
+		DefaultPageableRequest request = new DefaultPageableRequest();
+		request.setPageSize(pageSize);
+		request.setPage(page);
+		return request;
+	}
+
+	public static <T> SingleValueQueryFilter<T> singleValue(QueryCondition condition, T value) {
+		SingleValueQueryFilter<T> filter = new SingleValueQueryFilter<>();
+		filter.setCondition(condition);
+		filter.setValue(value);
+		return filter;
+	}
+
+	public static ListQueryFilter<SingleValueQueryFilter<?>> list(QueryConjunction conjunction, Object... values) {
+		List<SingleValueQueryFilter<?>> filters = new ArrayList<>();
+		for (Object value: values)
+			filters.add(singleValue(QueryCondition.eq, value));
+
+		ListQueryFilter<SingleValueQueryFilter<?>> filter = new ListQueryFilter<>();
+		filter.setConjunction(conjunction);
+		filter.setFilters(filters);
+		return filter;
+	}
+
+	public static ValueRangeQueryFilter<BigDecimal> valueRange(BigDecimal from, BigDecimal to) {
+		ValueRangeQueryFilter<BigDecimal> filter = new ValueRangeQueryFilter<>();
+		filter.setFrom(from);
+		filter.setTo(to);
+		return filter;
+	}
+
+	public static DateRangeQueryFilter dateRange(LocalDate from, LocalDate to) {
+		DateRangeQueryFilter filter = new DateRangeQueryFilter();
+		filter.setFrom(from);
+		filter.setTo(to);
+		return filter;
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public static EntityQueryFilter<?> entity(Object id) {
+		EntityQueryFilter filter = new EntityQueryFilter();
+		filter.setCondition(QueryCondition.eq);
+		filter.setValue(id);
+		return filter;
+	}
+
+}
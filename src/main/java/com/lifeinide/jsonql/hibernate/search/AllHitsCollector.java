@@ -0,0 +1,59 @@
+package com.lifeinide.jsonql.hibernate.search;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.SimpleCollector;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Collects all hits with their scores, for the unpaged queries where the priority queue of the top hits collector would need to be
+ * sized for all documents in the index. The memory usage grows with the number of hits instead.
+ *
+ * @author Lukasz Frankowski
+ */
+public class AllHitsCollector extends SimpleCollector {
+
+	protected List<ScoreDoc> hits = new ArrayList<>();
+	protected Scorer scorer;
+	protected int docBase;
+
+	/**
+	 * Merges the hits of the collectors of all searched slices of the index, ordered by the score the same way as the top hits.
+	 */
+	@Nonnull
+	public static List<ScoreDoc> merge(@Nonnull Collection<AllHitsCollector> collectors) {
+		List<ScoreDoc> hits = new ArrayList<>();
+		for (AllHitsCollector collector: collectors)
+			hits.addAll(collector.hits);
+
+		hits.sort((a, b) -> a.score!=b.score ? Float.compare(b.score, a.score) : Integer.compare(a.doc, b.doc));
+		return hits;
+	}
+
+	@Override
+	protected void doSetNextReader(LeafReaderContext context) throws IOException {
+		docBase = context.docBase;
+	}
+
+	@Override
+	public void setScorer(Scorer scorer) throws IOException {
+		this.scorer = scorer;
+	}
+
+	@Override
+	public void collect(int doc) throws IOException {
+		hits.add(new ScoreDoc(docBase + doc, scorer.score()));
+	}
+
+	@Override
+	public boolean needsScores() {
+		return true;
+	}
+
+}
@@ -5,13 +5,37 @@ import com.lifeinide.jsonql.core.dto.BasePageableRequest;
 import com.lifeinide.jsonql.core.dto.Page;
 import com.lifeinide.jsonql.core.intr.Pageable;
 import com.lifeinide.jsonql.core.intr.Sortable;
+import com.lifeinide.jsonql.hibernate.search.indexing.ConsistencyToken;
+import com.lifeinide.jsonql.hibernate.search.sharding.FieldShardIdentifierProvider;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.hibernate.search.exception.SearchException;
 import org.hibernate.search.jpa.FullTextQuery;
 import org.slf4j.Logger;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.persistence.QueryTimeoutException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
 
 /**
  * @author Lukasz Frankowski
@@ -23,6 +47,188 @@ public abstract class BaseHibernateSearchFilterQueryBuilder<
 	SELF extends BaseHibernateSearchFilterQueryBuilder<E, P, C, SELF>
 > extends BaseFilterQueryBuilder<E, P, FullTextQuery, C, SELF> {
 
+	protected Long timeout = null;
+	protected TimeUnit timeoutUnit = null;
+	protected QueryTimeoutStrategy timeoutStrategy = QueryTimeoutStrategy.FAIL;
+	protected boolean partialResults = false;
+	protected long deadline = 0;
+	protected boolean exactCount = false;
+	protected boolean approximateCount = false;
+	protected String shard = null;
+	protected ExecutorService searchExecutor = null;
+	protected HibernateSearchResultCache resultCache = null;
+	protected String collapseField = null;
+	protected ConsistencyToken consistencyToken = null;
+	protected long consistencyTimeout = 0;
+	protected TimeUnit consistencyTimeoutUnit = null;
+	protected boolean staleResults = false;
+	protected Map<Serializable, Long> collapsedCounts = new LinkedHashMap<>();
+
+	/**
+	 * Limits the execution time of the query. Depending on the {@code strategy} the query either fails with
+	 * {@link QueryTimeoutException} or returns the results collected until the time budget has been exceeded. The time budget applies
+	 * to all ways of the execution, including the queries executed directly on the index and {@link #ids}.
+	 *
+	 * @see #hasPartialResults()
+	 */
+	@Nonnull
+	@SuppressWarnings("unchecked")
+	public SELF withTimeout(long timeout, @Nonnull TimeUnit timeUnit, @Nonnull QueryTimeoutStrategy strategy) {
+		this.timeout = timeout;
+		this.timeoutUnit = timeUnit;
+		this.timeoutStrategy = strategy;
+		return (SELF) this;
+	}
+
+	/**
+	 * Returns {@code true} if the last executed query has been stopped by {@link QueryTimeoutStrategy#PARTIAL_RESULTS} time budget, and
+	 * the returned page (or the streamed ids) contains only the results collected until then.
+	 */
+	public boolean hasPartialResults() {
+		return partialResults;
+	}
+
+	/**
+	 * Makes the queries sorted in the {@link SortedIndex} order count all results exactly, in the same pass collecting the page. By
+	 * default the collection stops in each sorted segment as soon as the page is filled, and the page count of such queries is only a
+	 * lower bound of the number of results.
+	 *
+	 * @see #hasApproximateCount()
+	 */
+	@Nonnull
+	@SuppressWarnings("unchecked")
+	public SELF withExactCount() {
+		this.exactCount = true;
+		return (SELF) this;
+	}
+
+	/**
+	 * Returns {@code true} if the page count of the last executed query is only a lower bound of the number of results, because the
+	 * collection of {@link SortedIndex sorted} index segments has been stopped as soon as the page was filled.
+	 *
+	 * @see #withExactCount()
+	 */
+	public boolean hasApproximateCount() {
+		return approximateCount;
+	}
+
+	/**
+	 * Routes the query to the single index shard, when the entity index is sharded with {@link FieldShardIdentifierProvider}. The
+	 * queries routed to the shard are always executed with {@link FullTextQuery}, and the features searching the index directly,
+	 * like {@link #ids} and {@link #collapse}, throw {@link SearchException}.
+	 */
+	@Nonnull
+	@SuppressWarnings("unchecked")
+	public SELF withShard(@Nullable Object shard) {
+		this.shard = shard==null ? null : shard.toString();
+		return (SELF) this;
+	}
+
+	/**
+	 * Searches all index segments and shards of the entity in parallel using given executor, and merges the top results and counts.
+	 * This applies only to the unsorted queries and the queries sorted in the {@link SortedIndex} order, not routed to a single shard
+	 * with {@link #withShard}. The global search doesn't support it.
+	 */
+	@Nonnull
+	@SuppressWarnings("unchecked")
+	public SELF withParallelSearch(@Nullable ExecutorService executor) {
+		this.searchExecutor = executor;
+		return (SELF) this;
+	}
+
+	/**
+	 * Caches the entity ids and the total count of the results in given cache, so that identical queries on unchanged index only
+	 * load the entities by ids, skipping the search. This applies only to the unsorted and not {@link #collapse collapsed} queries
+	 * not routed to a single shard with {@link #withShard}, and all other queries are executed bypassing the cache. The results
+	 * stopped by the {@link #withTimeout time budget} are not cached. The global search doesn't support it.
+	 */
+	@Nonnull
+	@SuppressWarnings("unchecked")
+	public SELF withResultCache(@Nullable HibernateSearchResultCache resultCache) {
+		this.resultCache = resultCache;
+		return (SELF) this;
+	}
+
+	/**
+	 * Makes the query wait before the execution until the changes identified by the token are indexed, but not longer than the
+	 * {@code timeout}. If the wait times out or any of the changes failed to be indexed, the query is executed anyway and the result is
+	 * flagged with {@link #hasStaleResults()}. The queries without the token are executed immediately.
+	 *
+	 * @see com.lifeinide.jsonql.hibernate.search.indexing.AsyncIndexer
+	 */
+	@Nonnull
+	@SuppressWarnings("unchecked")
+	public SELF withConsistency(@Nullable ConsistencyToken token, long timeout, @Nonnull TimeUnit timeUnit) {
+		this.consistencyToken = token;
+		this.consistencyTimeout = timeout;
+		this.consistencyTimeoutUnit = timeUnit;
+		return (SELF) this;
+	}
+
+	/**
+	 * Returns {@code true} if the last query has been executed before the changes identified by the
+	 * {@link #withConsistency consistency token} were indexed.
+	 */
+	public boolean hasStaleResults() {
+		return staleResults;
+	}
+
+	/**
+	 * Resets the state of the previous execution, waits for the consistency and starts the time budget of the query.
+	 */
+	protected void beginExecution() {
+		partialResults = false;
+		approximateCount = false;
+		awaitConsistency();
+		if (timeout!=null)
+			deadline = System.nanoTime() + timeoutUnit.toNanos(timeout);
+	}
+
+	/**
+	 * Waits for the changes identified by the consistency token to be indexed.
+	 */
+	protected void awaitConsistency() {
+		staleResults = false;
+		if (consistencyToken==null || consistencyToken.isIndexed())
+			return;
+
+		try {
+			staleResults = !consistencyToken.await(consistencyTimeout, consistencyTimeoutUnit);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			staleResults = true;
+		}
+
+		if (staleResults)
+			logger().warn("Executing query before the changes: {} are indexed", consistencyToken);
+	}
+
+	/**
+	 * Collapses the results by the value of a single-valued filter field, returning only the best hit for each distinct value (the
+	 * documents without the value form a single group). The groups are ordered by the score of their best hit, or by the requested
+	 * sort when it's the {@link SortedIndex} order, and the page count is the number of groups. The field needs to be indexed with
+	 * numeric or sorted doc values (for example with {@link org.hibernate.search.annotations.SortableField}), otherwise
+	 * {@link SearchException} is thrown from the query execution. It's thrown as well if the query is sorted otherwise, routed to
+	 * a single shard with {@link #withShard}, or executed with the global query builder, which doesn't support collapsing.
+	 *
+	 * @see #getCollapsedCounts()
+	 */
+	@Nonnull
+	@SuppressWarnings("unchecked")
+	public SELF collapse(@Nullable String field) {
+		this.collapseField = field;
+		return (SELF) this;
+	}
+
+	/**
+	 * Returns the number of hits collapsed into each result of the last {@link #collapse collapsed} query, keyed by the id of the
+	 * returned entity.
+	 */
+	@Nonnull
+	public Map<Serializable, Long> getCollapsedCounts() {
+		return collapsedCounts;
+	}
+
 	@SuppressWarnings({"unchecked", "ConstantConditions"})
 	protected <T> Page<T> execute(Pageable pageable, Sortable<?> sortable, Consumer<FullTextQuery> queryCustomizer,
 								  Function<List<?>, List<T>> resultsTransformer) {
@@ -31,10 +237,43 @@ public abstract class BaseHibernateSearchFilterQueryBuilder<
 		if (sortable==null)
 			sortable = BasePageableRequest.ofUnpaged();
 
-		FullTextQuery fullTextQuery = build(pageable, sortable);
+		beginExecution();
+		Query query = buildLuceneQuery();
+		if (isEmptyQuery(query))
+			return buildPageableResult(getPageSize(pageable), pageable.getPage(), 0, new ArrayList<>());
+
+		SortedIndex sortedIndex = context().getSortedIndex();
+		if (collapseField!=null) {
+			if (shard!=null || queryCustomizer!=null)
+				throw new SearchException(String.format("Collapsed query can't be routed to the shard or customized: %s", query));
+			if (!isUnsorted(sortable) && !SortedIndexSupport.matches(sortedIndex, sortable))
+				throw new SearchException(String.format("Collapsed query can be sorted only in the sorted index order: %s", query));
+
+			return executeCollapsed(query, pageable, isUnsorted(sortable) ? null : SortedIndexSupport.toSort(sortedIndex),
+				resultsTransformer);
+		}
+
+		if (SortedIndexSupport.matches(sortedIndex, sortable) && shard==null && queryCustomizer==null)
+			return executeSorted(query, pageable, sortedIndex, resultsTransformer);
+
+		if ((searchExecutor!=null || resultCache!=null) && shard==null && queryCustomizer==null && isUnsorted(sortable))
+			return executeDirect(query, pageable, resultsTransformer);
+
+		FullTextQuery fullTextQuery = build(query, pageable, sortable);
 		if (queryCustomizer!=null)
 			queryCustomizer.accept(fullTextQuery);
 
+		if (shard!=null)
+			fullTextQuery.enableFullTextFilter(FieldShardIdentifierProvider.FILTER_NAME)
+				.setParameter(FieldShardIdentifierProvider.FILTER_PARAMETER, shard);
+
+		if (timeout!=null) {
+			if (QueryTimeoutStrategy.PARTIAL_RESULTS.equals(timeoutStrategy))
+				fullTextQuery.limitExecutionTimeTo(timeout, timeoutUnit);
+			else
+				fullTextQuery.setTimeout(timeout, timeoutUnit);
+		}
+
 		if (logger().isTraceEnabled())
 			logger().trace("Executing full text query: {}", fullTextQuery.toString());
 
@@ -50,10 +289,323 @@ public abstract class BaseHibernateSearchFilterQueryBuilder<
 		else
 			resultsList = (List<T>) fullTextQuery.getResultList();
 
+		partialResults = timeout!=null && QueryTimeoutStrategy.PARTIAL_RESULTS.equals(timeoutStrategy)
+			&& fullTextQuery.hasPartialResults();
+
 		return buildPageableResult(getPageSize(pageable), pageable.getPage(), fullTextQuery.getResultSize(), resultsList);
 
 	}
 
+	/**
+	 * A search executed directly with the {@link IndexSearcher} opened on the entity indexes, returning the requested page of ids.
+	 */
+	@FunctionalInterface
+	protected interface IndexSearchCallback {
+		LuceneSearchResult search(IndexSearcher searcher, Query query, int offset, @Nullable Integer limit) throws IOException;
+	}
+
+	/**
+	 * Executes the search directly on the entity indexes with the query filtered to the entity types, and loads the entities of the
+	 * returned page.
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> Page<T> executeOnIndex(Query query, Pageable pageable, @Nullable ExecutorService executor,
+										 Function<List<?>, List<T>> resultsTransformer, IndexSearchCallback callback) {
+		LuceneIndexSearch<E> indexSearch = context().getIndexSearch();
+		Query filteredQuery = indexSearch.filter(query);
+
+		int offset = pageable.isPaged() ? pageable.getOffset() : 0;
+		Integer limit = pageable.isPaged() ? Integer.valueOf(getPageSize(pageable)) : maxResults;
+		LuceneSearchResult result = indexSearch.search(executor, searcher -> callback.search(searcher, filteredQuery, offset, limit));
+
+		List<T> resultsList;
+		if (resultsTransformer!=null)
+			resultsList = resultsTransformer.apply(indexSearch.load(result.getIds()));
+		else
+			resultsList = (List<T>) indexSearch.load(result.getIds());
+
+		return buildPageableResult(getPageSize(pageable), pageable.getPage(), result.getCount(), resultsList);
+	}
+
+	/**
+	 * Returns {@code true} if the request has no sort, so that the results can be ordered by the score only.
+	 */
+	protected boolean isUnsorted(@Nonnull Sortable<?> sortable) {
+		return sortable.getSort()==null || sortable.getSort().isEmpty();
+	}
+
+	/**
+	 * Creates the collector for each searched slice of the index.
+	 */
+	@FunctionalInterface
+	protected interface CollectorFactory<C extends Collector> {
+		C create() throws IOException;
+	}
+
+	/**
+	 * Reduces the collectors of all searched slices of the index to the result.
+	 */
+	@FunctionalInterface
+	protected interface CollectorReducer<C extends Collector, T> {
+		T reduce(List<C> collectors) throws IOException;
+	}
+
+	/**
+	 * Searches with the collectors created for each searched slice of the index, and reduces them to the result. When the
+	 * {@link #withTimeout time budget} is set, the collection stops as soon as it's exceeded, and the query either fails or is flagged
+	 * with {@link #hasPartialResults()}.
+	 */
+	@SuppressWarnings("unchecked")
+	protected <C extends Collector, T> T search(IndexSearcher searcher, Query query, CollectorFactory<C> collectorFactory,
+												CollectorReducer<C, T> reducer) throws IOException {
+		return searcher.search(query, new CollectorManager<Collector, T>() {
+
+			@Override
+			public Collector newCollector() throws IOException {
+				C collector = collectorFactory.create();
+				return timeout==null ? collector : new TimeLimitedCollector(collector, deadline);
+			}
+
+			@Override
+			public T reduce(Collection<Collector> collectors) throws IOException {
+				List<C> result = new ArrayList<>(collectors.size());
+				boolean timedOut = false;
+
+				for (Collector collector: collectors) {
+					if (collector instanceof TimeLimitedCollector) {
+						timedOut |= ((TimeLimitedCollector) collector).isTimedOut();
+						collector = ((TimeLimitedCollector) collector).getCollector();
+					}
+					result.add((C) collector);
+				}
+
+				if (timedOut) {
+					if (QueryTimeoutStrategy.FAIL.equals(timeoutStrategy))
+						throw new QueryTimeoutException(String.format("Query exceeded the time budget of %d %s: %s",
+							timeout, timeoutUnit, query));
+					partialResults = true;
+				}
+
+				return reducer.reduce(result);
+			}
+
+		});
+	}
+
+	/**
+	 * Executes the unsorted query directly on the index readers, either in parallel or using the result cache.
+	 */
+	protected <T> Page<T> executeDirect(Query query, Pageable pageable, Function<List<?>, List<T>> resultsTransformer) {
+		LuceneIndexSearch<E> indexSearch = context().getIndexSearch();
+
+		if (logger().isTraceEnabled())
+			logger().trace("Executing direct full text query: {}", query.toString());
+
+		return executeOnIndex(query, pageable, searchExecutor, resultsTransformer, (searcher, filteredQuery, offset, limit) -> {
+			HibernateSearchResultCache.Key cacheKey = null;
+			Object indexVersion = null;
+			if (resultCache!=null) {
+				cacheKey = HibernateSearchResultCache.key(context().getEntityClass(), query, offset, limit);
+				indexVersion = LuceneIndexSearch.getIndexVersion(searcher.getIndexReader());
+			}
+
+			if (indexVersion!=null) {
+				HibernateSearchResultCache.CachedResult cachedResult = resultCache.get(cacheKey, indexVersion);
+				if (cachedResult!=null)
+					return new LuceneSearchResult(cachedResult.getIds(), cachedResult.getCount());
+			}
+
+			TopDocs topDocs;
+			if (limit==null) {
+				// unpaged, the top hits queue would need to be sized for the whole index
+				topDocs = search(searcher, filteredQuery, AllHitsCollector::new, collectors -> {
+					List<ScoreDoc> hits = AllHitsCollector.merge(collectors);
+					return new TopDocs(hits.size(), hits.toArray(new ScoreDoc[0]), Float.NaN);
+				});
+			} else {
+				int numHits = Math.max(1, offset + limit);
+				topDocs = search(searcher, filteredQuery, () -> TopScoreDocCollector.create(numHits), collectors -> {
+					TopDocs[] collectorTopDocs = new TopDocs[collectors.size()];
+					for (int i = 0; i < collectorTopDocs.length; i++)
+						collectorTopDocs[i] = collectors.get(i).topDocs();
+					return TopDocs.merge(numHits, collectorTopDocs);
+				});
+			}
+
+			List<Serializable> ids = new ArrayList<>();
+			for (int i = offset; i < topDocs.scoreDocs.length; i++)
+				ids.add(indexSearch.getId(searcher, topDocs.scoreDocs[i].doc));
+			int count = topDocs.totalHits;
+
+			if (indexVersion!=null && !partialResults)
+				resultCache.put(cacheKey, indexVersion, new HibernateSearchResultCache.CachedResult(ids, count));
+			return new LuceneSearchResult(ids, count);
+		});
+	}
+
+	/**
+	 * Executes the query sorted in the same order as the index segments, stopping the collection in each sorted segment as soon as the
+	 * page is filled.
+	 *
+	 * @see SortedIndex
+	 */
+	protected <T> Page<T> executeSorted(Query query, Pageable pageable, SortedIndex sortedIndex,
+										Function<List<?>, List<T>> resultsTransformer) {
+		LuceneIndexSearch<E> indexSearch = context().getIndexSearch();
+		Sort sort = SortedIndexSupport.toSort(sortedIndex);
+
+		if (logger().isTraceEnabled())
+			logger().trace("Executing sorted full text query: {} with sort: {}", query.toString(), sort);
+
+		return executeOnIndex(query, pageable, searchExecutor, resultsTransformer, (searcher, filteredQuery, offset, limit) -> {
+			int maxDoc = Math.max(1, searcher.getIndexReader().maxDoc());
+			int numHits = limit==null ? maxDoc : Math.min(maxDoc, offset + limit);
+
+			TopDocs topDocs = search(searcher, filteredQuery, () -> new SortedSegmentsCollector(sort, numHits, exactCount), collectors -> {
+				for (SortedSegmentsCollector collector: collectors)
+					approximateCount |= collector.isCountApproximate();
+				return SortedSegmentsCollector.merge(sort, numHits, collectors);
+			});
+
+			List<Serializable> ids = new ArrayList<>();
+			for (int i = offset; i < topDocs.scoreDocs.length; i++)
+				ids.add(indexSearch.getId(searcher, topDocs.scoreDocs[i].doc));
+
+			return new LuceneSearchResult(ids, topDocs.totalHits);
+		});
+	}
+
+	/**
+	 * Executes the query collapsing the hits by {@link #collapseField} during the collection, and orders the groups by given sort or
+	 * by the score if the sort is {@code null}.
+	 *
+	 * @see CollapsingCollector
+	 */
+	protected <T> Page<T> executeCollapsed(Query query, Pageable pageable, @Nullable Sort sort,
+										   Function<List<?>, List<T>> resultsTransformer) {
+		LuceneIndexSearch<E> indexSearch = context().getIndexSearch();
+
+		if (logger().isTraceEnabled())
+			logger().trace("Executing full text query: {} collapsed by: {} with sort: {}", query.toString(), collapseField, sort);
+
+		Map<Serializable, Long> counts = new LinkedHashMap<>();
+		Page<T> page = executeOnIndex(query, pageable, searchExecutor, resultsTransformer, (searcher, filteredQuery, offset, limit) -> {
+			List<CollapsingCollector.Group> groups =
+				search(searcher, filteredQuery, () -> new CollapsingCollector(collapseField), CollapsingCollector::merge);
+			if (sort!=null)
+				groups = CollapsingCollector.sort(searcher, groups, sort);
+
+			List<Serializable> ids = new ArrayList<>();
+			int end = limit==null ? groups.size() : Math.min(groups.size(), offset + limit);
+			for (int i = offset; i < end; i++) {
+				Serializable id = indexSearch.getId(searcher, groups.get(i).getDoc());
+				ids.add(id);
+				counts.put(id, groups.get(i).getCount());
+			}
+
+			return new LuceneSearchResult(ids, groups.size());
+		});
+		collapsedCounts = counts;
+
+		return page;
+	}
+
+	/**
+	 * Streams ids of all entities matching the query straight from the index, without loading entities and regardless of paging. This
+	 * is intended for bulk operations on search hits, where the memory usage doesn't grow with the number of hits.
+	 *
+	 * @throws SearchException If the query is routed to a single shard with {@link #withShard}, which the direct index search doesn't
+	 * support.
+	 */
+	public void ids(@Nonnull Consumer<Serializable> consumer) {
+		checkUnsharded();
+		beginExecution();
+		Query query = buildLuceneQuery();
+		if (isEmptyQuery(query))
+			return;
+
+		LuceneIndexSearch<E> indexSearch = context().getIndexSearch();
+
+		if (logger().isTraceEnabled())
+			logger().trace("Collecting ids for full text query: {}", query.toString());
+
+		Query filteredQuery = indexSearch.filter(query);
+		indexSearch.search(null, searcher -> search(searcher, filteredQuery, () -> indexSearch.idCollector(consumer), collectors -> null));
+	}
+
+	/**
+	 * Streams numeric ids of all entities matching the query straight from the index.
+	 *
+	 * @see #ids(Consumer)
+	 */
+	public void longIds(@Nonnull LongConsumer consumer) {
+		checkUnsharded();
+		beginExecution();
+		Query query = buildLuceneQuery();
+		if (isEmptyQuery(query))
+			return;
+
+		LuceneIndexSearch<E> indexSearch = context().getIndexSearch();
+
+		if (logger().isTraceEnabled())
+			logger().trace("Collecting ids for full text query: {}", query.toString());
+
+		Query filteredQuery = indexSearch.filter(query);
+		indexSearch.search(null, searcher -> search(searcher, filteredQuery, () -> indexSearch.longIdCollector(consumer),
+			collectors -> null));
+	}
+
+	/**
+	 * Returns numeric ids of all entities matching the query as a primitive array. Unlike the streaming methods, this buffers all ids
+	 * in memory, which grows with the number of hits, so the bulk operations on large results should use
+	 * {@link #longIds(LongConsumer)} instead.
+	 *
+	 * @see #ids(Consumer)
+	 */
+	@Nonnull
+	public long[] longIds() {
+		LongStream.Builder builder = LongStream.builder();
+		longIds(builder);
+		return builder.build().toArray();
+	}
+
+	/**
+	 * Throws {@link SearchException} if the query is routed to a single shard, because the shard filter can't be applied to the
+	 * direct index search.
+	 */
+	protected void checkUnsharded() {
+		if (shard!=null)
+			throw new SearchException(String.format("Ids can't be collected directly from the index shard: %s", shard));
+	}
+
+	/**
+	 * Returns {@code true} if the query is known to match no documents, so that it can be answered without touching the index.
+	 */
+	protected boolean isEmptyQuery(@Nonnull Query query) {
+		return query instanceof MatchNoDocsQuery;
+	}
+
+	/**
+	 * Builds the Lucene query of all added filters. It's built once per query execution and used both for {@link FullTextQuery} and
+	 * for the queries executed directly on the index.
+	 */
+	@Nonnull
+	protected abstract Query buildLuceneQuery();
+
+	/**
+	 * Wraps already built Lucene query into {@link FullTextQuery}.
+	 */
+	@Nonnull
+	protected FullTextQuery build(@Nonnull Query query, @Nonnull Pageable pageable, @Nonnull Sortable<?> sortable) {
+		return context().getHibernateSearch().buildQuery(query, context().getEntityClass());
+	}
+
+	@Nonnull
+	@Override
+	public FullTextQuery build(@Nonnull Pageable pageable, @Nonnull Sortable<?> sortable) {
+		return build(buildLuceneQuery(), pageable, sortable);
+	}
+
 	@Nonnull
 	@SuppressWarnings("unchecked")
 	@Override
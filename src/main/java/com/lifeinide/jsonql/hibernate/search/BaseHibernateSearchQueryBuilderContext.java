@@ -1,11 +1,20 @@
 package com.lifeinide.jsonql.hibernate.search;
 
 import com.lifeinide.jsonql.core.BaseQueryBuilderContext;
+import com.lifeinide.jsonql.hibernate.search.bridge.NullMarkerBridge;
+import org.hibernate.search.bridge.FieldBridge;
+import org.hibernate.search.metadata.FieldDescriptor;
 import org.hibernate.search.metadata.IndexedTypeDescriptor;
 import org.hibernate.search.query.dsl.QueryBuilder;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * @author Lukasz Frankowski
@@ -17,6 +26,10 @@ public abstract class BaseHibernateSearchQueryBuilderContext<E> extends BaseQuer
 	protected HibernateSearch hibernateSearch;
 	protected QueryBuilder queryBuilder;
 	protected IndexedTypeDescriptor indexedTypeDescriptor = null;
+	protected Map<String, FieldBridge> fieldBridges = new HashMap<>();
+	protected Map<String, LuceneFieldEncoder> fieldEncoders = new HashMap<>();
+	protected LuceneIndexSearch<E> indexSearch = null;
+	protected Boolean nullMarked = null;
 
 	public BaseHibernateSearchQueryBuilderContext(@Nullable String query, @Nonnull Class<E> entityClass,
 												  @Nonnull HibernateSearch hibernateSearch) {
@@ -44,9 +57,117 @@ public abstract class BaseHibernateSearchQueryBuilderContext<E> extends BaseQuer
 
 	@Nonnull public IndexedTypeDescriptor getIndexedTypeDescriptor() {
 		if (indexedTypeDescriptor==null)
-			indexedTypeDescriptor = hibernateSearch.fullTextEntityManager().getSearchFactory().getIndexedTypeDescriptor(entityClass);
+			indexedTypeDescriptor = hibernateSearch.indexedTypeDescriptor(entityClass);
 
 		return indexedTypeDescriptor;
 	}
+
+	/**
+	 * Returns the sort order of the entity index segments, if declared.
+	 */
+	@Nullable public SortedIndex getSortedIndex() {
+		return entityClass.getAnnotation(SortedIndex.class);
+	}
+
+	/**
+	 * Returns the helper searching entity indexes directly with Lucene.
+	 */
+	@Nonnull public LuceneIndexSearch<E> getIndexSearch() {
+		if (indexSearch==null)
+			indexSearch = new LuceneIndexSearch<>(hibernateSearch, entityClass, getIndexedTypeDescriptor());
+
+		return indexSearch;
+	}
+
+	/**
+	 * Returns the {@link FieldBridge} used to index given field or {@code null} if the field is unknown for the entity (for example
+	 * in the global search).
+	 */
+	@Nullable public FieldBridge getFieldBridge(@Nonnull String field) {
+		if (!fieldBridges.containsKey(field)) {
+			FieldDescriptor fieldDescriptor = getIndexedTypeDescriptor().getIndexedField(field);
+			fieldBridges.put(field, fieldDescriptor==null ? null : fieldDescriptor.getFieldBridge());
+		}
+
+		return fieldBridges.get(field);
+	}
+
+	/**
+	 * Returns {@code true} if the entity is indexed with {@link NullMarkerBridge} class bridge, marking the fields having {@code null}
+	 * values, or if the entity class is not indexed itself (for example in the global search).
+	 */
+	public boolean isNullMarked() {
+		if (nullMarked==null) {
+			FieldDescriptor fieldDescriptor = getIndexedTypeDescriptor().getIndexedField(HibernateSearch.FIELD_NULLS);
+			nullMarked = !getIndexedTypeDescriptor().isIndexed()
+				|| (fieldDescriptor!=null && fieldDescriptor.getFieldBridge() instanceof NullMarkerBridge);
+		}
+
+		return nullMarked;
+	}
+
+	/**
+	 * Returns the encoder compiling filter values of given field straight into Lucene queries, or {@code null} if the field is unknown
+	 * for the entity or can't be encoded directly.
+	 */
+	@Nullable public LuceneFieldEncoder getFieldEncoder(@Nonnull String field) {
+		if (!fieldEncoders.containsKey(field)) {
+			FieldDescriptor fieldDescriptor = getIndexedTypeDescriptor().getIndexedField(field);
+			fieldEncoders.put(field, fieldDescriptor==null ? null : LuceneFieldEncoder.of(fieldDescriptor));
+		}
+
+		return fieldEncoders.get(field);
+	}
+
+	/**
+	 * Returns the entity class field for given field name. For dotted paths of {@code @IndexedEmbedded} associations, like
+	 * {@code "entityVal.name"}, the associations are followed and the field of the associated entity class is returned.
+	 */
+	@Nonnull public Field getEntityField(@Nonnull String path) throws NoSuchFieldException {
+		Class<?> type = entityClass;
+		Field field = null;
+
+		for (String name: path.split("\\.")) {
+			if (field!=null)
+				type = getElementType(field);
+			field = getDeclaredField(type, name);
+		}
+
+		return field;
+	}
+
+	protected static Field getDeclaredField(Class<?> type, String name) throws NoSuchFieldException {
+		for (Class<?> c = type; c!=null; c = c.getSuperclass()) {
+			try {
+				return c.getDeclaredField(name);
+			} catch (NoSuchFieldException e) {
+				// continue with superclass
+			}
+		}
+
+		throw new NoSuchFieldException(String.format("%s.%s", type.getSimpleName(), name));
+	}
+
+	/**
+	 * Returns the type of the associated entity, which is the field type for to-one associations or the element type for to-many ones.
+	 */
+	protected static Class<?> getElementType(Field field) {
+		if (field.getType().isArray())
+			return field.getType().getComponentType();
+
+		if (Collection.class.isAssignableFrom(field.getType()) || Map.class.isAssignableFrom(field.getType())) {
+			Type genericType = field.getGenericType();
+			if (genericType instanceof ParameterizedType) {
+				Type[] args = ((ParameterizedType) genericType).getActualTypeArguments();
+				Type elementType = args[args.length-1];
+				if (elementType instanceof Class)
+					return (Class<?>) elementType;
+				if (elementType instanceof ParameterizedType)
+					return (Class<?>) ((ParameterizedType) elementType).getRawType();
+			}
+		}
+
+		return field.getType();
+	}
 	
 }
@@ -0,0 +1,299 @@
+package com.lifeinide.jsonql.hibernate.search;
+
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.util.BytesRef;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Simplifies boolean query trees built by the query builder before the execution:
+ *
+ * <ul>
+ * <li>flattens nested boolean queries with required clauses only, and single-clause boolean queries</li>
+ * <li>removes duplicated required and prohibited clauses</li>
+ * <li>merges required ranges on the same field into a single range</li>
+ * <li>orders required clauses by their estimated cost</li>
+ * <li>replaces contradictory queries (like empty ranges or the same clause both required and prohibited) with
+ * {@link MatchNoDocsQuery}, so that they can be answered without touching the index</li>
+ * </ul>
+ *
+ * <p>
+ * The boosted queries are expected to be wrapped in {@link BoostQuery}, which is optimized on its own and never flattened or merged
+ * with other clauses.
+ * </p>
+ *
+ * @see HibernateSearchFilterQueryBuilder#withQueryOptimization()
+ * @author Lukasz Frankowski
+ */
+public class BooleanQueryOptimizer {
+
+	@Nonnull
+	public Query optimize(@Nonnull Query query) {
+		if (query instanceof BoostQuery) {
+			BoostQuery boostQuery = (BoostQuery) query;
+			Query optimized = optimize(boostQuery.getQuery());
+			if (optimized instanceof MatchNoDocsQuery)
+				return optimized;
+			return optimized==boostQuery.getQuery() ? query : new BoostQuery(optimized, boostQuery.getBoost());
+		}
+
+		if (!(query instanceof BooleanQuery))
+			return query;
+
+		BooleanQuery booleanQuery = (BooleanQuery) query;
+		boolean scoringShoulds = booleanQuery.getMinimumNumberShouldMatch() > 0;
+		List<BooleanClause> clauses = new ArrayList<>();
+
+		for (BooleanClause clause: booleanQuery.clauses())
+			addClause(clauses, clause.getOccur(), optimize(clause.getQuery()), scoringShoulds);
+
+		if (isRequired(clauses, MatchNoDocsQuery.class) || hasContradiction(clauses))
+			return new MatchNoDocsQuery();
+
+		clauses = mergeRanges(clauses);
+		if (clauses==null)
+			return new MatchNoDocsQuery();
+
+		clauses = dedupe(clauses);
+		removeRedundantMatchAll(clauses);
+		clauses.sort(Comparator.comparingInt(BooleanQueryOptimizer::order));
+
+		if (clauses.isEmpty())
+			return new MatchNoDocsQuery(); // all clauses were empty
+
+		if (clauses.size()==1 && !scoringShoulds
+				&& (clauses.get(0).getOccur()==Occur.MUST || clauses.get(0).getOccur()==Occur.SHOULD))
+			return clauses.get(0).getQuery();
+
+		BooleanQuery.Builder builder = new BooleanQuery.Builder();
+		builder.setDisableCoord(booleanQuery.isCoordDisabled());
+		builder.setMinimumNumberShouldMatch(booleanQuery.getMinimumNumberShouldMatch());
+		for (BooleanClause clause: clauses)
+			builder.add(clause);
+
+		return builder.build();
+	}
+
+	protected void addClause(List<BooleanClause> clauses, Occur occur, Query query, boolean scoringShoulds) {
+		if (query instanceof MatchNoDocsQuery) {
+			// empty optional or prohibited clauses can be just skipped
+			if (occur==Occur.MUST_NOT || (occur==Occur.SHOULD && !scoringShoulds))
+				return;
+		}
+
+		if (query instanceof BooleanQuery && (occur==Occur.MUST || occur==Occur.FILTER)) {
+			BooleanQuery nested = (BooleanQuery) query;
+			if (nested.getMinimumNumberShouldMatch()==0 && nested.clauses().stream().noneMatch(c -> c.getOccur()==Occur.SHOULD)) {
+				for (BooleanClause clause: nested.clauses()) {
+					Occur nestedOccur = clause.getOccur();
+					if (occur==Occur.FILTER && nestedOccur==Occur.MUST)
+						nestedOccur = Occur.FILTER;
+					clauses.add(new BooleanClause(clause.getQuery(), nestedOccur));
+				}
+				return;
+			}
+		}
+
+		clauses.add(new BooleanClause(query, occur));
+	}
+
+	protected boolean isRequired(List<BooleanClause> clauses, Class<? extends Query> queryClass) {
+		for (BooleanClause clause: clauses)
+			if ((clause.getOccur()==Occur.MUST || clause.getOccur()==Occur.FILTER) && queryClass.isInstance(clause.getQuery()))
+				return true;
+		return false;
+	}
+
+	protected boolean hasContradiction(List<BooleanClause> clauses) {
+		Set<Query> required = new LinkedHashSet<>();
+		for (BooleanClause clause: clauses)
+			if (clause.getOccur()==Occur.MUST || clause.getOccur()==Occur.FILTER)
+				required.add(clause.getQuery());
+
+		for (BooleanClause clause: clauses)
+			if (clause.getOccur()==Occur.MUST_NOT && (required.contains(clause.getQuery())
+					|| clause.getQuery() instanceof MatchAllDocsQuery))
+				return true;
+
+		return false;
+	}
+
+	protected List<BooleanClause> dedupe(List<BooleanClause> clauses) {
+		List<BooleanClause> result = new ArrayList<>();
+		Set<BooleanClause> seen = new LinkedHashSet<>();
+
+		for (BooleanClause clause: clauses)
+			if (clause.getOccur()==Occur.SHOULD || seen.add(clause))
+				result.add(clause);
+
+		return result;
+	}
+
+	/**
+	 * Removes required match-all clauses if there are other required clauses.
+	 */
+	protected void removeRedundantMatchAll(List<BooleanClause> clauses) {
+		long required = clauses.stream()
+			.filter(c -> c.getOccur()==Occur.MUST || c.getOccur()==Occur.FILTER)
+			.filter(c -> !(c.getQuery() instanceof MatchAllDocsQuery))
+			.count();
+
+		if (required > 0)
+			clauses.removeIf(c -> (c.getOccur()==Occur.FILTER || c.getOccur()==Occur.MUST) && c.getQuery() instanceof MatchAllDocsQuery);
+	}
+
+	/**
+	 * Merges required ranges on the same field. Returns {@code null} if the merged range is empty.
+	 */
+	protected List<BooleanClause> mergeRanges(List<BooleanClause> clauses) {
+		List<BooleanClause> result = new ArrayList<>();
+
+		for (BooleanClause clause: clauses) {
+			boolean merged = false;
+
+			if (clause.getOccur()==Occur.MUST || clause.getOccur()==Occur.FILTER)
+				for (int i = 0; i < result.size() && !merged; i++) {
+					BooleanClause previous = result.get(i);
+					if (previous.getOccur()!=clause.getOccur())
+						continue;
+
+					Query mergedQuery = null;
+					if (previous.getQuery() instanceof NumericRangeQuery && clause.getQuery() instanceof NumericRangeQuery)
+						mergedQuery = mergeNumericRanges((NumericRangeQuery<?>) previous.getQuery(), (NumericRangeQuery<?>) clause.getQuery());
+					else if (previous.getQuery() instanceof TermRangeQuery && clause.getQuery() instanceof TermRangeQuery)
+						mergedQuery = mergeTermRanges((TermRangeQuery) previous.getQuery(), (TermRangeQuery) clause.getQuery());
+
+					if (mergedQuery instanceof MatchNoDocsQuery)
+						return null;
+					if (mergedQuery!=null) {
+						result.set(i, new BooleanClause(mergedQuery, clause.getOccur()));
+						merged = true;
+					}
+				}
+
+			if (!merged)
+				result.add(clause);
+		}
+
+		return result;
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	protected Query mergeNumericRanges(NumericRangeQuery<?> a, NumericRangeQuery<?> b) {
+		if (!a.getField().equals(b.getField()) || a.getPrecisionStep()!=b.getPrecisionStep())
+			return null;
+
+		Number min = a.getMin();
+		boolean minInclusive = a.includesMin();
+		if (b.getMin()!=null) {
+			if (min!=null && min.getClass()!=b.getMin().getClass())
+				return null;
+			int cmp = min==null ? -1 : ((Comparable) min).compareTo(b.getMin());
+			if (cmp < 0 || (cmp==0 && !b.includesMin())) {
+				min = b.getMin();
+				minInclusive = b.includesMin();
+			}
+		}
+
+		Number max = a.getMax();
+		boolean maxInclusive = a.includesMax();
+		if (b.getMax()!=null) {
+			if (max!=null && max.getClass()!=b.getMax().getClass())
+				return null;
+			int cmp = max==null ? 1 : ((Comparable) max).compareTo(b.getMax());
+			if (cmp > 0 || (cmp==0 && !b.includesMax())) {
+				max = b.getMax();
+				maxInclusive = b.includesMax();
+			}
+		}
+
+		if (min!=null && max!=null) {
+			if (min.getClass()!=max.getClass())
+				return null;
+			int cmp = ((Comparable) min).compareTo(max);
+			if (cmp > 0 || (cmp==0 && (!minInclusive || !maxInclusive)))
+				return new MatchNoDocsQuery();
+		}
+
+		Number type = min!=null ? min : max;
+		int precisionStep = a.getPrecisionStep();
+		if (type instanceof Long)
+			return NumericRangeQuery.newLongRange(a.getField(), precisionStep, (Long) min, (Long) max, minInclusive, maxInclusive);
+		if (type instanceof Integer)
+			return NumericRangeQuery.newIntRange(a.getField(), precisionStep, (Integer) min, (Integer) max, minInclusive, maxInclusive);
+		if (type instanceof Double)
+			return NumericRangeQuery.newDoubleRange(a.getField(), precisionStep, (Double) min, (Double) max, minInclusive, maxInclusive);
+		if (type instanceof Float)
+			return NumericRangeQuery.newFloatRange(a.getField(), precisionStep, (Float) min, (Float) max, minInclusive, maxInclusive);
+		return null;
+	}
+
+	protected Query mergeTermRanges(TermRangeQuery a, TermRangeQuery b) {
+		if (!a.getField().equals(b.getField()))
+			return null;
+
+		BytesRef lower = a.getLowerTerm();
+		boolean includeLower = a.includesLower();
+		if (b.getLowerTerm()!=null) {
+			int cmp = lower==null ? -1 : lower.compareTo(b.getLowerTerm());
+			if (cmp < 0 || (cmp==0 && !b.includesLower())) {
+				lower = b.getLowerTerm();
+				includeLower = b.includesLower();
+			}
+		}
+
+		BytesRef upper = a.getUpperTerm();
+		boolean includeUpper = a.includesUpper();
+		if (b.getUpperTerm()!=null) {
+			int cmp = upper==null ? 1 : upper.compareTo(b.getUpperTerm());
+			if (cmp > 0 || (cmp==0 && !b.includesUpper())) {
+				upper = b.getUpperTerm();
+				includeUpper = b.includesUpper();
+			}
+		}
+
+		if (lower!=null && upper!=null) {
+			int cmp = lower.compareTo(upper);
+			if (cmp > 0 || (cmp==0 && (!includeLower || !includeUpper)))
+				return new MatchNoDocsQuery();
+		}
+
+		return new TermRangeQuery(a.getField(), lower, upper, includeLower, includeUpper);
+	}
+
+	/**
+	 * Returns the order of the clause: required clauses first, from the cheapest to the most expensive ones, then prohibited and
+	 * optional clauses.
+	 */
+	protected static int order(BooleanClause clause) {
+		int occurOrder = clause.getOccur()==Occur.MUST || clause.getOccur()==Occur.FILTER ? 0
+			: clause.getOccur()==Occur.MUST_NOT ? 10 : 20;
+		return occurOrder + cost(clause.getQuery());
+	}
+
+	protected static int cost(Query query) {
+		if (query instanceof TermQuery)
+			return 0;
+		if (query instanceof NumericRangeQuery || query instanceof TermRangeQuery)
+			return 1;
+		if (query instanceof MultiTermQuery)
+			return 3;
+		return 2;
+	}
+
+}
@@ -0,0 +1,235 @@
+package com.lifeinide.jsonql.hibernate.search;
+
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.hibernate.search.exception.SearchException;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collapses hits by the value of a single-valued field during the collection, keeping only the best scoring document for each
+ * distinct value together with the number of hits in the group. The values are read from numeric or sorted doc values of the field,
+ * and the documents without the value are collapsed into a single group. The hits with sorted doc values are grouped by the segment
+ * ordinal, so that each distinct value is looked up once per segment, and only the values of the returned groups are decoded.
+ *
+ * <p>
+ * The groups of the collectors searching the index slices in parallel are combined with {@link #merge}, and can be ordered by a
+ * field sort of their top documents with {@link #sort}.
+ * </p>
+ *
+ * @author Lukasz Frankowski
+ */
+public class CollapsingCollector extends SimpleCollector {
+
+	/**
+	 * A group of hits with the same field value.
+	 */
+	public static class Group {
+
+		protected Object value;
+		protected int doc = -1;
+		protected float score = Float.NEGATIVE_INFINITY;
+		protected long count;
+
+		public Group(Object value) {
+			this.value = value;
+		}
+
+		protected void collect(int doc, float score) {
+			if (this.doc < 0 || score > this.score) {
+				this.doc = doc;
+				this.score = score;
+			}
+
+			count++;
+		}
+
+		protected void merge(Group group) {
+			if (group.doc >= 0 && (doc < 0 || group.score > score || group.score==score && group.doc < doc)) {
+				doc = group.doc;
+				score = group.score;
+			}
+
+			count += group.count;
+		}
+
+		/**
+		 * Returns the field value of the group, or {@code null} for the documents without the value.
+		 */
+		public Object getValue() {
+			return value instanceof BytesRef ? ((BytesRef) value).utf8ToString() : value;
+		}
+
+		/**
+		 * Returns the top document of the group.
+		 */
+		public int getDoc() {
+			return doc;
+		}
+
+		public float getScore() {
+			return score;
+		}
+
+		/**
+		 * Returns the number of hits in the group.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+	}
+
+	protected String field;
+	protected Map<Object, Group> groups = new HashMap<>(); // keyed by Long or BytesRef value
+	protected Scorer scorer;
+	protected int docBase;
+	protected NumericDocValues numericDocValues;
+	protected SortedDocValues sortedDocValues;
+	protected Bits docsWithField;
+	protected Group[] segmentGroups; // groups of sorted doc values ordinals in the current segment
+
+	public CollapsingCollector(@Nonnull String field) {
+		this.field = field;
+	}
+
+	@Override
+	protected void doSetNextReader(LeafReaderContext context) throws IOException {
+		LeafReader reader = context.reader();
+		docBase = context.docBase;
+		numericDocValues = null;
+		sortedDocValues = null;
+		docsWithField = null;
+		segmentGroups = null;
+
+		FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+		if (fieldInfo==null)
+			return; // no document in this segment has the value
+
+		if (DocValuesType.NUMERIC.equals(fieldInfo.getDocValuesType())) {
+			numericDocValues = reader.getNumericDocValues(field);
+			docsWithField = reader.getDocsWithField(field);
+		} else if (DocValuesType.SORTED.equals(fieldInfo.getDocValuesType())) {
+			sortedDocValues = reader.getSortedDocValues(field);
+			segmentGroups = new Group[sortedDocValues.getValueCount()];
+		} else
+			throw new SearchException(String.format("Can't collapse by field: %s, which has no single-valued doc values", field));
+	}
+
+	@Override
+	public void setScorer(Scorer scorer) throws IOException {
+		this.scorer = scorer;
+	}
+
+	@Override
+	public void collect(int doc) throws IOException {
+		Group group = null;
+
+		if (numericDocValues!=null) {
+			if (docsWithField.get(doc))
+				group = group(numericDocValues.get(doc));
+		} else if (sortedDocValues!=null) {
+			int ord = sortedDocValues.getOrd(doc);
+			if (ord >= 0) {
+				group = segmentGroups[ord];
+				if (group==null) {
+					group = group(BytesRef.deepCopyOf(sortedDocValues.lookupOrd(ord)));
+					segmentGroups[ord] = group;
+				}
+			}
+		}
+
+		if (group==null)
+			group = group(null);
+
+		group.collect(docBase + doc, scorer.score());
+	}
+
+	protected Group group(Object value) {
+		return groups.computeIfAbsent(value, Group::new);
+	}
+
+	@Override
+	public boolean needsScores() {
+		return true;
+	}
+
+	/**
+	 * Returns collected groups ordered by the score of their top document.
+	 */
+	@Nonnull
+	public List<Group> getGroups() {
+		List<Group> result = new ArrayList<>(groups.values());
+		result.sort((a, b) -> a.score!=b.score ? Float.compare(b.score, a.score) : Integer.compare(a.doc, b.doc));
+		return result;
+	}
+
+	/**
+	 * Merges the groups of the collectors used to search the slices of the same index, ordered by the score of their top document.
+	 */
+	@Nonnull
+	public static List<Group> merge(@Nonnull List<CollapsingCollector> collectors) {
+		if (collectors.size()==1)
+			return collectors.get(0).getGroups();
+
+		CollapsingCollector merged = new CollapsingCollector(collectors.get(0).field);
+		for (CollapsingCollector collector: collectors)
+			for (Group group: collector.groups.values())
+				merged.group(group.value).merge(group);
+
+		return merged.getGroups();
+	}
+
+	/**
+	 * Orders the groups by the sort of their top document. The sort can't use the score, which isn't kept for the top documents.
+	 */
+	@Nonnull
+	public static List<Group> sort(@Nonnull IndexSearcher searcher, @Nonnull List<Group> groups, @Nonnull Sort sort)
+	throws IOException {
+		if (groups.isEmpty())
+			return groups;
+
+		Map<Integer, Group> docGroups = new TreeMap<>();
+		for (Group group: groups)
+			docGroups.put(group.doc, group);
+
+		// the top documents are fed in the index order to the collector, segment by segment
+		List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+		TopFieldCollector collector = TopFieldCollector.create(sort.rewrite(searcher), groups.size(), false, false, false);
+		LeafReaderContext leaf = null;
+		LeafCollector leafCollector = null;
+		for (int doc: docGroups.keySet()) {
+			if (leaf==null || doc >= leaf.docBase + leaf.reader().maxDoc()) {
+				leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+				leafCollector = collector.getLeafCollector(leaf);
+			}
+			leafCollector.collect(doc - leaf.docBase);
+		}
+
+		List<Group> result = new ArrayList<>(groups.size());
+		for (ScoreDoc scoreDoc: collector.topDocs().scoreDocs)
+			result.add(docGroups.get(scoreDoc.doc));
+		return result;
+	}
+
+}
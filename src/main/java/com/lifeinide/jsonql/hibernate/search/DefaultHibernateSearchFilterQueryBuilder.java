@@ -13,6 +13,12 @@ import java.util.Map;
 public class DefaultHibernateSearchFilterQueryBuilder<E>
 extends HibernateSearchFilterQueryBuilder<E, Page<E>> {
 
+	public DefaultHibernateSearchFilterQueryBuilder(@Nonnull EntityManager entityManager, @Nonnull Class<E> entityClass,
+													@Nullable String q, @Nullable Map<String, FieldSearchStrategy> fields,
+													@Nullable MultiFieldSearchOptions options) {
+		super(entityManager, entityClass, q, fields, options);
+	}
+
 	public DefaultHibernateSearchFilterQueryBuilder(@Nonnull EntityManager entityManager, @Nonnull Class<E> entityClass,
 													@Nullable String q, @Nullable Map<String, FieldSearchStrategy> fields) {
 		super(entityManager, entityClass, q, fields);
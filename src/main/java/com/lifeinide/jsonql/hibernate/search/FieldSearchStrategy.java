@@ -17,6 +17,16 @@ public enum FieldSearchStrategy {
 	 * This search strategy uses full phrase match with wildcard as last character to find documents with keywords starting from search
 	 * string. This strategy is appropriate to lookup in this {@link HibernateSearch#FIELD_ID} field.
 	 */
-	WILDCARD_PHRASE;
+	WILDCARD_PHRASE,
+
+	/**
+	 * This search strategy searches all fields having this strategy together, in a single query. The search string is analyzed once
+	 * per field analyzer, and the terms at each position of the search string are searched across all fields with a disjunction-max
+	 * query, with optional per-field boosts and minimum number of terms which should match (see {@link MultiFieldSearchOptions}).
+	 * Unlike {@link #DEFAULT}, this doesn't require positional phrase matching and is appropriate for multi-word searches over several
+	 * natural-language fields. Fields without analyzer are matched by any of the whitespace-separated words and don't count to the
+	 * minimum number of terms. Supported only for the entity-specific query builders.
+	 */
+	TERMS;
 
 }
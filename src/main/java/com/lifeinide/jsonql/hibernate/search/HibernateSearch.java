@@ -1,13 +1,21 @@
 package com.lifeinide.jsonql.hibernate.search;
 
 import org.apache.lucene.search.Query;
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.search.SearchFactory;
 import org.hibernate.search.jpa.FullTextEntityManager;
 import org.hibernate.search.jpa.FullTextQuery;
 import org.hibernate.search.jpa.Search;
+import org.hibernate.search.metadata.IndexedTypeDescriptor;
 import org.hibernate.search.query.dsl.QueryBuilder;
 import org.hibernate.search.query.engine.spi.QueryDescriptor;
+import org.hibernate.search.spi.SearchIntegrator;
 
 import javax.persistence.EntityManager;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.hibernate.search.util.StringHelper.*;
 
@@ -34,6 +42,31 @@ public class HibernateSearch {
 	 */
 	public static final String FIELD_ID = "textid";
 
+	/**
+	 * A field to store names of the entity fields having {@code null} value.
+	 *
+	 * @see com.lifeinide.jsonql.hibernate.search.bridge.NullMarkerBridge
+	 */
+	public static final String FIELD_NULLS = "_nulls";
+
+	/**
+	 * Per-type search metadata, built once per type for each search factory. The query builder is built on first use, because it can't
+	 * be built for not indexed types.
+	 */
+	protected static class TypeMetadata {
+
+		protected IndexedTypeDescriptor indexedTypeDescriptor;
+		protected volatile QueryBuilder queryBuilder;
+
+		public TypeMetadata(IndexedTypeDescriptor indexedTypeDescriptor) {
+			this.indexedTypeDescriptor = indexedTypeDescriptor;
+		}
+
+	}
+
+	/** The metadata is evicted when the session factory is closed, not to keep the search factory in memory **/
+	protected static final Map<SearchIntegrator, Map<Class<?>, TypeMetadata>> typeMetadata = new ConcurrentHashMap<>();
+
 	protected EntityManager entityManager;
 
 	public HibernateSearch(EntityManager entityManager) {
@@ -49,7 +82,33 @@ public class HibernateSearch {
 	}
 
 	public QueryBuilder queryBuilder(Class entityClass) {
-		return fullTextEntityManager().getSearchFactory().buildQueryBuilder().forEntity(entityClass).get();
+		TypeMetadata metadata = typeMetadata(entityClass);
+		if (metadata.queryBuilder==null)
+			metadata.queryBuilder = fullTextEntityManager().getSearchFactory().buildQueryBuilder().forEntity(entityClass).get();
+		return metadata.queryBuilder;
+	}
+
+	public IndexedTypeDescriptor indexedTypeDescriptor(Class entityClass) {
+		return typeMetadata(entityClass).indexedTypeDescriptor;
+	}
+
+	protected TypeMetadata typeMetadata(Class<?> entityClass) {
+		SearchFactory searchFactory = fullTextEntityManager().getSearchFactory();
+		SearchIntegrator searchIntegrator = searchFactory.unwrap(SearchIntegrator.class);
+
+		Map<Class<?>, TypeMetadata> metadata = typeMetadata.get(searchIntegrator);
+		if (metadata==null)
+			metadata = typeMetadata.computeIfAbsent(searchIntegrator, integrator -> {
+				entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).addObserver(new SessionFactoryObserver() {
+					@Override
+					public void sessionFactoryClosed(SessionFactory factory) {
+						typeMetadata.remove(integrator);
+					}
+				});
+				return new ConcurrentHashMap<>();
+			});
+
+		return metadata.computeIfAbsent(entityClass, cls -> new TypeMetadata(searchFactory.getIndexedTypeDescriptor(cls)));
 	}
 
 	public FullTextQuery buildQuery(Query query, Class entityClass) {
@@ -0,0 +1,201 @@
+package com.lifeinide.jsonql.hibernate.search;
+
+import com.lifeinide.jsonql.core.dto.DefaultPageableRequest;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.hibernate.search.exception.SearchException;
+import org.hibernate.search.metadata.FieldDescriptor;
+import org.hibernate.search.metadata.IndexedTypeDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prepares Hibernate Search for querying configured entity types at the application startup, instead of doing it lazily in the first
+ * user requests:
+ *
+ * <ul>
+ * <li>validates that the search fields and the filter fields are indexed for each entity type, reporting all mapping mistakes at
+ * once</li>
+ * <li>pre-builds per-type search metadata (index descriptors and query builders) cached in {@link HibernateSearch}</li>
+ * <li>opens the index readers, collects all documents and runs warm-up queries with the query builder, to page-in index
+ * segments</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * HibernateSearchBootstrap bootstrap = new HibernateSearchBootstrap(entityManagerFactory)
+ *    .withEntity(MyEntity.class, "status", "owner")
+ *    .withWarmUpQuery(MyEntity.class, "invoice");
+ * bootstrap.start();
+ * // report the node ready with bootstrap.isReady()
+ * }</pre>
+ *
+ * @author Lukasz Frankowski
+ */
+public class HibernateSearchBootstrap {
+
+	private static final Logger logger = LoggerFactory.getLogger(HibernateSearchBootstrap.class);
+
+	public static final int WARM_UP_PAGE_SIZE = 10;
+
+	protected static class EntityConfig {
+
+		protected Map<String, FieldSearchStrategy> searchFields;
+		protected List<String> filterFields;
+		protected List<String> warmUpQueries = new ArrayList<>();
+
+		public EntityConfig(Map<String, FieldSearchStrategy> searchFields, List<String> filterFields) {
+			this.searchFields = searchFields;
+			this.filterFields = filterFields;
+		}
+
+	}
+
+	protected EntityManagerFactory entityManagerFactory;
+	protected Map<Class<?>, EntityConfig> entities = new LinkedHashMap<>();
+	protected volatile boolean ready = false;
+
+	public HibernateSearchBootstrap(@Nonnull EntityManagerFactory entityManagerFactory) {
+		this.entityManagerFactory = entityManagerFactory;
+	}
+
+	/**
+	 * Configures the entity type searched with given search fields and filtered by given filter fields. All search fields need to be
+	 * indexed for the entity.
+	 */
+	@Nonnull
+	public HibernateSearchBootstrap withEntity(@Nonnull Class<?> entityClass, @Nullable Map<String, FieldSearchStrategy> searchFields,
+											   @Nonnull String... filterFields) {
+		entities.put(entityClass, new EntityConfig(searchFields, Arrays.asList(filterFields)));
+		return this;
+	}
+
+	/**
+	 * Configures the entity type searched with {@link HibernateSearchFilterQueryBuilder#defaultSearchFields() default search fields}
+	 * and filtered by given filter fields. As in {@link HibernateSearchFilterQueryBuilder}, at least one of the default search fields
+	 * needs to be indexed for the entity.
+	 */
+	@Nonnull
+	public HibernateSearchBootstrap withEntity(@Nonnull Class<?> entityClass, @Nonnull String... filterFields) {
+		return withEntity(entityClass, null, filterFields);
+	}
+
+	/**
+	 * Adds the full text query executed for the entity type during the warm-up.
+	 */
+	@Nonnull
+	public HibernateSearchBootstrap withWarmUpQuery(@Nonnull Class<?> entityClass, @Nonnull String q) {
+		EntityConfig config = entities.get(entityClass);
+		if (config==null)
+			throw new IllegalArgumentException(String.format("Entity not configured: %s", entityClass.getSimpleName()));
+
+		config.warmUpQueries.add(q);
+		return this;
+	}
+
+	/**
+	 * Returns {@code true} when the bootstrap has been successfully finished.
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * Validates the mappings, pre-builds the search metadata and warms up the indexes of all configured entity types.
+	 *
+	 * @throws SearchException If any of the configured entity types is not mapped correctly.
+	 */
+	public void start() {
+		ready = false;
+		long start = System.currentTimeMillis();
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+
+		try {
+			HibernateSearch hibernateSearch = new HibernateSearch(entityManager);
+
+			List<String> errors = new ArrayList<>();
+			for (Map.Entry<Class<?>, EntityConfig> entry: entities.entrySet())
+				validate(hibernateSearch, entry.getKey(), entry.getValue(), errors);
+			if (!errors.isEmpty())
+				throw new SearchException(String.format("Invalid search mappings: %s", String.join("; ", errors)));
+
+			for (Map.Entry<Class<?>, EntityConfig> entry: entities.entrySet())
+				warmUp(hibernateSearch, entry.getKey(), entry.getValue());
+		} finally {
+			entityManager.close();
+		}
+
+		ready = true;
+		logger.info("Hibernate Search bootstrap of {} entity types finished in {} ms", entities.size(), System.currentTimeMillis() - start);
+	}
+
+	protected void validate(HibernateSearch hibernateSearch, Class<?> entityClass, EntityConfig config, List<String> errors) {
+		IndexedTypeDescriptor descriptor = hibernateSearch.indexedTypeDescriptor(entityClass);
+		if (!descriptor.isIndexed()) {
+			errors.add(String.format("%s is not indexed", entityClass.getSimpleName()));
+			return;
+		}
+
+		hibernateSearch.queryBuilder(entityClass);
+
+		if (config.searchFields!=null) {
+			for (String field: config.searchFields.keySet())
+				if (!hasField(descriptor, field))
+					errors.add(String.format("%s has no search field: %s", entityClass.getSimpleName(), field));
+		} else if (HibernateSearchFilterQueryBuilder.defaultSearchFields().keySet().stream().noneMatch(f -> hasField(descriptor, f)))
+			errors.add(String.format("%s has none of default search fields: %s", entityClass.getSimpleName(),
+				HibernateSearchFilterQueryBuilder.defaultSearchFields().keySet()));
+
+		for (String field: config.filterFields)
+			if (!hasField(descriptor, field))
+				errors.add(String.format("%s has no filter field: %s", entityClass.getSimpleName(), field));
+	}
+
+	protected boolean hasField(IndexedTypeDescriptor descriptor, String field) {
+		if (descriptor.getIndexedField(field)!=null)
+			return true;
+
+		for (FieldDescriptor fieldDescriptor: descriptor.getIndexedFields())
+			if (field.equals(fieldDescriptor.getName()))
+				return true;
+
+		return false;
+	}
+
+	protected void warmUp(HibernateSearch hibernateSearch, Class<?> entityClass, EntityConfig config) {
+		LuceneIndexSearch<?> indexSearch = new HibernateSearchQueryBuilderContext<>(null, entityClass, hibernateSearch).getIndexSearch();
+
+		// counting all documents is answered from the index statistics without reading it, so they are collected as in real queries
+		int docs = indexSearch.search(null, searcher -> {
+			TopDocs topDocs = searcher.search(indexSearch.filter(new MatchAllDocsQuery()), WARM_UP_PAGE_SIZE);
+			for (ScoreDoc scoreDoc: topDocs.scoreDocs)
+				indexSearch.getId(searcher, scoreDoc.doc);
+			return topDocs.totalHits;
+		});
+
+		Map<String, FieldSearchStrategy> searchFields = config.searchFields!=null
+			? config.searchFields
+			: HibernateSearchFilterQueryBuilder.defaultSearchFields();
+
+		DefaultPageableRequest page = new DefaultPageableRequest();
+		page.setPageSize(WARM_UP_PAGE_SIZE);
+		page.setPage(1);
+
+		for (String q: config.warmUpQueries)
+			new DefaultHibernateSearchFilterQueryBuilder<>(hibernateSearch.entityManager(), entityClass, q, searchFields).list(page, null);
+
+		if (logger.isDebugEnabled())
+			logger.debug("Warmed up index of {} with {} documents", entityClass.getSimpleName(), docs);
+	}
+
+}
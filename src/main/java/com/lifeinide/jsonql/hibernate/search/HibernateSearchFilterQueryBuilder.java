@@ -5,14 +5,33 @@ import com.lifeinide.jsonql.core.enums.QueryCondition;
 import com.lifeinide.jsonql.core.enums.QueryConjunction;
 import com.lifeinide.jsonql.core.filters.*;
 import com.lifeinide.jsonql.core.intr.FilterQueryBuilder;
-import com.lifeinide.jsonql.core.intr.Pageable;
 import com.lifeinide.jsonql.core.intr.QueryFilter;
-import com.lifeinide.jsonql.core.intr.Sortable;
 import com.lifeinide.jsonql.hibernate.search.bridge.BaseDomainFieldBridge;
+import com.lifeinide.jsonql.hibernate.search.bridge.BaseNumericDomainFieldBridge;
 import com.lifeinide.jsonql.hibernate.search.bridge.BigDecimalRangeBridge;
+import com.lifeinide.jsonql.hibernate.search.bridge.LongEncodedFieldBridge;
+import com.lifeinide.jsonql.hibernate.search.bridge.NullMarkerBridge;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.TermsQuery;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.NumericRangeQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.NumericUtils;
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.bridge.FieldBridge;
 import org.hibernate.search.exception.SearchException;
-import org.hibernate.search.jpa.FullTextQuery;
+import org.hibernate.search.metadata.FieldDescriptor;
 import org.hibernate.search.query.dsl.BooleanJunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,12 +39,17 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.persistence.EntityManager;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Implementation of {@link FilterQueryBuilder} for Hibernate Search using local filesystem Lucene index.
@@ -56,6 +80,12 @@ import java.util.Map;
  * }</pre>
  * </p>
  *
+ * <p>
+ * For multi-word searches over several natural-language fields, the fields can be searched together with
+ * {@link FieldSearchStrategy#TERMS}, configured with {@link MultiFieldSearchOptions} passed to the constructor. This strategy needs
+ * the field analyzers of the concrete entity class, and is not supported by the global query builders.
+ * </p>
+ *
  * <h2>Filtering fields implementation</h2>
  *
  * Besides above two kinds of searchable fields we also may want to filter the results by some other fields, like in {@code where} clause
@@ -129,6 +159,115 @@ import java.util.Map;
  * protected MyEntity entity;
  * }</pre>
  *
+ * <h3>Numeric field bridge for entities</h3>
+ *
+ * If the entity ID is numeric it's more efficient to store the to-one relation using a bridge extending
+ * {@link BaseNumericDomainFieldBridge}. The ID is then indexed as a numeric field with doc values, the filters on this field are
+ * numeric lookups (also for large lists of IDs), and the field can be used for sorting and grouping:
+ *
+ * <pre>{@code
+ * public class NumericDomainFieldBridge extends BaseNumericDomainFieldBridge<IBaseEntity<Long>> {
+ *
+ *    @Override
+ *    public Long getEntityId(IBaseEntity<Long> entity) {
+ * 		return entity.getId();
+ *    }
+ *
+ *    @Override
+ *    public boolean isEntity(Object entity) {
+ * 		return entity instanceof IBaseEntity;
+ *    }
+ *
+ * }
+ * }</pre>
+ *
+ * <h3>Filtering by associated entities fields</h3>
+ *
+ * The fields of associated entities mapped with {@code @IndexedEmbedded} are indexed in the entity document with the association
+ * prefix, and can be filtered using the dotted path, like {@code add("author.name", ...)}, in a single index query. The associated
+ * entity needs to point back to the entity with {@code @ContainedIn}, so that the entity document is updated when the associated
+ * entity changes:
+ *
+ * <pre>{@code
+ * public class Book {
+ *   @ManyToOne
+ *   @IndexedEmbedded(includePaths = "name")
+ *   protected Author author;
+ * }
+ *
+ * public class Author {
+ *   @OneToMany(mappedBy = "author")
+ *   @ContainedIn
+ *   protected Set<Book> books;
+ * }
+ * }</pre>
+ *
+ * <h3>Null values</h3>
+ *
+ * To filter by {@code null} values ({@link QueryCondition#isNull} and {@link QueryCondition#notNull} conditions) the entity needs to be
+ * annotated with {@link NullMarkerBridge} class bridge. It indexes the names of all fields having {@code null} value, so that such
+ * filters are cheap single term queries for all field types:
+ *
+ * <pre>{@code
+ * @Indexed
+ * @ClassBridge(name = HibernateSearch.FIELD_NULLS, impl = NullMarkerBridge.class, analyze = Analyze.NO, norms = Norms.NO)
+ * public class MyEntity {
+ * }
+ * }</pre>
+ *
+ * <h3>Compact filter fields</h3>
+ *
+ * Filter fields don't need stored values, term frequencies nor positions. To make the index smaller, single-valued filter fields
+ * can be mapped with {@link com.lifeinide.jsonql.hibernate.search.bridge.CompactKeywordFieldBridge} or
+ * {@link com.lifeinide.jsonql.hibernate.search.bridge.CompactLongFieldBridge}, indexing only docs-only postings and doc values.
+ * The effect of the migration can be measured with {@link IndexFieldStatistics}.
+ *
+ * <h2>Sorted indexes</h2>
+ *
+ * For the most common listings sorted by a single field (like "newest first") the entity index segments can be sorted by this field
+ * using {@link SortedIndex}. The query requested with the matching sort then stops collecting results in each sorted segment as soon
+ * as the page is filled, and the page count is a lower bound flagged with {@link #hasApproximateCount()}, unless
+ * {@link #withExactCount()} is requested.
+ *
+ * <h2>Sharded indexes</h2>
+ *
+ * When the entity index is sharded by a filter field (like tenant) with
+ * {@link com.lifeinide.jsonql.hibernate.search.sharding.FieldShardIdentifierProvider}, the query can be routed to a single shard
+ * with {@link #withShard}, while global queries can search all shards in parallel with {@link #withParallelSearch}.
+ *
+ * <h2>Query limits</h2>
+ *
+ * A single request may produce an expensive query, for example a short {@link FieldSearchStrategy#WILDCARD_PHRASE} expanding to
+ * thousands of terms or a huge {@link ListQueryFilter}. To protect the searcher pool the query can be limited with:
+ *
+ * <pre>{@code
+ * new HibernateSearchFilterQueryBuilder(...)
+ *    .withTimeout(500, TimeUnit.MILLISECONDS, QueryTimeoutStrategy.PARTIAL_RESULTS)
+ *    .withMaxWildcardTerms(128)
+ *    .withMaxClauseCount(1024)
+ *    .list(...);
+ * }</pre>
+ *
+ * Additionally {@link #withQueryOptimization()} simplifies the query before the execution (see {@link BooleanQueryOptimizer}), and
+ * answers contradictory filters, like two different values required for the same field, without touching the index.
+ *
+ * <h2>Bulk operations</h2>
+ *
+ * For bulk operations on search hits (like exports or mass updates) the ids of all matching entities can be streamed straight from
+ * the index with {@link #ids} or {@link #longIds}, without loading entities.
+ *
+ * <h2>Collapsing results</h2>
+ *
+ * To get only the best hit per related entity, the results can be collapsed by a single-valued filter field having doc values, like
+ * the numeric entity bridge field, with {@link #collapse}. The number of hits in each group is available from
+ * {@link #getCollapsedCounts()}.
+ *
+ * <h2>Asynchronous indexing</h2>
+ *
+ * With {@link com.lifeinide.jsonql.hibernate.search.indexing.AsyncIndexer} the index is updated in background, after the commit. A
+ * search which needs to see the changes just committed by the user can wait for them with {@link #withConsistency}, using the token
+ * obtained from the indexer after the commit, while all other searches are executed immediately.
+ *
  * @see HibernateSearch How to define searchable fields on entities
  * @author Lukasz Frankowski
  */
@@ -139,13 +278,26 @@ extends BaseHibernateSearchFilterQueryBuilder<E, P, HibernateSearchQueryBuilderC
 
 	protected HibernateSearchQueryBuilderContext<E> context;
 	protected Map<String, FieldSearchStrategy> fields;
+	protected List<MultiTermQuery> wildcardQueries = new ArrayList<>();
+	protected Integer maxClauseCount = null;
+	protected boolean directCompilation = false;
+	protected boolean queryOptimization = false;
+
+	/**
+	 * Builds a query builder for concrete entity class with customizable search fields and options of {@link FieldSearchStrategy#TERMS}
+	 * fields search.
+	 */
+	public HibernateSearchFilterQueryBuilder(@Nonnull EntityManager entityManager, @Nonnull Class<E> entityClass, @Nullable String q,
+											 @Nullable Map<String, FieldSearchStrategy> fields, @Nullable MultiFieldSearchOptions options) {
+		this(new HibernateSearch(entityManager), entityClass, q, fields, options);
+	}
 
 	/**
 	 * Builds a query builder for concrete entity class with customizable search fields.
 	 */
 	public HibernateSearchFilterQueryBuilder(@Nonnull EntityManager entityManager, @Nonnull Class<E> entityClass, @Nullable String q,
 											 @Nullable Map<String, FieldSearchStrategy> fields) {
-		this(new HibernateSearch(entityManager), entityClass, q, fields);
+		this(entityManager, entityClass, q, fields, null);
 	}
 
 	/**
@@ -172,23 +324,42 @@ extends BaseHibernateSearchFilterQueryBuilder<E, P, HibernateSearchQueryBuilderC
 	}
 
 	protected HibernateSearchFilterQueryBuilder(@Nonnull HibernateSearch hibernateSearch, @Nonnull Class<E> entityClass,
-												@Nullable String q, @Nullable Map<String, FieldSearchStrategy> fields) {
+												@Nullable String q, @Nullable Map<String, FieldSearchStrategy> fields,
+												@Nullable MultiFieldSearchOptions options) {
 		this.context = new HibernateSearchQueryBuilderContext<>(q, entityClass, hibernateSearch);
 
 		BooleanJunction<?> fullTextQuery = context.getQueryBuilder().bool();
 
 		boolean fieldFound = false;
 
-		if (fields!=null && q!=null)
+		if (fields!=null && q!=null) {
+			List<String> termsFields = new ArrayList<>();
+
 			for (Map.Entry<String, FieldSearchStrategy> entry: fields.entrySet()) {
+				if (FieldSearchStrategy.TERMS.equals(entry.getValue())) {
+					termsFields.add(entry.getKey());
+					continue;
+				}
+
 				try {
-					fullTextQuery.should(createFieldQuery(entry.getValue(), entry.getKey(), q));
+					Query fieldQuery = createFieldQuery(entry.getValue(), entry.getKey(), q);
+					collectMultiTermQueries(fieldQuery, wildcardQueries);
+					fullTextQuery.should(fieldQuery);
 					fieldFound = true;
 				} catch (Exception e) {
 					// silently, this means that some of our full text fields don't exists in the entity
 				}
 			}
 
+			if (!termsFields.isEmpty()) {
+				Query termsQuery = createMultiFieldQuery(termsFields, q, options!=null ? options : new MultiFieldSearchOptions());
+				if (termsQuery!=null) {
+					fullTextQuery.should(termsQuery);
+					fieldFound = true;
+				}
+			}
+		}
+
 		if (!fieldFound)
 			throw new SearchException(String.format("No fulltext fields found for: %s", entityClass.getSimpleName()));
 
@@ -240,14 +411,14 @@ extends BaseHibernateSearchFilterQueryBuilder<E, P, HibernateSearchQueryBuilderC
 			LocalDate to = filter.calculateTo();
 
 			try {
-				Field reflectField = context.getEntityClass().getDeclaredField(field);
+				Field reflectField = context.getEntityField(field);
 				Comparable<?> fromObject = (Comparable<?>) filter.convert(from, reflectField);
 				Comparable<?> toObject = (Comparable<?>) filter.convert(to, reflectField);
 
 				if (from!=null)
-					context.getBooleanJunction().must(context.getQueryBuilder().range().onField(field).above(fromObject).createQuery());
+					context.getBooleanJunction().must(createAboveQuery(field, fromObject));
 				if (to!=null)
-					context.getBooleanJunction().must(context.getQueryBuilder().range().onField(field).below(toObject).createQuery());
+					context.getBooleanJunction().must(createBelowQuery(field, toObject));
 			} catch (NoSuchFieldException e) {
 				throw new RuntimeException(e);
 			}
@@ -269,6 +440,8 @@ extends BaseHibernateSearchFilterQueryBuilder<E, P, HibernateSearchQueryBuilderC
 
 			List<? extends QueryFilter> filters = filter.getFilters();
 			BooleanJunction<?> localJunction = context.getQueryBuilder().bool();
+			FieldBridge fieldBridge = context.getFieldBridge(field);
+			List<Object> longValues = new ArrayList<>();
 
 			if (filters!=null && !filters.isEmpty()) {
 				for (QueryFilter qf1: filters) {
@@ -276,24 +449,34 @@ extends BaseHibernateSearchFilterQueryBuilder<E, P, HibernateSearchQueryBuilderC
 						throw new UnsupportedOperationException("Only QueryFilter is supported with ListQueryFilter for full text search");
 					SingleValueQueryFilter<?> qf = (SingleValueQueryFilter<?>) qf1;
 					if (QueryConjunction.or.equals(filter.getConjunction()) && filters.size()>1) {
-						if (QueryCondition.eq.equals(qf.getCondition()))
+						if (isNullFilter(qf))
+							localJunction.should(createNullQuery(field));
+						else if (isNotNullFilter(qf))
+							localJunction.should(context.getQueryBuilder().bool().must(createNullQuery(field)).not().createQuery());
+						else if (QueryCondition.eq.equals(qf.getCondition()) && fieldBridge instanceof LongEncodedFieldBridge)
+							longValues.add(qf.getValue());
+						else if (QueryCondition.eq.equals(qf.getCondition()))
 							should(localJunction, field, qf.getValue(), true);
 						else if (QueryCondition.ge.equals(qf.getCondition()))
-							localJunction.should(context.getQueryBuilder().range().onField(field).above(qf.getValue()).createQuery());
+							localJunction.should(createAboveQuery(field, qf.getValue()));
 						else if (QueryCondition.le.equals(qf.getCondition()))
-							localJunction.should(context.getQueryBuilder().range().onField(field).below(qf.getValue()).createQuery());
+							localJunction.should(createBelowQuery(field, qf.getValue()));
 						else
 							throw new UnsupportedOperationException(String.format(
 								"Condition: %s is not supported with ListQueryFilter using or conjunction", qf.getCondition()));
 					} else {
-						if (QueryCondition.eq.equals(qf.getCondition()))
+						if (isNullFilter(qf))
+							localJunction.must(createNullQuery(field));
+						else if (isNotNullFilter(qf))
+							localJunction.must(createNullQuery(field)).not();
+						else if (QueryCondition.eq.equals(qf.getCondition()))
 							must(localJunction, field, qf.getValue(), true);
 						else if (QueryCondition.ne.equals(qf.getCondition()))
 							mustNot(localJunction, field, qf.getValue(), true);
 						else if (QueryCondition.ge.equals(qf.getCondition()))
-							localJunction.must(context.getQueryBuilder().range().onField(field).above(qf.getValue()).createQuery());
+							localJunction.must(createAboveQuery(field, qf.getValue()));
 						else if (QueryCondition.le.equals(qf.getCondition()))
-							localJunction.must(context.getQueryBuilder().range().onField(field).below(qf.getValue()).createQuery());
+							localJunction.must(createBelowQuery(field, qf.getValue()));
 						else
 							throw new UnsupportedOperationException(String.format(
 								"Condition: %s is not supported with ListQueryFilter", qf.getCondition()));
@@ -301,6 +484,10 @@ extends BaseHibernateSearchFilterQueryBuilder<E, P, HibernateSearchQueryBuilderC
 				}
 			}
 
+			// all numeric ids from "or" list are looked up at once
+			if (!longValues.isEmpty())
+				localJunction.should(createLongSetQuery(field, (LongEncodedFieldBridge) fieldBridge, longValues));
+
 			context.getBooleanJunction().must(localJunction.createQuery());
 
 		}
@@ -313,14 +500,18 @@ extends BaseHibernateSearchFilterQueryBuilder<E, P, HibernateSearchQueryBuilderC
 	@Override
 	public HibernateSearchFilterQueryBuilder<E, P> add(@Nonnull String field, SingleValueQueryFilter<?> filter) {
 		if (filter!=null) {
-			if (QueryCondition.eq.equals(filter.getCondition()))
+			if (isNullFilter(filter))
+				context.getBooleanJunction().must(createNullQuery(field));
+			else if (isNotNullFilter(filter))
+				context.getBooleanJunction().must(createNullQuery(field)).not();
+			else if (QueryCondition.eq.equals(filter.getCondition()))
 				must(context.getBooleanJunction(), field, filter.getValue(), true);
 			else if (QueryCondition.ne.equals(filter.getCondition()))
 				mustNot(context.getBooleanJunction(), field, filter.getValue(), true);
 			else if (QueryCondition.ge.equals(filter.getCondition()))
-				context.getBooleanJunction().must(context.getQueryBuilder().range().onField(field).above(filter.getValue()).createQuery());
+				context.getBooleanJunction().must(createAboveQuery(field, filter.getValue()));
 			else if (QueryCondition.le.equals(filter.getCondition()))
-				context.getBooleanJunction().must(context.getQueryBuilder().range().onField(field).below(filter.getValue()).createQuery());
+				context.getBooleanJunction().must(createBelowQuery(field, filter.getValue()));
 			else
 				throw new IllegalArgumentException(
 					String.format("Condition: %s not supported for HibernateSearchFilterQueryBuilder", filter.getCondition()));
@@ -334,9 +525,9 @@ extends BaseHibernateSearchFilterQueryBuilder<E, P, HibernateSearchQueryBuilderC
 	public HibernateSearchFilterQueryBuilder<E, P> add(@Nonnull String field, ValueRangeQueryFilter<? extends Number> filter) {
 		if (filter!=null) {
 			if (filter.getFrom()!=null)
-				context.getBooleanJunction().must(context.getQueryBuilder().range().onField(field).above(filter.getFrom()).createQuery());
+				context.getBooleanJunction().must(createAboveQuery(field, filter.getFrom()));
 			if (filter.getTo()!=null)
-				context.getBooleanJunction().must(context.getQueryBuilder().range().onField(field).below(filter.getTo()).createQuery());
+				context.getBooleanJunction().must(createBelowQuery(field, filter.getTo()));
 		}
 
 		return this;
@@ -350,12 +541,7 @@ extends BaseHibernateSearchFilterQueryBuilder<E, P, HibernateSearchQueryBuilderC
 
 	public HibernateSearchFilterQueryBuilder<E, P> must(BooleanJunction<?> booleanJunction, String fieldName, Object expression,
 														boolean ignoreAnalyzer) {
-		if (ignoreAnalyzer) {
-			booleanJunction.must(context.getQueryBuilder().keyword().onField(fieldName).ignoreAnalyzer().
-				matching(expression).createQuery());
-		} else {
-			booleanJunction.must(context.getQueryBuilder().keyword().onField(fieldName).matching(expression).createQuery());
-		}
+		booleanJunction.must(createKeywordQuery(fieldName, expression, ignoreAnalyzer));
 		return this;
 	}
 
@@ -365,12 +551,7 @@ extends BaseHibernateSearchFilterQueryBuilder<E, P, HibernateSearchQueryBuilderC
 
 	public HibernateSearchFilterQueryBuilder<E, P> should(BooleanJunction<?> booleanJunction, String fieldName, Object expression,
 														boolean ignoreAnalyzer) {
-		if (ignoreAnalyzer) {
-			booleanJunction.should(context.getQueryBuilder().keyword().onField(fieldName).ignoreAnalyzer().
-				matching(expression).createQuery());
-		} else {
-			booleanJunction.should(context.getQueryBuilder().keyword().onField(fieldName).matching(expression).createQuery());
-		}
+		booleanJunction.should(createKeywordQuery(fieldName, expression, ignoreAnalyzer));
 		return this;
 	}
 
@@ -388,12 +569,50 @@ extends BaseHibernateSearchFilterQueryBuilder<E, P, HibernateSearchQueryBuilderC
 	 */
 	public HibernateSearchFilterQueryBuilder<E, P> mustNot(BooleanJunction<?> booleanJunction, String fieldName, Object expression,
 														   boolean ignoreAnalyzer) {
-		if (ignoreAnalyzer) {
-			booleanJunction.must(context.getQueryBuilder().keyword().onField(fieldName).ignoreAnalyzer().
-				matching(expression).createQuery()).not().createQuery();
-		} else {
-			booleanJunction.must(context.getQueryBuilder().keyword().onField(fieldName).matching(expression).createQuery()).not().createQuery();
-		}
+		booleanJunction.must(createKeywordQuery(fieldName, expression, ignoreAnalyzer)).not();
+		return this;
+	}
+
+	/**
+	 * Limits the number of terms the wildcard search queries are expanded to. Only the top {@code maxWildcardTerms} matching terms are
+	 * then searched instead of all terms from the index matching the wildcard.
+	 */
+	@Nonnull
+	public HibernateSearchFilterQueryBuilder<E, P> withMaxWildcardTerms(int maxWildcardTerms) {
+		for (MultiTermQuery query: wildcardQueries)
+			query.setRewriteMethod(new MultiTermQuery.TopTermsScoringBooleanQueryRewrite(maxWildcardTerms));
+		return this;
+	}
+
+	/**
+	 * Compiles the filters added afterwards straight into Lucene queries using per-field encoders resolved once per field, instead of
+	 * Hibernate Search query DSL. The fields which can't be encoded directly (like analyzed ones) still use the query DSL.
+	 *
+	 * @see LuceneFieldEncoder
+	 */
+	@Nonnull
+	public HibernateSearchFilterQueryBuilder<E, P> withDirectCompilation() {
+		this.directCompilation = true;
+		return this;
+	}
+
+	/**
+	 * Simplifies the built query before the execution with {@link BooleanQueryOptimizer}. Queries which are proven to match nothing
+	 * (like contradictory filters) return an empty result without touching the index.
+	 */
+	@Nonnull
+	public HibernateSearchFilterQueryBuilder<E, P> withQueryOptimization() {
+		this.queryOptimization = true;
+		return this;
+	}
+
+	/**
+	 * Limits the total number of clauses in the built query. If the limit is exceeded the query is not executed and
+	 * {@link SearchException} is thrown instead.
+	 */
+	@Nonnull
+	public HibernateSearchFilterQueryBuilder<E, P> withMaxClauseCount(int maxClauseCount) {
+		this.maxClauseCount = maxClauseCount;
 		return this;
 	}
 
@@ -405,8 +624,239 @@ extends BaseHibernateSearchFilterQueryBuilder<E, P, HibernateSearchQueryBuilderC
 
 	@Nonnull
 	@Override
-	public FullTextQuery build(@Nonnull Pageable pageable, @Nonnull Sortable<?> sortable) {
-		return context.getHibernateSearch().buildQuery(context.getBooleanJunction().createQuery(), context.getEntityClass());
+	protected Query buildLuceneQuery() {
+		Query query = context.getBooleanJunction().createQuery();
+
+		if (queryOptimization)
+			query = new BooleanQueryOptimizer().optimize(query);
+
+		if (maxClauseCount!=null) {
+			int clauseCount = countClauses(query);
+			if (clauseCount > maxClauseCount)
+				throw new SearchException(String.format("Query has %d clauses exceeding the limit of %d", clauseCount, maxClauseCount));
+		}
+
+		return query;
+	}
+
+	protected boolean isNullFilter(SingleValueQueryFilter<?> filter) {
+		return QueryCondition.isNull.equals(filter.getCondition())
+			|| (QueryCondition.eq.equals(filter.getCondition()) && filter.getValue()==null);
+	}
+
+	protected boolean isNotNullFilter(SingleValueQueryFilter<?> filter) {
+		return QueryCondition.notNull.equals(filter.getCondition())
+			|| (QueryCondition.ne.equals(filter.getCondition()) && filter.getValue()==null);
+	}
+
+	/**
+	 * Creates the query matching documents having {@code null} value of the field. Throws {@link SearchException} if the entity isn't
+	 * indexed with {@link NullMarkerBridge}, which would make the query silently match no document. The global query builders match
+	 * only the entities indexed with the bridge.
+	 *
+	 * @see NullMarkerBridge
+	 */
+	protected Query createNullQuery(String field) {
+		if (!context.isNullMarked())
+			throw new SearchException(String.format("Can't filter null values of field: %s, because %s is not indexed with %s",
+				field, context.getEntityClass().getSimpleName(), NullMarkerBridge.class.getSimpleName()));
+
+		return new TermQuery(new Term(HibernateSearch.FIELD_NULLS, field));
+	}
+
+	/**
+	 * Creates the query matching the exact value of the field.
+	 */
+	protected Query createKeywordQuery(String field, Object value, boolean ignoreAnalyzer) {
+		FieldBridge fieldBridge = context.getFieldBridge(field);
+		if (fieldBridge instanceof LongEncodedFieldBridge) {
+			long longValue = ((LongEncodedFieldBridge) fieldBridge).toLong(value);
+			return NumericRangeQuery.newLongRange(field, longValue, longValue, true, true);
+		}
+
+		if (directCompilation && ignoreAnalyzer && value!=null) {
+			Query query = createEncodedQuery(field, value, value, true);
+			if (query!=null)
+				return query;
+		}
+
+		if (ignoreAnalyzer)
+			return context.getQueryBuilder().keyword().onField(field).ignoreAnalyzer().matching(value).createQuery();
+		return context.getQueryBuilder().keyword().onField(field).matching(value).createQuery();
+	}
+
+	/**
+	 * Creates the query matching field values greater or equal to the value.
+	 */
+	protected Query createAboveQuery(String field, Object value) {
+		FieldBridge fieldBridge = context.getFieldBridge(field);
+		if (fieldBridge instanceof LongEncodedFieldBridge)
+			return NumericRangeQuery.newLongRange(field, ((LongEncodedFieldBridge) fieldBridge).toLong(value), null, true, true);
+
+		if (directCompilation) {
+			Query query = createEncodedQuery(field, value, null, false);
+			if (query!=null)
+				return query;
+		}
+
+		return context.getQueryBuilder().range().onField(field).above(value).createQuery();
+	}
+
+	/**
+	 * Creates the query matching field values lower or equal to the value.
+	 */
+	protected Query createBelowQuery(String field, Object value) {
+		FieldBridge fieldBridge = context.getFieldBridge(field);
+		if (fieldBridge instanceof LongEncodedFieldBridge)
+			return NumericRangeQuery.newLongRange(field, null, ((LongEncodedFieldBridge) fieldBridge).toLong(value), true, true);
+
+		if (directCompilation) {
+			Query query = createEncodedQuery(field, null, value, false);
+			if (query!=null)
+				return query;
+		}
+
+		return context.getQueryBuilder().range().onField(field).below(value).createQuery();
+	}
+
+	/**
+	 * Creates the query using the field encoder, or returns {@code null} if the field or values can't be encoded directly.
+	 */
+	protected Query createEncodedQuery(String field, Object from, Object to, boolean exact) {
+		LuceneFieldEncoder fieldEncoder = context.getFieldEncoder(field);
+		if (fieldEncoder==null)
+			return null;
+
+		return exact ? fieldEncoder.eq(from) : fieldEncoder.range(from, to);
+	}
+
+	/**
+	 * Creates the query matching any of numeric values at once, with no limit of boolean clauses.
+	 */
+	protected Query createLongSetQuery(String field, LongEncodedFieldBridge fieldBridge, List<Object> values) {
+		List<BytesRef> terms = new ArrayList<>(values.size());
+		for (Object value: values) {
+			BytesRefBuilder term = new BytesRefBuilder();
+			NumericUtils.longToPrefixCoded(fieldBridge.toLong(value), 0, term);
+			terms.add(term.toBytesRef());
+		}
+
+		return new TermsQuery(field, terms);
+	}
+
+	/**
+	 * Creates {@link FieldSearchStrategy#TERMS} query for all given fields, analyzing the query once per field analyzer, or returns
+	 * {@code null} if none of the fields exists in the entity. Terms of analyzed fields are grouped by their positions in the query, so
+	 * that the terms at the same position are searched together regardless of the terms removed by the other analyzers, like stopwords.
+	 * The positions removed by some of the analyzers don't count to the minimum number of terms which should match. Fields without
+	 * analyzer don't count to it either, and match the documents by any of the whitespace-separated words on their own.
+	 */
+	protected Query createMultiFieldQuery(List<String> fields, String query, MultiFieldSearchOptions options) {
+		Map<Analyzer, SortedMap<Integer, List<String>>> analyzedTerms = new HashMap<>();
+		Map<String, SortedMap<Integer, List<String>>> fieldTerms = new LinkedHashMap<>();
+		List<String> keywordFields = new ArrayList<>();
+
+		for (String field: fields) {
+			FieldDescriptor fieldDescriptor = context.getIndexedTypeDescriptor().getIndexedField(field);
+			if (fieldDescriptor==null)
+				continue; // silently, this means that some of our full text fields don't exists in the entity
+
+			if (Analyze.NO.equals(fieldDescriptor.getAnalyze())) {
+				keywordFields.add(field);
+			} else if (fieldDescriptor.getAnalyzer()==null) {
+				// the field is analyzed with the entity-scoped analyzer, which can't be shared across fields
+				Analyzer analyzer = context.getHibernateSearch().fullTextEntityManager().getSearchFactory().getAnalyzer(context.getEntityClass());
+				fieldTerms.put(field, analyze(analyzer, field, query));
+			} else
+				fieldTerms.put(field, analyzedTerms.computeIfAbsent(fieldDescriptor.getAnalyzer(), analyzer -> analyze(analyzer, field, query)));
+		}
+
+		if (fieldTerms.isEmpty() && keywordFields.isEmpty())
+			return null;
+
+		SortedMap<Integer, List<Query>> positionQueries = new TreeMap<>();
+		Map<Integer, Integer> positionFields = new HashMap<>();
+
+		for (Map.Entry<String, SortedMap<Integer, List<String>>> entry: fieldTerms.entrySet())
+			for (Map.Entry<Integer, List<String>> position: entry.getValue().entrySet()) {
+				for (String term: position.getValue())
+					positionQueries.computeIfAbsent(position.getKey(), key -> new ArrayList<>())
+						.add(createBoostedTermQuery(entry.getKey(), term, options));
+				positionFields.merge(position.getKey(), 1, Integer::sum);
+			}
+
+		// positions found by all analyzers are counted, unless some analyzer removes all of them
+		boolean allCounted = positionFields.values().stream().noneMatch(count -> count==fieldTerms.size());
+		BooleanQuery.Builder countedBuilder = new BooleanQuery.Builder();
+		List<Query> optionalQueries = new ArrayList<>();
+		int terms = 0;
+
+		for (Map.Entry<Integer, List<Query>> entry: positionQueries.entrySet()) {
+			Query positionQuery = new DisjunctionMaxQuery(entry.getValue(), options.getTieBreaker());
+			if (allCounted || positionFields.get(entry.getKey())==fieldTerms.size()) {
+				countedBuilder.add(positionQuery, BooleanClause.Occur.SHOULD);
+				terms++;
+			} else
+				optionalQueries.add(positionQuery);
+		}
+
+		BooleanQuery.Builder builder = new BooleanQuery.Builder();
+
+		if (terms > 0) {
+			countedBuilder.setMinimumNumberShouldMatch(options.getMinimumShouldMatch(terms));
+
+			if (optionalQueries.isEmpty())
+				builder.add(countedBuilder.build(), BooleanClause.Occur.SHOULD);
+			else {
+				BooleanQuery.Builder scoredBuilder = new BooleanQuery.Builder().add(countedBuilder.build(), BooleanClause.Occur.MUST);
+				for (Query optionalQuery: optionalQueries)
+					scoredBuilder.add(optionalQuery, BooleanClause.Occur.SHOULD);
+				builder.add(scoredBuilder.build(), BooleanClause.Occur.SHOULD);
+			}
+		}
+
+		if (!keywordFields.isEmpty()) {
+			List<Query> keywordQueries = new ArrayList<>();
+			for (String keyword: query.trim().split("\\s+"))
+				if (!keyword.isEmpty())
+					for (String field: keywordFields)
+						keywordQueries.add(createBoostedTermQuery(field, keyword, options));
+
+			if (!keywordQueries.isEmpty())
+				builder.add(new DisjunctionMaxQuery(keywordQueries, options.getTieBreaker()), BooleanClause.Occur.SHOULD);
+		}
+
+		return builder.build();
+	}
+
+	protected Query createBoostedTermQuery(String field, String term, MultiFieldSearchOptions options) {
+		Query termQuery = new TermQuery(new Term(field, term));
+		float boost = options.getBoost(field);
+		return boost==1f ? termQuery : new BoostQuery(termQuery, boost);
+	}
+
+	/**
+	 * Analyzes the query returning the terms by their positions, taking into account the position increments of the tokens, like
+	 * the gaps left by removed stopwords or the synonyms at the same position.
+	 */
+	protected SortedMap<Integer, List<String>> analyze(Analyzer analyzer, String field, String query) {
+		SortedMap<Integer, List<String>> terms = new TreeMap<>();
+
+		try (TokenStream tokenStream = analyzer.tokenStream(field, query)) {
+			CharTermAttribute termAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+			PositionIncrementAttribute positionIncrementAttribute = tokenStream.addAttribute(PositionIncrementAttribute.class);
+			int position = -1;
+			tokenStream.reset();
+			while (tokenStream.incrementToken()) {
+				position += positionIncrementAttribute.getPositionIncrement();
+				terms.computeIfAbsent(position, key -> new ArrayList<>()).add(termAttribute.toString());
+			}
+			tokenStream.end();
+		} catch (IOException e) {
+			throw new SearchException(String.format("Can't analyze query: %s", query), e);
+		}
+
+		return terms;
 	}
 
 	protected Query createFieldQuery(FieldSearchStrategy strategy, String field, String query) {
@@ -429,6 +879,24 @@ extends BaseHibernateSearchFilterQueryBuilder<E, P, HibernateSearchQueryBuilderC
 		}
 	}
 
+	protected static void collectMultiTermQueries(Query query, List<MultiTermQuery> queries) {
+		if (query instanceof MultiTermQuery)
+			queries.add((MultiTermQuery) query);
+		else if (query instanceof BooleanQuery)
+			for (BooleanClause clause: ((BooleanQuery) query).clauses())
+				collectMultiTermQueries(clause.getQuery(), queries);
+	}
+
+	protected static int countClauses(Query query) {
+		if (!(query instanceof BooleanQuery))
+			return 1;
+
+		int count = 0;
+		for (BooleanClause clause: ((BooleanQuery) query).clauses())
+			count += countClauses(clause.getQuery());
+		return count;
+	}
+
 	@Override
 	protected Logger logger() {
 		return logger;
@@ -0,0 +1,173 @@
+package com.lifeinide.jsonql.hibernate.search;
+
+import org.apache.lucene.search.Query;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A cache of search results (entity ids and total count) for identical queries, to be shared by query builders. The cached result is
+ * valid as long as the index readers it has been searched with are not changed, and is invalidated automatically on the first lookup
+ * after the index change. The results searched with index readers which version can't be determined are not cached. The least
+ * recently used results are evicted when the cache grows above its max size.
+ *
+ * <p>
+ * Only the unsorted queries (ordered by the score) are cached. The sorted queries, including the ones in the {@link SortedIndex}
+ * order, and the {@link BaseHibernateSearchFilterQueryBuilder#collapse collapsed} ones always bypass the cache.
+ * </p>
+ *
+ * <pre>{@code
+ * static final HibernateSearchResultCache resultCache = new HibernateSearchResultCache(1000);
+ *
+ * new HibernateSearchFilterQueryBuilder(...).withResultCache(resultCache).list(...);
+ * }</pre>
+ *
+ * @see BaseHibernateSearchFilterQueryBuilder#withResultCache
+ * @author Lukasz Frankowski
+ */
+public class HibernateSearchResultCache {
+
+	/**
+	 * The cached search result.
+	 */
+	public static class CachedResult {
+
+		protected final List<Serializable> ids;
+		protected final int count;
+
+		public CachedResult(@Nonnull List<Serializable> ids, int count) {
+			this.ids = Collections.unmodifiableList(new ArrayList<>(ids));
+			this.count = count;
+		}
+
+		@Nonnull public List<Serializable> getIds() {
+			return ids;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+	}
+
+	/**
+	 * The key of the search request. Lucene queries implement structural equality, so the key identifies the request exactly, unlike
+	 * their string representation.
+	 */
+	public static class Key {
+
+		protected final Class<?> entityClass;
+		protected final Query query;
+		protected final int offset;
+		protected final Integer limit;
+
+		public Key(Class<?> entityClass, Query query, int offset, Integer limit) {
+			this.entityClass = entityClass;
+			this.query = query;
+			this.offset = offset;
+			this.limit = limit;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this==o)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+
+			Key key = (Key) o;
+			return offset==key.offset
+				&& entityClass.equals(key.entityClass)
+				&& query.equals(key.query)
+				&& Objects.equals(limit, key.limit);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(entityClass, query, offset, limit);
+		}
+
+	}
+
+	protected static class Entry {
+
+		protected final Object indexVersion;
+		protected final CachedResult result;
+
+		public Entry(Object indexVersion, CachedResult result) {
+			this.indexVersion = indexVersion;
+			this.result = result;
+		}
+
+	}
+
+	protected final int maxSize;
+	protected final Map<Key, Entry> entries;
+	protected long hits = 0;
+	protected long misses = 0;
+
+	public HibernateSearchResultCache(int maxSize) {
+		this.maxSize = maxSize;
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				return size() > HibernateSearchResultCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Builds the canonical key of the unsorted search request.
+	 */
+	@Nonnull public static Key key(@Nonnull Class<?> entityClass, @Nonnull Query query, int offset, @Nullable Integer limit) {
+		return new Key(entityClass, query, offset, limit);
+	}
+
+	/**
+	 * Returns the cached result for given key, if it has been searched with the same version of the index.
+	 */
+	@Nullable public synchronized CachedResult get(@Nonnull Key key, @Nonnull Object indexVersion) {
+		Entry entry = entries.get(key);
+
+		if (entry!=null && !entry.indexVersion.equals(indexVersion)) {
+			entries.remove(key);
+			entry = null;
+		}
+
+		if (entry==null) {
+			misses++;
+			return null;
+		}
+
+		hits++;
+		return entry.result;
+	}
+
+	public synchronized void put(@Nonnull Key key, @Nonnull Object indexVersion, @Nonnull CachedResult result) {
+		entries.put(key, new Entry(indexVersion, result));
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+}
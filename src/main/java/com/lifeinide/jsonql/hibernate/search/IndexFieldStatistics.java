@@ -0,0 +1,248 @@
+package com.lifeinide.jsonql.hibernate.search;
+
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
+import org.hibernate.search.exception.SearchException;
+import org.hibernate.search.indexes.IndexReaderAccessor;
+
+import javax.annotation.Nonnull;
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports per-field index statistics, to compare the index size before and after the migration of filter fields to the compact
+ * mappings (see {@link com.lifeinide.jsonql.hibernate.search.bridge.CompactKeywordFieldBridge}). The postings of all fields share the
+ * same index files, so for each field the tool reports the exact size of stored values, together with the number of terms, postings
+ * and positions indicating the size of the postings, and the presence of norms and doc values. To run it from the command line for
+ * the index directory use {@link com.lifeinide.jsonql.hibernate.search.tool.IndexFieldStatisticsTool}.
+ *
+ * @author Lukasz Frankowski
+ */
+public class IndexFieldStatistics {
+
+	/**
+	 * Statistics of a single index field.
+	 */
+	public static class FieldStatistics {
+
+		protected String field;
+		protected IndexOptions indexOptions = IndexOptions.NONE;
+		protected boolean norms;
+		protected DocValuesType docValuesType = DocValuesType.NONE;
+		protected long docCount;
+		protected long termCount;
+		protected long postingCount;
+		protected long positionCount;
+		protected long storedBytes;
+
+		public FieldStatistics(String field) {
+			this.field = field;
+		}
+
+		public String getField() {
+			return field;
+		}
+
+		public IndexOptions getIndexOptions() {
+			return indexOptions;
+		}
+
+		public boolean hasNorms() {
+			return norms;
+		}
+
+		public DocValuesType getDocValuesType() {
+			return docValuesType;
+		}
+
+		/**
+		 * Returns the number of documents having at least one term in this field, including deleted documents not yet merged away.
+		 */
+		public long getDocCount() {
+			return docCount;
+		}
+
+		/**
+		 * Returns the number of distinct terms, summed over all index segments.
+		 */
+		public long getTermCount() {
+			return termCount;
+		}
+
+		/**
+		 * Returns the number of term-document pairs, including deleted documents not yet merged away.
+		 */
+		public long getPostingCount() {
+			return postingCount;
+		}
+
+		/**
+		 * Returns the number of indexed term positions, or {@code 0} if positions are not indexed.
+		 */
+		public long getPositionCount() {
+			return positionCount;
+		}
+
+		/**
+		 * Returns the size in bytes of stored values of live documents.
+		 */
+		public long getStoredBytes() {
+			return storedBytes;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-30s %-40s %-6s %-8s %10d %10d %12d %12d %12d", field, indexOptions, norms, docValuesType,
+				docCount, termCount, postingCount, positionCount, storedBytes);
+		}
+
+	}
+
+	/**
+	 * Collects the statistics of all fields of the index.
+	 */
+	@Nonnull
+	public static List<FieldStatistics> collect(@Nonnull IndexReader indexReader) throws IOException {
+		Map<String, FieldStatistics> statistics = new HashMap<>();
+		List<FieldStatistics> result = new ArrayList<>();
+
+		for (FieldInfo fieldInfo: MultiFields.getMergedFieldInfos(indexReader)) {
+			FieldStatistics fieldStatistics = new FieldStatistics(fieldInfo.name);
+			fieldStatistics.indexOptions = fieldInfo.getIndexOptions();
+			fieldStatistics.norms = fieldInfo.hasNorms();
+			fieldStatistics.docValuesType = fieldInfo.getDocValuesType();
+
+			Terms terms = MultiFields.getTerms(indexReader, fieldInfo.name);
+			if (terms!=null) {
+				fieldStatistics.docCount = terms.getDocCount();
+				fieldStatistics.postingCount = terms.getSumDocFreq();
+				if (fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS) >= 0)
+					fieldStatistics.positionCount = terms.getSumTotalTermFreq();
+			}
+
+			statistics.put(fieldInfo.name, fieldStatistics);
+			result.add(fieldStatistics);
+		}
+
+		for (LeafReaderContext context: indexReader.leaves()) {
+			LeafReader reader = context.reader();
+
+			for (FieldStatistics fieldStatistics: result) {
+				Terms terms = reader.terms(fieldStatistics.field);
+				if (terms!=null && terms.size() > 0)
+					fieldStatistics.termCount += terms.size();
+			}
+
+			StoredFieldVisitor visitor = new StoredBytesVisitor(statistics);
+			Bits liveDocs = reader.getLiveDocs();
+			for (int doc = 0; doc < reader.maxDoc(); doc++)
+				if (liveDocs==null || liveDocs.get(doc))
+					reader.document(doc, visitor);
+		}
+
+		result.sort((a, b) -> a.field.compareTo(b.field));
+		return result;
+	}
+
+	/**
+	 * Collects the statistics of all fields of the entity index (including all shards).
+	 */
+	@Nonnull
+	public static List<FieldStatistics> collect(@Nonnull EntityManager entityManager, @Nonnull Class<?> entityClass) {
+		IndexReaderAccessor indexReaderAccessor = new HibernateSearch(entityManager).fullTextEntityManager().getSearchFactory()
+			.getIndexReaderAccessor();
+		IndexReader indexReader = indexReaderAccessor.open(entityClass);
+
+		try {
+			return collect(indexReader);
+		} catch (IOException e) {
+			throw new SearchException(String.format("Can't read index of: %s", entityClass.getSimpleName()), e);
+		} finally {
+			indexReaderAccessor.close(indexReader);
+		}
+	}
+
+	/**
+	 * Returns the total size in bytes of all files of the index directory.
+	 */
+	public static long getIndexSize(@Nonnull Directory directory) throws IOException {
+		long size = 0;
+		for (String file: directory.listAll())
+			size += directory.fileLength(file);
+		return size;
+	}
+
+	@Nonnull
+	public static String format(@Nonnull List<FieldStatistics> statistics) {
+		StringBuilder sb = new StringBuilder(String.format("%-30s %-40s %-6s %-8s %10s %10s %12s %12s %12s%n", "field", "index options",
+			"norms", "docvalue", "docs", "terms", "postings", "positions", "stored"));
+		for (FieldStatistics fieldStatistics: statistics)
+			sb.append(fieldStatistics).append(String.format("%n"));
+		return sb.toString();
+	}
+
+	protected static class StoredBytesVisitor extends StoredFieldVisitor {
+
+		protected Map<String, FieldStatistics> statistics;
+
+		public StoredBytesVisitor(Map<String, FieldStatistics> statistics) {
+			this.statistics = statistics;
+		}
+
+		protected void add(FieldInfo fieldInfo, long bytes) {
+			FieldStatistics fieldStatistics = statistics.get(fieldInfo.name);
+			if (fieldStatistics!=null)
+				fieldStatistics.storedBytes += bytes;
+		}
+
+		@Override
+		public Status needsField(FieldInfo fieldInfo) {
+			return Status.YES;
+		}
+
+		@Override
+		public void binaryField(FieldInfo fieldInfo, byte[] value) {
+			add(fieldInfo, value.length);
+		}
+
+		@Override
+		public void stringField(FieldInfo fieldInfo, byte[] value) {
+			add(fieldInfo, value.length);
+		}
+
+		@Override
+		public void intField(FieldInfo fieldInfo, int value) {
+			add(fieldInfo, Integer.BYTES);
+		}
+
+		@Override
+		public void longField(FieldInfo fieldInfo, long value) {
+			add(fieldInfo, Long.BYTES);
+		}
+
+		@Override
+		public void floatField(FieldInfo fieldInfo, float value) {
+			add(fieldInfo, Float.BYTES);
+		}
+
+		@Override
+		public void doubleField(FieldInfo fieldInfo, double value) {
+			add(fieldInfo, Double.BYTES);
+		}
+
+	}
+
+}
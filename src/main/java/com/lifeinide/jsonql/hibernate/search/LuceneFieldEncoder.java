@@ -0,0 +1,150 @@
+package com.lifeinide.jsonql.hibernate.search;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.bridge.FieldBridge;
+import org.hibernate.search.bridge.StringBridge;
+import org.hibernate.search.bridge.TwoWayFieldBridge;
+import org.hibernate.search.metadata.FieldDescriptor;
+import org.hibernate.search.metadata.FieldSettingsDescriptor;
+import org.hibernate.search.metadata.NumericFieldSettingsDescriptor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Encodes filter values of a single index field straight into Lucene queries, the same way as Hibernate Search query DSL does for
+ * not analyzed fields, but resolving the field bridge and encoding only once per field.
+ *
+ * @see HibernateSearchFilterQueryBuilder#withDirectCompilation()
+ * @author Lukasz Frankowski
+ */
+public abstract class LuceneFieldEncoder {
+
+	protected final String field;
+
+	protected LuceneFieldEncoder(String field) {
+		this.field = field;
+	}
+
+	/**
+	 * Creates the query matching exact value, or returns {@code null} if the value can't be encoded.
+	 */
+	@Nullable public abstract Query eq(@Nonnull Object value);
+
+	/**
+	 * Creates the query matching the inclusive range of values, or returns {@code null} if the values can't be encoded.
+	 */
+	@Nullable public abstract Query range(@Nullable Object from, @Nullable Object to);
+
+	/**
+	 * Returns the encoder for the index field, or {@code null} if the field can't be encoded directly.
+	 */
+	@Nullable public static LuceneFieldEncoder of(@Nonnull FieldDescriptor fieldDescriptor) {
+		FieldBridge fieldBridge = fieldDescriptor.getFieldBridge();
+
+		if (FieldSettingsDescriptor.Type.NUMERIC.equals(fieldDescriptor.getType()))
+			return new NumericEncoder(fieldDescriptor.getName(),
+				fieldDescriptor.as(NumericFieldSettingsDescriptor.class).encodingType());
+
+		if (FieldSettingsDescriptor.Type.BASIC.equals(fieldDescriptor.getType()) && Analyze.NO.equals(fieldDescriptor.getAnalyze())
+				&& (fieldBridge instanceof TwoWayFieldBridge || fieldBridge instanceof StringBridge))
+			return new StringEncoder(fieldDescriptor.getName(), fieldBridge);
+
+		return null;
+	}
+
+	/**
+	 * Encodes values as terms using the field bridge.
+	 */
+	public static class StringEncoder extends LuceneFieldEncoder {
+
+		protected final FieldBridge fieldBridge;
+
+		public StringEncoder(String field, FieldBridge fieldBridge) {
+			super(field);
+			this.fieldBridge = fieldBridge;
+		}
+
+		protected String toString(Object value) {
+			if (value==null)
+				return null;
+			if (fieldBridge instanceof TwoWayFieldBridge)
+				return ((TwoWayFieldBridge) fieldBridge).objectToString(value);
+			return ((StringBridge) fieldBridge).objectToString(value);
+		}
+
+		@Override
+		public Query eq(@Nonnull Object value) {
+			String term = toString(value);
+			return term==null ? null : new TermQuery(new Term(field, term));
+		}
+
+		@Override
+		public Query range(@Nullable Object from, @Nullable Object to) {
+			return TermRangeQuery.newStringRange(field, toString(from), toString(to), true, true);
+		}
+
+	}
+
+	/**
+	 * Encodes values as numeric range queries according to the field numeric encoding.
+	 */
+	public static class NumericEncoder extends LuceneFieldEncoder {
+
+		protected final NumericFieldSettingsDescriptor.NumericEncodingType encodingType;
+
+		public NumericEncoder(String field, NumericFieldSettingsDescriptor.NumericEncodingType encodingType) {
+			super(field);
+			this.encodingType = encodingType;
+		}
+
+		protected Number toNumber(Object value) {
+			if (value instanceof Number)
+				return (Number) value;
+			if (value instanceof Date)
+				return ((Date) value).getTime();
+			if (value instanceof Calendar)
+				return ((Calendar) value).getTimeInMillis();
+			return null;
+		}
+
+		@Override
+		public Query eq(@Nonnull Object value) {
+			return range(value, value);
+		}
+
+		@Override
+		public Query range(@Nullable Object from, @Nullable Object to) {
+			Number fromNumber = toNumber(from);
+			Number toNumber = toNumber(to);
+			if ((from!=null && fromNumber==null) || (to!=null && toNumber==null))
+				return null;
+
+			switch (encodingType) {
+				case INTEGER:
+					return NumericRangeQuery.newIntRange(field, fromNumber==null ? null : fromNumber.intValue(),
+						toNumber==null ? null : toNumber.intValue(), true, true);
+				case LONG:
+					return NumericRangeQuery.newLongRange(field, fromNumber==null ? null : fromNumber.longValue(),
+						toNumber==null ? null : toNumber.longValue(), true, true);
+				case FLOAT:
+					return NumericRangeQuery.newFloatRange(field, fromNumber==null ? null : fromNumber.floatValue(),
+						toNumber==null ? null : toNumber.floatValue(), true, true);
+				case DOUBLE:
+					return NumericRangeQuery.newDoubleRange(field, fromNumber==null ? null : fromNumber.doubleValue(),
+						toNumber==null ? null : toNumber.doubleValue(), true, true);
+				default:
+					return null;
+			}
+		}
+
+	}
+
+}
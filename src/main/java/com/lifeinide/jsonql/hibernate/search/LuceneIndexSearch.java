@@ -0,0 +1,311 @@
+package com.lifeinide.jsonql.hibernate.search;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexReaderContext;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.TermsQuery;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TermQuery;
+import org.hibernate.Session;
+import org.hibernate.search.bridge.TwoWayFieldBridge;
+import org.hibernate.search.engine.ProjectionConstants;
+import org.hibernate.search.engine.spi.DocumentBuilderIndexedEntity;
+import org.hibernate.search.exception.SearchException;
+import org.hibernate.search.indexes.IndexReaderAccessor;
+import org.hibernate.search.indexes.spi.IndexManager;
+import org.hibernate.search.metadata.FieldDescriptor;
+import org.hibernate.search.metadata.IndexedTypeDescriptor;
+import org.hibernate.search.metadata.PropertyDescriptor;
+import org.hibernate.search.spi.IndexedTypeIdentifier;
+import org.hibernate.search.spi.SearchIntegrator;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Executes Lucene queries directly on the entity index readers obtained from Hibernate Search, for the features not supported by
+ * {@link org.hibernate.search.jpa.FullTextQuery}, like custom collectors or parallel search of index segments and shards.
+ *
+ * @param <E> Entity type.
+ * @author Lukasz Frankowski
+ */
+public class LuceneIndexSearch<E> {
+
+	/**
+	 * A callback executed with {@link IndexSearcher} opened for the entity indexes.
+	 */
+	@FunctionalInterface
+	public interface SearcherCallback<T> {
+		T doWithSearcher(IndexSearcher searcher) throws IOException;
+	}
+
+	protected HibernateSearch hibernateSearch;
+	protected Class<E> entityClass;
+	protected String idField;
+	protected TwoWayFieldBridge idFieldBridge;
+	protected boolean longId; // Long ids can be read as is from the numeric doc values
+	protected Set<String> idFieldSet;
+	protected Query typeFilter;
+
+	public LuceneIndexSearch(@Nonnull HibernateSearch hibernateSearch, @Nonnull Class<E> entityClass,
+							 @Nonnull IndexedTypeDescriptor indexedTypeDescriptor) {
+		if (!indexedTypeDescriptor.isIndexed())
+			throw new SearchException(String.format("Direct index search is not supported for not indexed: %s", entityClass.getSimpleName()));
+
+		this.hibernateSearch = hibernateSearch;
+		this.entityClass = entityClass;
+
+		PropertyDescriptor idPropertyDescriptor = indexedTypeDescriptor.getIndexedProperties().stream()
+			.filter(PropertyDescriptor::isId)
+			.findFirst()
+			.orElseThrow(() -> new SearchException(String.format("No indexed id property for: %s", entityClass.getSimpleName())));
+		FieldDescriptor idFieldDescriptor = idPropertyDescriptor.getIndexedFields().iterator().next();
+		this.idField = idFieldDescriptor.getName();
+		this.idFieldBridge = (TwoWayFieldBridge) idFieldDescriptor.getFieldBridge();
+		this.idFieldSet = Collections.singleton(idField);
+		Class<?> idType = hibernateSearch.entityManager().getMetamodel().entity(entityClass).getIdType().getJavaType();
+		this.longId = Long.class.equals(idType) || long.class.equals(idType);
+		this.typeFilter = createTypeFilter(hibernateSearch.fullTextEntityManager().getSearchFactory().unwrap(SearchIntegrator.class),
+			indexedTypeDescriptor.getIndexedType());
+	}
+
+	/**
+	 * Creates the filter of the documents of the entity class and its subclasses, or returns {@code null} if the entity indexes
+	 * contain no other types.
+	 */
+	protected static Query createTypeFilter(SearchIntegrator searchIntegrator, IndexedTypeIdentifier entityType) {
+		Set<String> typeNames = new HashSet<>();
+		typeNames.add(entityType.getName());
+		for (Class<?> subclass: searchIntegrator.getIndexBinding(entityType).getDocumentBuilder().getMappedSubclasses())
+			typeNames.add(subclass.getName());
+
+		Set<IndexedTypeIdentifier> types = new HashSet<>();
+		Set<IndexedTypeIdentifier> containedTypes = new HashSet<>();
+
+		for (IndexedTypeIdentifier type: searchIntegrator.getIndexedTypeIdentifiers())
+			if (typeNames.contains(type.getName())) {
+				types.add(type);
+				for (IndexManager indexManager: searchIntegrator.getIndexBinding(type).getIndexManagerSelector().all())
+					for (IndexedTypeIdentifier containedType: indexManager.getContainedTypes())
+						containedTypes.add(containedType);
+			}
+
+		if (types.containsAll(containedTypes))
+			return null;
+
+		List<Term> terms = new ArrayList<>(types.size());
+		for (IndexedTypeIdentifier type: types)
+			terms.add(new Term(ProjectionConstants.OBJECT_CLASS, type.getName()));
+		return new TermsQuery(terms);
+	}
+
+	@Nonnull public Class<E> getEntityClass() {
+		return entityClass;
+	}
+
+	/**
+	 * Returns the name of the index field storing entity id.
+	 */
+	@Nonnull public String getIdField() {
+		return idField;
+	}
+
+	/**
+	 * Restricts the query to the documents of the entity class and its subclasses, when the entity indexes are shared with other
+	 * types, and to the documents of the session tenant, like {@link org.hibernate.search.jpa.FullTextQuery} does. The queries
+	 * executed directly with the searcher from {@link #search} need to be filtered with this method. The full-text filters, including
+	 * the shard filter, are not supported by the direct search.
+	 */
+	@Nonnull public Query filter(@Nonnull Query query) {
+		String tenantId = hibernateSearch.entityManager().unwrap(Session.class).getTenantIdentifier();
+		if (typeFilter==null && tenantId==null)
+			return query;
+
+		BooleanQuery.Builder builder = new BooleanQuery.Builder().add(query, BooleanClause.Occur.MUST);
+		if (typeFilter!=null)
+			builder.add(typeFilter, BooleanClause.Occur.FILTER);
+		if (tenantId!=null)
+			builder.add(new TermQuery(new Term(DocumentBuilderIndexedEntity.TENANT_ID_FIELDNAME, tenantId)),
+				BooleanClause.Occur.FILTER);
+		return builder.build();
+	}
+
+	/**
+	 * Opens {@link IndexSearcher} on all entity indexes (including all shards) and executes the callback with it.
+	 *
+	 * @param executor If not null, the searcher searches index segments in parallel using this executor.
+	 */
+	public <T> T search(@Nullable ExecutorService executor, @Nonnull SearcherCallback<T> callback) {
+		IndexReaderAccessor indexReaderAccessor = hibernateSearch.fullTextEntityManager().getSearchFactory().getIndexReaderAccessor();
+		IndexReader indexReader = indexReaderAccessor.open(entityClass);
+
+		try {
+			IndexSearcher indexSearcher = executor==null ? new IndexSearcher(indexReader) : new IndexSearcher(indexReader, executor);
+			return callback.doWithSearcher(indexSearcher);
+		} catch (IOException e) {
+			throw new SearchException(String.format("Can't search index of: %s", entityClass.getSimpleName()), e);
+		} finally {
+			indexReaderAccessor.close(indexReader);
+		}
+	}
+
+	/**
+	 * Returns the version of the index reader, changing whenever any of the underlying indexes (or shards) changes, or {@code null} if
+	 * the version can't be determined, because some of the underlying readers is not a {@link DirectoryReader}.
+	 */
+	@Nullable public static List<Long> getIndexVersion(@Nonnull IndexReader indexReader) {
+		List<Long> versions = new ArrayList<>();
+		return collectIndexVersions(indexReader, versions) ? versions : null;
+	}
+
+	protected static boolean collectIndexVersions(IndexReader indexReader, List<Long> versions) {
+		if (indexReader instanceof DirectoryReader) {
+			versions.add(((DirectoryReader) indexReader).getVersion());
+			return true;
+		}
+
+		if (indexReader.getContext().children()==null)
+			return false; // a leaf reader not opened from a directory, like a filtered or in-memory reader
+
+		for (IndexReaderContext child: indexReader.getContext().children())
+			if (!collectIndexVersions(child.reader(), versions))
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * Reads the entity id of the document from the index.
+	 */
+	@Nonnull public Serializable getId(@Nonnull IndexSearcher indexSearcher, int doc) throws IOException {
+		Document document = indexSearcher.doc(doc, idFieldSet);
+		return (Serializable) idFieldBridge.get(idField, document);
+	}
+
+	/**
+	 * Streams ids of all documents matching the query to the consumer, during the collection and without loading entities. The ids of
+	 * {@code Long} type are read from the numeric doc values of the id field if available, and all other ids from the stored id
+	 * field converted with its field bridge, so that the consumer always gets the ids of the entity id type.
+	 */
+	public void collectIds(@Nonnull IndexSearcher indexSearcher, @Nonnull Query query, @Nonnull Consumer<Serializable> consumer)
+	throws IOException {
+		indexSearcher.search(filter(query), idCollector(consumer));
+	}
+
+	/**
+	 * Streams numeric ids of all documents matching the query to the consumer, without boxing if the id field has numeric doc values.
+	 *
+	 * @throws SearchException If the entity id is not numeric.
+	 */
+	public void collectLongIds(@Nonnull IndexSearcher indexSearcher, @Nonnull Query query, @Nonnull LongConsumer consumer)
+	throws IOException {
+		indexSearcher.search(filter(query), longIdCollector(consumer));
+	}
+
+	/**
+	 * Creates the collector streaming ids of collected documents to the consumer.
+	 *
+	 * @see #collectIds
+	 */
+	@Nonnull public Collector idCollector(@Nonnull Consumer<Serializable> consumer) {
+		return new IdCollector(consumer, null);
+	}
+
+	/**
+	 * Creates the collector streaming numeric ids of collected documents to the consumer.
+	 *
+	 * @see #collectLongIds
+	 */
+	@Nonnull public Collector longIdCollector(@Nonnull LongConsumer consumer) {
+		return new IdCollector(null, consumer);
+	}
+
+	/**
+	 * Collects entity ids of matching documents, either as objects or as primitive longs.
+	 */
+	protected class IdCollector extends SimpleCollector {
+
+		protected Consumer<Serializable> consumer;
+		protected LongConsumer longConsumer;
+		protected LeafReader reader;
+		protected NumericDocValues docValues;
+
+		public IdCollector(Consumer<Serializable> consumer, LongConsumer longConsumer) {
+			this.consumer = consumer;
+			this.longConsumer = longConsumer;
+		}
+
+		@Override
+		protected void doSetNextReader(LeafReaderContext context) throws IOException {
+			this.reader = context.reader();
+			this.docValues = longConsumer!=null || longId ? reader.getNumericDocValues(idField) : null;
+		}
+
+		@Override
+		public void collect(int doc) throws IOException {
+			if (docValues!=null) {
+				long id = docValues.get(doc);
+				if (longConsumer!=null)
+					longConsumer.accept(id);
+				else
+					consumer.accept(id);
+				return;
+			}
+
+			DocumentStoredFieldVisitor visitor = new DocumentStoredFieldVisitor(idFieldSet);
+			reader.document(doc, visitor);
+			Serializable id = (Serializable) idFieldBridge.get(idField, visitor.getDocument());
+
+			if (longConsumer==null)
+				consumer.accept(id);
+			else if (id instanceof Number)
+				longConsumer.accept(((Number) id).longValue());
+			else
+				throw new SearchException(String.format("Entity id is not numeric for: %s", entityClass.getSimpleName()));
+		}
+
+		@Override
+		public boolean needsScores() {
+			return false;
+		}
+
+	}
+
+	/**
+	 * Loads entities by ids in a single batch, preserving the order of ids. The entities not existing anymore in the database are
+	 * skipped.
+	 */
+	@Nonnull public List<E> load(@Nonnull List<? extends Serializable> ids) {
+		if (ids.isEmpty())
+			return new ArrayList<>();
+
+		List<E> result = new ArrayList<>(ids.size());
+		for (E entity: hibernateSearch.entityManager().unwrap(Session.class).byMultipleIds(entityClass).multiLoad(ids))
+			if (entity!=null)
+				result.add(entity);
+
+		return result;
+	}
+
+}
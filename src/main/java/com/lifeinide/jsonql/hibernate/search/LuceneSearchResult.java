@@ -0,0 +1,32 @@
+package com.lifeinide.jsonql.hibernate.search;
+
+import javax.annotation.Nonnull;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The result of the query executed directly on the entity index: ids of the entities on the requested page and the total count of
+ * the results.
+ *
+ * @see LuceneIndexSearch
+ * @author Lukasz Frankowski
+ */
+public class LuceneSearchResult {
+
+	protected final List<Serializable> ids;
+	protected final int count;
+
+	public LuceneSearchResult(@Nonnull List<Serializable> ids, int count) {
+		this.ids = ids;
+		this.count = count;
+	}
+
+	@Nonnull public List<Serializable> getIds() {
+		return ids;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.lifeinide.jsonql.hibernate.search;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Options of the {@link FieldSearchStrategy#TERMS} multi-field search, configured with
+ * {@link HibernateSearchFilterQueryBuilder} constructors.
+ *
+ * @author Lukasz Frankowski
+ */
+public class MultiFieldSearchOptions {
+
+	protected Map<String, Float> boosts = new HashMap<>();
+	protected Integer minimumShouldMatch = null;
+	protected int minimumShouldMatchPercent = 100;
+	protected float tieBreaker = 0f;
+
+	/**
+	 * Sets the boost of the matches in given field.
+	 */
+	@Nonnull
+	public MultiFieldSearchOptions withBoost(@Nonnull String field, float boost) {
+		boosts.put(field, boost);
+		return this;
+	}
+
+	/**
+	 * Sets the number of the search terms required to match.
+	 */
+	@Nonnull
+	public MultiFieldSearchOptions withMinimumShouldMatch(int minimumShouldMatch) {
+		this.minimumShouldMatch = minimumShouldMatch;
+		return this;
+	}
+
+	/**
+	 * Sets the percentage of the search terms required to match, rounded down, but at least one term. By default all terms are
+	 * required.
+	 */
+	@Nonnull
+	public MultiFieldSearchOptions withMinimumShouldMatchPercent(int minimumShouldMatchPercent) {
+		this.minimumShouldMatch = null;
+		this.minimumShouldMatchPercent = minimumShouldMatchPercent;
+		return this;
+	}
+
+	/**
+	 * Sets the tie breaker of the per-term disjunction across fields, i.e. the weight of the matches in the fields other than the best
+	 * one.
+	 */
+	@Nonnull
+	public MultiFieldSearchOptions withTieBreaker(float tieBreaker) {
+		this.tieBreaker = tieBreaker;
+		return this;
+	}
+
+	public float getBoost(@Nonnull String field) {
+		return boosts.getOrDefault(field, 1f);
+	}
+
+	/**
+	 * Returns the number of the search terms required to match for the search of given number of terms.
+	 */
+	public int getMinimumShouldMatch(int terms) {
+		int result = minimumShouldMatch!=null ? minimumShouldMatch : terms * minimumShouldMatchPercent / 100;
+		return Math.max(1, Math.min(terms, result));
+	}
+
+	public float getTieBreaker() {
+		return tieBreaker;
+	}
+
+}
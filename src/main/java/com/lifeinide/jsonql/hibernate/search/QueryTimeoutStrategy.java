@@ -0,0 +1,23 @@
+package com.lifeinide.jsonql.hibernate.search;
+
+/**
+ * Represents the way {@link BaseHibernateSearchFilterQueryBuilder} behaves when the query exceeds its time budget.
+ *
+ * @see BaseHibernateSearchFilterQueryBuilder#withTimeout
+ * @author Lukasz Frankowski
+ */
+public enum QueryTimeoutStrategy {
+
+	/**
+	 * The query is aborted when the time budget is exceeded and {@link javax.persistence.QueryTimeoutException} is thrown from the
+	 * query execution.
+	 */
+	FAIL,
+
+	/**
+	 * The query stops collecting results when the time budget is exceeded and returns the results collected so far. Such a result is
+	 * flagged with {@link BaseHibernateSearchFilterQueryBuilder#hasPartialResults()}.
+	 */
+	PARTIAL_RESULTS;
+
+}
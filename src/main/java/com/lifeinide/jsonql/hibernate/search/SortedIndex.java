@@ -0,0 +1,53 @@
+package com.lifeinide.jsonql.hibernate.search;
+
+import org.apache.lucene.search.SortField;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the sort order of the entity index segments. The field needs to be sortable ({@code @SortableField}), and the index segments
+ * need to be sorted with {@link SortedIndexSupport#sortIndex}. When the query builder is requested to sort by this field in the same
+ * direction, it stops collecting results in the sorted segments as soon as the page is filled, so that the page count is only a lower
+ * bound of the number of results, unless the exact count is requested with
+ * {@link BaseHibernateSearchFilterQueryBuilder#withExactCount()}:
+ *
+ * <pre>{@code
+ * @Indexed
+ * @SortedIndex(field = "created", reverse = true)
+ * public class Article {
+ *
+ *    @Field(analyze = Analyze.NO, norms = Norms.NO)
+ *    @SortableField
+ *    protected LocalDate created;
+ *
+ * }
+ * }</pre>
+ *
+ * @see SortedIndexSupport
+ * @author Lukasz Frankowski
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SortedIndex {
+
+	/**
+	 * The name of the index field the segments are sorted by.
+	 */
+	String field();
+
+	/**
+	 * The type of the field doc values.
+	 */
+	SortField.Type type() default SortField.Type.STRING;
+
+	/**
+	 * Whether the segments are sorted in descending order.
+	 */
+	boolean reverse() default false;
+
+}
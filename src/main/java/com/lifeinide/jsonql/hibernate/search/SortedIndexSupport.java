@@ -0,0 +1,83 @@
+package com.lifeinide.jsonql.hibernate.search;
+
+import com.lifeinide.jsonql.core.enums.SortDirection;
+import com.lifeinide.jsonql.core.intr.Sortable;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SortingMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.Directory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Support for entity indexes with segments sorted according to {@link SortedIndex}.
+ *
+ * <p>
+ * Hibernate Search writes new segments in the indexing order and doesn't allow to configure the merge policy of its index writer, so
+ * the index needs to be re-sorted with {@link #sortIndex} while it's not used by Hibernate Search (for example after mass indexing,
+ * in the maintenance window). The segments written afterwards are not sorted, and the queries just collect all their results as usual.
+ * </p>
+ *
+ * @author Lukasz Frankowski
+ */
+public class SortedIndexSupport {
+
+	protected static final String SORT_MARKER_FIELD = "_sortMarker";
+
+	/**
+	 * Returns the Lucene {@link Sort} of the index segments.
+	 */
+	@Nonnull public static Sort toSort(@Nonnull SortedIndex sortedIndex) {
+		return new Sort(new SortField(sortedIndex.field(), sortedIndex.type(), sortedIndex.reverse()));
+	}
+
+	/**
+	 * Checks whether the requested sort is the same as the index segments sort.
+	 */
+	public static boolean matches(@Nullable SortedIndex sortedIndex, @Nullable Sortable<?> sortable) {
+		if (sortedIndex==null || sortable==null)
+			return false;
+
+		List<? extends com.lifeinide.jsonql.core.intr.SortField> sort = sortable.getSort();
+		if (sort==null || sort.size()!=1)
+			return false;
+
+		com.lifeinide.jsonql.core.intr.SortField sortField = sort.get(0);
+		return sortedIndex.field().equals(sortField.getSortField())
+			&& sortedIndex.reverse()==SortDirection.DESC.equals(sortField.getSortDirection());
+	}
+
+	/**
+	 * Sorts all segments of the index in given directory and merges them into a single sorted segment. The index can't be opened for
+	 * writing by Hibernate Search in the meantime.
+	 */
+	public static void sortIndex(@Nonnull Directory directory, @Nonnull SortedIndex sortedIndex) throws IOException {
+		IndexWriterConfig config = new IndexWriterConfig(new KeywordAnalyzer());
+		config.setOpenMode(IndexWriterConfig.OpenMode.APPEND);
+		config.setMergePolicy(new SortingMergePolicy(new TieredMergePolicy(), toSort(sortedIndex)));
+
+		try (IndexWriter indexWriter = new IndexWriter(directory, config)) {
+			// the merge of a single segment is skipped, so we always add a temporary segment to force the sorting merge
+			Document marker = new Document();
+			marker.add(new StringField(SORT_MARKER_FIELD, SORT_MARKER_FIELD, Field.Store.NO));
+			indexWriter.addDocument(marker);
+			indexWriter.commit();
+
+			indexWriter.deleteDocuments(new Term(SORT_MARKER_FIELD, SORT_MARKER_FIELD));
+			indexWriter.forceMerge(1);
+			indexWriter.commit();
+		}
+	}
+
+}
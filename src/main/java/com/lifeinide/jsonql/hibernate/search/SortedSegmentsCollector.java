@@ -0,0 +1,82 @@
+package com.lifeinide.jsonql.hibernate.search;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.EarlyTerminatingSortingCollector;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHitCountCollector;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Collects the top hits sorted in the same order as the index segments, terminating the collection in each sorted segment as soon as
+ * the requested number of hits is collected. The total count of such collection is only a lower bound of the number of hits, unless
+ * the exact count is requested, in which case all hits are counted in the same pass, without scoring and sorting.
+ *
+ * @see SortedIndex
+ * @author Lukasz Frankowski
+ */
+public class SortedSegmentsCollector implements Collector {
+
+	protected TopFieldCollector topFieldCollector;
+	protected EarlyTerminatingSortingCollector earlyTerminatingCollector;
+	protected TotalHitCountCollector totalHitCountCollector;
+	protected Collector collector;
+
+	public SortedSegmentsCollector(@Nonnull Sort sort, int numHits, boolean exactCount) throws IOException {
+		this.topFieldCollector = TopFieldCollector.create(sort, numHits, true, false, false);
+		this.earlyTerminatingCollector = new EarlyTerminatingSortingCollector(topFieldCollector, sort, numHits, sort);
+		this.totalHitCountCollector = exactCount ? new TotalHitCountCollector() : null;
+		// the terminated collector is removed from the multi collector, which keeps counting the remaining hits
+		this.collector = MultiCollector.wrap(earlyTerminatingCollector, totalHitCountCollector);
+	}
+
+	@Override
+	public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+		return collector.getLeafCollector(context);
+	}
+
+	@Override
+	public boolean needsScores() {
+		return collector.needsScores();
+	}
+
+	/**
+	 * Returns the top hits with the total count.
+	 */
+	@Nonnull
+	public TopFieldDocs topDocs() {
+		TopFieldDocs topDocs = topFieldCollector.topDocs();
+		if (totalHitCountCollector!=null)
+			topDocs.totalHits = totalHitCountCollector.getTotalHits();
+		return topDocs;
+	}
+
+	/**
+	 * Returns {@code true} if the total count is only a lower bound of the number of hits, because the collection has been terminated
+	 * early in some segment.
+	 */
+	public boolean isCountApproximate() {
+		return totalHitCountCollector==null && earlyTerminatingCollector.terminatedEarly();
+	}
+
+	/**
+	 * Merges the top hits of the collectors of all searched slices of the index.
+	 */
+	@Nonnull
+	public static TopFieldDocs merge(@Nonnull Sort sort, int numHits, @Nonnull List<SortedSegmentsCollector> collectors)
+	throws IOException {
+		TopFieldDocs[] topDocs = new TopFieldDocs[collectors.size()];
+		for (int i = 0; i < topDocs.length; i++)
+			topDocs[i] = collectors.get(i).topDocs();
+		return TopDocs.merge(sort, numHits, topDocs);
+	}
+
+}
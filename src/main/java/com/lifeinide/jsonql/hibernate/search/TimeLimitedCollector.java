@@ -0,0 +1,73 @@
+package com.lifeinide.jsonql.hibernate.search;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+/**
+ * Stops the collection of the wrapped collector in all remaining segments as soon as the deadline passes. The results collected until
+ * then are kept in the wrapped collector, and {@link #isTimedOut()} tells whether they are partial.
+ *
+ * @see QueryTimeoutStrategy
+ * @author Lukasz Frankowski
+ */
+public class TimeLimitedCollector extends FilterCollector {
+
+	/** The number of collected documents between the checks of the clock **/
+	protected static final int CHECK_INTERVAL = 256;
+
+	protected long deadline;
+	protected boolean timedOut = false;
+
+	/**
+	 * @param deadline The deadline in terms of {@link System#nanoTime()}.
+	 */
+	public TimeLimitedCollector(@Nonnull Collector in, long deadline) {
+		super(in);
+		this.deadline = deadline;
+	}
+
+	@Nonnull
+	public Collector getCollector() {
+		return in;
+	}
+
+	/**
+	 * Returns {@code true} if the collection has been stopped by the deadline.
+	 */
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	@Override
+	public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+		checkDeadline();
+
+		return new FilterLeafCollector(super.getLeafCollector(context)) {
+
+			protected int collected = 0;
+
+			@Override
+			public void collect(int doc) throws IOException {
+				if (++collected % CHECK_INTERVAL==0)
+					checkDeadline();
+				super.collect(doc);
+			}
+
+		};
+	}
+
+	protected void checkDeadline() {
+		if (timedOut || System.nanoTime() - deadline > 0) {
+			timedOut = true;
+			throw new CollectionTerminatedException();
+		}
+	}
+
+}
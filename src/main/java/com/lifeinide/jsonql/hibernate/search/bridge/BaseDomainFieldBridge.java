@@ -36,6 +36,11 @@ public abstract class BaseDomainFieldBridge<E> implements FieldBridge, StringBri
 	 * True if the underlying storage supports nulls, false if not. In case of plain Lucene index usage it should be set to {@code false}.
 	 * In case of other storage usage supporting nulls (for example Hibernate Search with ElasticSearch backend) should be set to
 	 * {@code true}.
+	 *
+	 * <p>
+	 * Note, that the {@link #NULL_ID} value written to the index is not used for filtering. Null filters are supported with
+	 * {@link NullMarkerBridge} for all field types.
+	 * </p>
 	 */
 	protected boolean supportsNulls() {
 		return false;
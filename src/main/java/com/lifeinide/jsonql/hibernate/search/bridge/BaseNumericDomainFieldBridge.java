@@ -0,0 +1,75 @@
+package com.lifeinide.jsonql.hibernate.search.bridge;
+
+import com.lifeinide.jsonql.hibernate.search.HibernateSearchFilterQueryBuilder;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.hibernate.search.bridge.FieldBridge;
+import org.hibernate.search.bridge.LuceneOptions;
+import org.hibernate.search.bridge.MetadataProvidingFieldBridge;
+import org.hibernate.search.bridge.spi.FieldMetadataBuilder;
+import org.hibernate.search.bridge.spi.FieldType;
+import org.hibernate.search.exception.SearchException;
+
+/**
+ * A {@link FieldBridge} to reflect entity objects with numeric IDs in lucene index. Contrary to {@link BaseDomainFieldBridge} the
+ * entity ID is indexed as a numeric long field with doc values, so that filtering by entity is a numeric lookup and the field can be
+ * used for sorting and grouping. To be implemented by the application.
+ *
+ * @param <E> Entity type.
+ * @see HibernateSearchFilterQueryBuilder How to use this bridge in searchable entities
+ * @author Lukasz Frankowski
+ */
+@SuppressWarnings("unchecked")
+public abstract class BaseNumericDomainFieldBridge<E> implements MetadataProvidingFieldBridge, LongEncodedFieldBridge {
+
+	/**
+	 * Returns the entity ID as {@link Long} so that the full text search index can store it and make searchable.
+	 * @param entity (not null) entity
+	 * @return Numeric entity ID, or {@code null} if the entity is not persisted yet.
+	 */
+	public abstract Long getEntityId(E entity);
+
+	/**
+	 * Checks whether the object is of {@link E} entity type.
+	 * @param entity (nullable) entity
+	 */
+	public abstract boolean isEntity(Object entity);
+
+	@Override
+	public void configureFieldMetadata(String name, FieldMetadataBuilder builder) {
+		builder.field(name, FieldType.LONG).sortable(true);
+	}
+
+	@Override
+	public void set(String name, Object value, Document document, LuceneOptions luceneOptions) {
+		if (value!=null) {
+			Long id = getEntityId((E) value);
+
+			// not persisted entity is indexed as null
+			if (id!=null) {
+				luceneOptions.addNumericFieldToDocument(name, id, document);
+				document.add(new NumericDocValuesField(name, id));
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws SearchException If the value is an entity not persisted yet, which can't be matched by id.
+	 */
+	@Override
+	public long toLong(Object value) {
+		if (isEntity(value)) {
+			Long id = getEntityId((E) value);
+			if (id==null)
+				throw new SearchException(String.format("Can't filter by not persisted entity: %s having no id", value));
+			return id;
+		}
+
+		if (value instanceof Number)
+			return ((Number) value).longValue();
+		return Long.parseLong(value.toString());
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.lifeinide.jsonql.hibernate.search.bridge;
+
+import com.lifeinide.jsonql.hibernate.search.HibernateSearchFilterQueryBuilder;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.util.BytesRef;
+import org.hibernate.search.bridge.FieldBridge;
+import org.hibernate.search.bridge.LuceneOptions;
+import org.hibernate.search.bridge.MetadataProvidingFieldBridge;
+import org.hibernate.search.bridge.StringBridge;
+import org.hibernate.search.bridge.spi.FieldMetadataBuilder;
+import org.hibernate.search.bridge.spi.FieldType;
+import org.hibernate.search.bridge.spi.IgnoreAnalyzerBridge;
+
+/**
+ * A compact {@link FieldBridge} for single-valued keyword filter fields (strings, enums, booleans etc.). Contrary to the usual
+ * {@code @Field(analyze = Analyze.NO, norms = Norms.NO, store = Store.YES)} mapping, the value is indexed with docs-only postings
+ * (no term frequencies nor positions), is not stored and has sorted doc values, which is all that the filters of
+ * {@link HibernateSearchFilterQueryBuilder} need, while making the index smaller. The {@code store} setting of the field is ignored.
+ *
+ * <pre>{@code
+ * @Field(analyze = Analyze.NO, norms = Norms.NO, bridge = @FieldBridge(impl = CompactKeywordFieldBridge.class))
+ * protected MyEnum status;
+ * }</pre>
+ *
+ * @see CompactLongFieldBridge
+ * @see com.lifeinide.jsonql.hibernate.search.IndexFieldStatistics
+ * @author Lukasz Frankowski
+ */
+public class CompactKeywordFieldBridge implements MetadataProvidingFieldBridge, StringBridge, IgnoreAnalyzerBridge {
+
+	@Override
+	public void configureFieldMetadata(String name, FieldMetadataBuilder builder) {
+		builder.field(name, FieldType.STRING).sortable(true);
+	}
+
+	@Override
+	public void set(String name, Object value, Document document, LuceneOptions luceneOptions) {
+		if (value!=null) {
+			String string = objectToString(value);
+			document.add(new StringField(name, string, Field.Store.NO));
+			document.add(new SortedDocValuesField(name, new BytesRef(string)));
+		}
+	}
+
+	@Override
+	public String objectToString(Object object) {
+		if (object == null)
+			return null;
+		if (object instanceof Enum)
+			return ((Enum<?>) object).name();
+		return object.toString();
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.lifeinide.jsonql.hibernate.search.bridge;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.hibernate.search.bridge.FieldBridge;
+import org.hibernate.search.bridge.LuceneOptions;
+import org.hibernate.search.bridge.MetadataProvidingFieldBridge;
+import org.hibernate.search.bridge.spi.FieldMetadataBuilder;
+import org.hibernate.search.bridge.spi.FieldType;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+
+/**
+ * A compact {@link FieldBridge} for single-valued numeric filter fields (integers, longs and dates). The value is indexed as a
+ * numeric long field with docs-only postings, is not stored and has numeric doc values. The {@code store} setting of the field is
+ * ignored. Dates, both {@link Date} and {@code java.time} ones, are indexed as epoch milliseconds, with local dates and times taken
+ * in UTC.
+ *
+ * <pre>{@code
+ * @Field(analyze = Analyze.NO, norms = Norms.NO, bridge = @FieldBridge(impl = CompactLongFieldBridge.class))
+ * protected Long amount;
+ * }</pre>
+ *
+ * @see CompactKeywordFieldBridge
+ * @author Lukasz Frankowski
+ */
+public class CompactLongFieldBridge implements MetadataProvidingFieldBridge, LongEncodedFieldBridge {
+
+	@Override
+	public void configureFieldMetadata(String name, FieldMetadataBuilder builder) {
+		builder.field(name, FieldType.LONG).sortable(true);
+	}
+
+	@Override
+	public void set(String name, Object value, Document document, LuceneOptions luceneOptions) {
+		if (value!=null) {
+			long longValue = toLong(value);
+			document.add(new LongField(name, longValue, Field.Store.NO));
+			document.add(new NumericDocValuesField(name, longValue));
+		}
+	}
+
+	@Override
+	public long toLong(Object value) {
+		if (value instanceof Number)
+			return ((Number) value).longValue();
+		if (value instanceof Date)
+			return ((Date) value).getTime();
+		if (value instanceof Instant)
+			return ((Instant) value).toEpochMilli();
+		if (value instanceof LocalDate)
+			return ((LocalDate) value).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+		if (value instanceof LocalDateTime)
+			return ((LocalDateTime) value).toInstant(ZoneOffset.UTC).toEpochMilli();
+		if (value instanceof OffsetDateTime)
+			return ((OffsetDateTime) value).toInstant().toEpochMilli();
+		if (value instanceof ZonedDateTime)
+			return ((ZonedDateTime) value).toInstant().toEpochMilli();
+		return Long.parseLong(value.toString());
+	}
+
+}
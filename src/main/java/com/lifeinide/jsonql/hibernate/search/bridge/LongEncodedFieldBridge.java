@@ -0,0 +1,20 @@
+package com.lifeinide.jsonql.hibernate.search.bridge;
+
+import com.lifeinide.jsonql.hibernate.search.HibernateSearchFilterQueryBuilder;
+import org.hibernate.search.bridge.FieldBridge;
+
+/**
+ * A {@link FieldBridge} indexing values as numeric long fields with doc values. {@link HibernateSearchFilterQueryBuilder} recognizes
+ * such fields and queries them with numeric queries instead of string term lookups.
+ *
+ * @author Lukasz Frankowski
+ */
+public interface LongEncodedFieldBridge extends FieldBridge {
+
+	/**
+	 * Converts the filter value to the long value stored in the index.
+	 * @param value (not null) value from the filter
+	 */
+	long toLong(Object value);
+
+}
@@ -0,0 +1,112 @@
+package com.lifeinide.jsonql.hibernate.search.bridge;
+
+import com.lifeinide.jsonql.hibernate.search.HibernateSearch;
+import com.lifeinide.jsonql.hibernate.search.HibernateSearchFilterQueryBuilder;
+import org.apache.lucene.document.Document;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.Fields;
+import org.hibernate.search.bridge.FieldBridge;
+import org.hibernate.search.bridge.LuceneOptions;
+
+import java.beans.Introspector;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A class-level {@link FieldBridge} marking null values of all {@link Field} annotated properties of the entity. For each property
+ * having {@code null} value the name of its index field is indexed as a term of {@link HibernateSearch#FIELD_NULLS} field, so that
+ * {@link HibernateSearchFilterQueryBuilder} can filter nulls using a single term query. To be used on the entity class:
+ *
+ * <pre>{@code
+ * @ClassBridge(name = HibernateSearch.FIELD_NULLS, impl = NullMarkerBridge.class, analyze = Analyze.NO, norms = Norms.NO)
+ * public class MyEntity {
+ * }
+ * }</pre>
+ *
+ * @see HibernateSearchFilterQueryBuilder How to use this bridge in searchable entities
+ * @author Lukasz Frankowski
+ */
+public class NullMarkerBridge implements FieldBridge {
+
+	protected static final Map<Class<?>, List<IndexedProperty>> properties = new ConcurrentHashMap<>();
+
+	@Override
+	public void set(String name, Object value, Document document, LuceneOptions luceneOptions) {
+		if (value instanceof HibernateProxy)
+			value = ((HibernateProxy) value).getHibernateLazyInitializer().getImplementation();
+		if (value==null)
+			return;
+
+		for (IndexedProperty property: properties.computeIfAbsent(value.getClass(), NullMarkerBridge::findIndexedProperties))
+			if (property.get(value)==null)
+				for (String fieldName: property.fieldNames)
+					luceneOptions.addFieldToDocument(name, fieldName, document);
+	}
+
+	protected static List<IndexedProperty> findIndexedProperties(Class<?> entityClass) {
+		List<IndexedProperty> result = new ArrayList<>();
+
+		for (Class<?> c = entityClass; c!=null && !Object.class.equals(c); c = c.getSuperclass()) {
+			for (java.lang.reflect.Field field: c.getDeclaredFields())
+				if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive())
+					addIndexedProperty(result, field, field.getName());
+
+			for (Method method: c.getDeclaredMethods())
+				if (!Modifier.isStatic(method.getModifiers()) && method.getParameterCount()==0 && !method.getReturnType().isPrimitive()
+						&& method.getName().startsWith("get") && method.getName().length() > 3)
+					addIndexedProperty(result, method, Introspector.decapitalize(method.getName().substring(3)));
+		}
+
+		return Collections.unmodifiableList(result);
+	}
+
+	protected static <T extends AccessibleObject & Member> void addIndexedProperty(List<IndexedProperty> result, T member,
+																				  String propertyName) {
+		List<String> fieldNames = new ArrayList<>();
+
+		Field field = member.getAnnotation(Field.class);
+		if (field!=null)
+			fieldNames.add(field.name().isEmpty() ? propertyName : field.name());
+
+		Fields fields = member.getAnnotation(Fields.class);
+		if (fields!=null)
+			for (Field f: fields.value())
+				fieldNames.add(f.name().isEmpty() ? propertyName : f.name());
+
+		if (!fieldNames.isEmpty()) {
+			member.setAccessible(true);
+			result.add(new IndexedProperty(member, fieldNames));
+		}
+	}
+
+	protected static class IndexedProperty {
+
+		protected final Member member;
+		protected final List<String> fieldNames;
+
+		public IndexedProperty(Member member, List<String> fieldNames) {
+			this.member = member;
+			this.fieldNames = fieldNames;
+		}
+
+		public Object get(Object entity) {
+			try {
+				if (member instanceof Method)
+					return ((Method) member).invoke(entity);
+				return ((java.lang.reflect.Field) member).get(entity);
+			} catch (ReflectiveOperationException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,556 @@
+package com.lifeinide.jsonql.hibernate.search.indexing;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.search.exception.SearchException;
+import org.hibernate.search.jpa.FullTextEntityManager;
+import org.hibernate.search.jpa.Search;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Indexes entities asynchronously in background worker threads, so that the index writer latency is not added to write transactions.
+ * To be used with Hibernate Search automatic indexing disabled:
+ *
+ * <pre>{@code
+ * <property name="hibernate.search.indexing_strategy" value="manual"/>
+ * }</pre>
+ *
+ * and registered as the post-commit event listener with {@link #register(EntityManagerFactory)}:
+ *
+ * <pre>{@code
+ * AsyncIndexer asyncIndexer = new AsyncIndexer(entityManagerFactory, 10000, 2).register(entityManagerFactory);
+ * }</pre>
+ *
+ * <p>
+ * Pending works are merged per entity id, so that only the latest state of each entity is indexed. The queue is bounded, and when
+ * it's full the committing threads are blocked until the workers catch up (backpressure), instead of growing the memory usage without
+ * bound. Each enqueued change gets an increasing sequence number, which is tracked until the work including it is indexed. The
+ * indexer exposes the {@link #getIndexedSequence() watermark} below which all changes have been indexed, together with the
+ * {@link #getQueueDepth() queue depth} and the {@link #getLag() lag}. A search which needs to see the changes just committed by the
+ * user can wait for them with {@link ConsistencyToken}, which waits only for these changes and not for the watermark.
+ * </p>
+ *
+ * <p>
+ * Works for the same entity are never indexed concurrently: a work enqueued while the previous work for the same entity is being
+ * indexed waits until that batch finishes. A failed batch is retried up to {@link #withMaxAttempts max attempts}, after which its works
+ * are recorded as {@link #getFailedCount() failed}. Failed works are not counted as indexed and hold the watermark until they are
+ * superseded by a new work for the same entity or {@link #retryFailed() retried}, but they fail only the consistency tokens including
+ * their changes.
+ * </p>
+ *
+ * @author Lukasz Frankowski
+ */
+public class AsyncIndexer implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(AsyncIndexer.class);
+
+	public static final int DEFAULT_BATCH_SIZE = 100;
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	/**
+	 * Indexing operation for the entity.
+	 */
+	public enum Operation {
+		INDEX, DELETE
+	}
+
+	protected static class Key {
+
+		protected Class<?> entityClass;
+		protected Serializable id;
+
+		public Key(Class<?> entityClass, Serializable id) {
+			this.entityClass = entityClass;
+			this.id = id;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this==o) return true;
+			if (!(o instanceof Key)) return false;
+			Key key = (Key) o;
+			return entityClass.equals(key.entityClass) && id.equals(key.id);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(entityClass, id);
+		}
+
+	}
+
+	protected static class Work {
+
+		protected Key key;
+		protected Operation operation;
+		protected long sequence;
+		protected long enqueuedAt;
+		protected int attempts = 0;
+
+		/** Sequences of all changes merged into this work **/
+		protected List<Long> sequences = new ArrayList<>();
+
+		public Work(Key key, Operation operation, long sequence, long enqueuedAt) {
+			this.key = key;
+			this.operation = operation;
+			this.sequence = sequence;
+			this.enqueuedAt = enqueuedAt;
+			this.sequences.add(sequence);
+		}
+
+	}
+
+	/** Sequences of the changes enqueued in the sessions until the token is taken, weakly keyed in case it never is **/
+	protected final Map<SessionImplementor, List<Long>> sessionSequences = new WeakHashMap<>();
+
+	protected EntityManagerFactory entityManagerFactory;
+	protected int capacity;
+	protected int batchSize = DEFAULT_BATCH_SIZE;
+	protected int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+	protected List<Thread> workers = new ArrayList<>();
+
+	protected ReentrantLock lock = new ReentrantLock();
+	protected Condition notFull = lock.newCondition();
+	protected Condition notEmpty = lock.newCondition();
+	protected Condition indexed = lock.newCondition();
+
+	/** Pending works in the enqueue order **/
+	protected LinkedHashMap<Key, Work> pending = new LinkedHashMap<>();
+
+	/** Entities of the works being indexed **/
+	protected Set<Key> inProgress = new HashSet<>();
+
+	/** Works failed after all attempts **/
+	protected LinkedHashMap<Key, Work> failed = new LinkedHashMap<>();
+
+	/** Pending, in progress and failed works by the sequences of their changes **/
+	protected TreeMap<Long, Work> outstanding = new TreeMap<>();
+
+	protected long lastSequence = 0;
+	protected long indexedCount = 0;
+	protected boolean closed = false;
+
+	/**
+	 * @param capacity Maximum number of pending works.
+	 * @param threads Number of indexing worker threads.
+	 */
+	public AsyncIndexer(@Nonnull EntityManagerFactory entityManagerFactory, int capacity, int threads) {
+		this.entityManagerFactory = entityManagerFactory;
+		this.capacity = capacity;
+
+		for (int i = 0; i < threads; i++) {
+			Thread worker = new Thread(this::work, String.format("%s-%d", getClass().getSimpleName(), i));
+			worker.setDaemon(true);
+			workers.add(worker);
+			worker.start();
+		}
+	}
+
+	/**
+	 * Sets the maximum number of works indexed in a single worker transaction.
+	 */
+	@Nonnull
+	public AsyncIndexer withBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Sets the number of attempts to index a batch before its works are recorded as failed.
+	 */
+	@Nonnull
+	public AsyncIndexer withMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+		return this;
+	}
+
+	/**
+	 * Registers {@link AsyncIndexingEventListener} enqueuing the works for all committed changes of indexed entities.
+	 */
+	@Nonnull
+	public AsyncIndexer register(@Nonnull EntityManagerFactory entityManagerFactory) {
+		AsyncIndexingEventListener listener = new AsyncIndexingEventListener(this);
+		EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+			.getService(EventListenerRegistry.class);
+
+		registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+		registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+		registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+
+		return this;
+	}
+
+	/**
+	 * Enqueues the indexing work for the change committed in the session, so that it's included in the session
+	 * {@link #getConsistencyToken(EntityManager) consistency token}.
+	 *
+	 * @return The sequence number of the change.
+	 */
+	public long enqueue(@Nonnull SessionImplementor session, @Nonnull Class<?> entityClass, @Nonnull Serializable id,
+						@Nonnull Operation operation) {
+		long sequence = enqueue(entityClass, id, operation);
+
+		synchronized (sessionSequences) {
+			sessionSequences.computeIfAbsent(session, s -> new ArrayList<>()).add(sequence);
+		}
+
+		return sequence;
+	}
+
+	/**
+	 * Enqueues the indexing work, merging it with the work already pending for the same entity. If the queue is full, blocks until
+	 * the workers make room for it.
+	 *
+	 * @return The sequence number of the change.
+	 */
+	public long enqueue(@Nonnull Class<?> entityClass, @Nonnull Serializable id, @Nonnull Operation operation) {
+		Key key = new Key(entityClass, id);
+		long sequence;
+
+		lock.lock();
+		try {
+			while (!closed && !pending.containsKey(key) && pending.size() >= capacity)
+				notFull.await();
+
+			if (closed)
+				throw new SearchException(String.format("%s is closed", getClass().getSimpleName()));
+
+			sequence = ++lastSequence;
+
+			Work work = pending.remove(key);
+			if (work==null)
+				work = new Work(key, operation, sequence, System.currentTimeMillis());
+			else {
+				work.operation = operation;
+				work.sequence = sequence;
+				work.sequences.add(sequence);
+				work.attempts = 0;
+			}
+
+			// the failed work is superseded by the new state of the entity, which includes its changes
+			Work failedWork = failed.remove(key);
+			if (failedWork!=null)
+				supersede(failedWork, work);
+
+			pending.put(key, work);
+			outstanding.put(sequence, work);
+			notEmpty.signal();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SearchException(String.format("Interrupted while enqueuing indexing work for: %s", entityClass.getSimpleName()), e);
+		} finally {
+			lock.unlock();
+		}
+
+		return sequence;
+	}
+
+	/**
+	 * Moves the changes of the work to the work including the newer state of the same entity.
+	 */
+	protected void supersede(Work work, Work newWork) {
+		for (Long sequence: work.sequences)
+			outstanding.put(sequence, newWork);
+		newWork.sequences.addAll(work.sequences);
+		newWork.enqueuedAt = Math.min(newWork.enqueuedAt, work.enqueuedAt);
+	}
+
+	/**
+	 * Returns the token identifying the changes committed in the session of the entity manager since the previous token has been
+	 * taken, to be obtained after the transaction commit. The changes are forgotten by the session once the token is taken.
+	 *
+	 * @see ConsistencyToken
+	 */
+	@Nonnull
+	public ConsistencyToken getConsistencyToken(@Nonnull EntityManager entityManager) {
+		List<Long> sequences;
+		synchronized (sessionSequences) {
+			sequences = sessionSequences.remove(entityManager.unwrap(SessionImplementor.class));
+		}
+
+		return sequences==null
+			? new ConsistencyToken(this)
+			: new ConsistencyToken(this, sequences.stream().mapToLong(Long::longValue).toArray());
+	}
+
+	/**
+	 * Returns the token for the changes returned from {@link #enqueue} or obtained from {@link ConsistencyToken#getSequences()}.
+	 */
+	@Nonnull
+	public ConsistencyToken getConsistencyToken(@Nonnull long... sequences) {
+		return new ConsistencyToken(this, sequences);
+	}
+
+	/**
+	 * Returns the sequence of the last enqueued work.
+	 */
+	public long getLastSequence() {
+		lock.lock();
+		try {
+			return lastSequence;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the watermark sequence, such that all changes with lower or equal sequence have been indexed.
+	 */
+	public long getIndexedSequence() {
+		lock.lock();
+		try {
+			return outstanding.isEmpty() ? lastSequence : outstanding.firstKey() - 1;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns {@code true} if all the changes with given sequences have been indexed, regardless of any other changes.
+	 */
+	public boolean isIndexed(@Nonnull long... sequences) {
+		lock.lock();
+		try {
+			for (long sequence: sequences)
+				if (outstanding.containsKey(sequence))
+					return false;
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until all the changes with given sequences have been indexed, regardless of any other changes.
+	 *
+	 * @return {@code true} if the changes have been indexed, {@code false} if the wait timed out or any of the changes failed.
+	 */
+	public boolean awaitIndexed(long timeout, @Nonnull TimeUnit unit, @Nonnull long... sequences) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+
+		lock.lock();
+		try {
+			for (long sequence: sequences) {
+				Work work;
+				while ((work = outstanding.get(sequence))!=null) {
+					if (nanos <= 0 || isFailed(work))
+						return false;
+					nanos = indexed.awaitNanos(nanos);
+				}
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of pending works.
+	 */
+	public int getQueueDepth() {
+		lock.lock();
+		try {
+			return pending.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the age in milliseconds of the oldest work not indexed yet, or {@code 0} if the index is up to date.
+	 */
+	public long getLag() {
+		lock.lock();
+		try {
+			long oldest = Long.MAX_VALUE;
+			for (Work work: outstanding.values())
+				oldest = Math.min(oldest, work.enqueuedAt);
+			return oldest==Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of works failed after all attempts, and not superseded or retried yet.
+	 */
+	public int getFailedCount() {
+		lock.lock();
+		try {
+			return failed.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Enqueues all failed works again.
+	 */
+	public void retryFailed() {
+		lock.lock();
+		try {
+			for (Work work: failed.values()) {
+				work.attempts = 0;
+				pending.put(work.key, work);
+			}
+			failed.clear();
+			notEmpty.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	protected boolean isFailed(Work work) {
+		return failed.get(work.key)==work;
+	}
+
+	/**
+	 * Returns the number of works indexed so far.
+	 */
+	public long getIndexedCount() {
+		lock.lock();
+		try {
+			return indexedCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	protected void work() {
+		while (true) {
+			List<Work> batch = new ArrayList<>();
+
+			lock.lock();
+			try {
+				while (true) {
+					// the works for entities being indexed by other workers are left pending until their batches finish
+					Iterator<Work> iterator = pending.values().iterator();
+					while (iterator.hasNext() && batch.size() < batchSize) {
+						Work work = iterator.next();
+						if (inProgress.add(work.key)) {
+							batch.add(work);
+							iterator.remove();
+						}
+					}
+
+					if (!batch.isEmpty())
+						break;
+					if (closed && pending.isEmpty())
+						return; // closed and drained
+
+					notEmpty.await();
+				}
+				notFull.signalAll();
+			} catch (InterruptedException e) {
+				return;
+			} finally {
+				lock.unlock();
+			}
+
+			boolean success = false;
+			try {
+				index(batch);
+				success = true;
+			} catch (RuntimeException e) {
+				logger.error("Error indexing {} entities", batch.size(), e);
+			} finally {
+				lock.lock();
+				try {
+					for (Work work: batch) {
+						inProgress.remove(work.key);
+
+						if (success)
+							outstanding.keySet().removeAll(work.sequences);
+						else if (pending.containsKey(work.key))
+							supersede(work, pending.get(work.key));
+						else if (++work.attempts < maxAttempts)
+							pending.put(work.key, work);
+						else {
+							logger.error("Failed indexing {} with id: {} after {} attempts",
+								work.key.entityClass.getSimpleName(), work.key.id, work.attempts);
+							failed.put(work.key, work);
+						}
+					}
+
+					if (success)
+						indexedCount += batch.size();
+					notEmpty.signalAll();
+					indexed.signalAll();
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	protected void index(List<Work> batch) {
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		try {
+			FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(entityManager);
+			entityManager.getTransaction().begin();
+
+			for (Work work: batch) {
+				Object entity = Operation.INDEX.equals(work.operation)
+					? entityManager.find(work.key.entityClass, work.key.id)
+					: null;
+
+				if (entity!=null)
+					fullTextEntityManager.index(entity);
+				else
+					fullTextEntityManager.purge(work.key.entityClass, work.key.id);
+			}
+
+			fullTextEntityManager.flushToIndexes();
+			entityManager.getTransaction().commit();
+		} finally {
+			if (entityManager.getTransaction().isActive())
+				entityManager.getTransaction().rollback();
+			entityManager.close();
+		}
+	}
+
+	/**
+	 * Stops accepting new works and waits until the workers index all pending works. If the calling thread is interrupted, it stops
+	 * waiting with the interrupt flag restored, and the workers finish in the background.
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+
+		try {
+			for (Thread worker: workers)
+				worker.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
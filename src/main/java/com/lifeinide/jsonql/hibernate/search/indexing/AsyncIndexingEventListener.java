@@ -0,0 +1,84 @@
+package com.lifeinide.jsonql.hibernate.search.indexing;
+
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.search.annotations.Indexed;
+
+import javax.annotation.Nonnull;
+import java.io.Serializable;
+
+/**
+ * Enqueues committed changes of {@link Indexed} entities to {@link AsyncIndexer}.
+ *
+ * @see AsyncIndexer#register
+ * @author Lukasz Frankowski
+ */
+public class AsyncIndexingEventListener
+implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+	private static final long serialVersionUID = 1L;
+
+	protected transient AsyncIndexer asyncIndexer;
+
+	public AsyncIndexingEventListener(@Nonnull AsyncIndexer asyncIndexer) {
+		this.asyncIndexer = asyncIndexer;
+	}
+
+	protected boolean isIndexed(EntityPersister persister) {
+		Class<?> mappedClass = persister.getMappedClass();
+		return mappedClass.isAnnotationPresent(Indexed.class);
+	}
+
+	protected void enqueue(EventSource session, EntityPersister persister, Serializable id, AsyncIndexer.Operation operation) {
+		if (isIndexed(persister))
+			asyncIndexer.enqueue(session, persister.getMappedClass(), id, operation);
+	}
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		enqueue(event.getSession(), event.getPersister(), event.getId(), AsyncIndexer.Operation.INDEX);
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		enqueue(event.getSession(), event.getPersister(), event.getId(), AsyncIndexer.Operation.INDEX);
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		enqueue(event.getSession(), event.getPersister(), event.getId(), AsyncIndexer.Operation.DELETE);
+	}
+
+	@Override
+	public void onPostInsertCommitFailed(PostInsertEvent event) {
+	}
+
+	@Override
+	public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+	}
+
+	@Override
+	public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+	}
+
+	@Override
+	public boolean requiresPostCommitHandling(EntityPersister persister) {
+		return isIndexed(persister);
+	}
+
+	/**
+	 * @deprecated Still abstract in Hibernate ORM 5.4, use {@link #requiresPostCommitHandling(EntityPersister)}.
+	 */
+	@Deprecated
+	@Override
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		return requiresPostCommitHandling(persister);
+	}
+
+}
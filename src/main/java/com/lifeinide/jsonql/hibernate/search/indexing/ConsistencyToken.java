@@ -0,0 +1,55 @@
+package com.lifeinide.jsonql.hibernate.search.indexing;
+
+import javax.annotation.Nonnull;
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Identifies the changes committed in the session and enqueued to {@link AsyncIndexer}, so that the following search can wait until
+ * they are indexed (read-your-writes consistency). Obtained with {@link AsyncIndexer#getConsistencyToken(EntityManager)} after the
+ * commit, and passed to {@link com.lifeinide.jsonql.hibernate.search.BaseHibernateSearchFilterQueryBuilder#withConsistency}. The
+ * token waits only for its own changes, regardless of other changes indexed concurrently or failed. It can be also transferred between
+ * requests with {@link #getSequences()} and restored with {@link AsyncIndexer#getConsistencyToken(long...)}.
+ *
+ * @author Lukasz Frankowski
+ */
+public class ConsistencyToken {
+
+	protected AsyncIndexer asyncIndexer;
+	protected long[] sequences;
+
+	public ConsistencyToken(@Nonnull AsyncIndexer asyncIndexer, @Nonnull long... sequences) {
+		this.asyncIndexer = asyncIndexer;
+		this.sequences = sequences;
+	}
+
+	@Nonnull
+	public long[] getSequences() {
+		return sequences.clone();
+	}
+
+	/**
+	 * Returns {@code true} if the changes identified by this token are already indexed. The changes which failed to be indexed are
+	 * not.
+	 */
+	public boolean isIndexed() {
+		return asyncIndexer.isIndexed(sequences);
+	}
+
+	/**
+	 * Waits until the changes identified by this token are indexed.
+	 *
+	 * @return {@code true} if the changes have been indexed, {@code false} if the wait timed out or any of the changes failed to be
+	 * indexed.
+	 */
+	public boolean await(long timeout, @Nonnull TimeUnit unit) throws InterruptedException {
+		return asyncIndexer.awaitIndexed(timeout, unit, sequences);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(sequences);
+	}
+
+}
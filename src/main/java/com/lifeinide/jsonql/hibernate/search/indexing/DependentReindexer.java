@@ -0,0 +1,238 @@
+package com.lifeinide.jsonql.hibernate.search.indexing;
+
+import com.lifeinide.jsonql.hibernate.search.HibernateSearch;
+import com.lifeinide.jsonql.hibernate.search.HibernateSearchQueryBuilderContext;
+import com.lifeinide.jsonql.hibernate.search.LuceneIndexSearch;
+import com.lifeinide.jsonql.hibernate.search.bridge.BaseDomainFieldBridge;
+import com.lifeinide.jsonql.hibernate.search.bridge.LongEncodedFieldBridge;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.TermsQuery;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.NumericUtils;
+import org.hibernate.Transaction;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.search.bridge.FieldBridge;
+import org.hibernate.search.bridge.StringBridge;
+import org.hibernate.search.exception.SearchException;
+import org.hibernate.search.jpa.FullTextEntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.persistence.EntityManager;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Reindexes entities depending on changed associated entities, which are indexed in the dependent entities with
+ * {@link BaseDomainFieldBridge} or {@link LongEncodedFieldBridge} fields. Instead of reindexing dependents one by one for each change,
+ * the changed associated entities are collected across the transaction and deduplicated, the dependent entities are found with a single
+ * index query per field, reloaded in batches and indexed in a single bulk indexing work:
+ *
+ * <pre>{@code
+ * DependentReindexer reindexer = DependentReindexer.forTransaction(entityManager);
+ * reindexer.markDirty(MyEntity.class, "associatedEntity", associatedEntity);
+ * // ... more changes, the dependents are reindexed just before the transaction commit
+ * }</pre>
+ *
+ * The reindexer can be also used without the transaction binding, by calling {@link #reindex()} explicitly.
+ *
+ * @author Lukasz Frankowski
+ */
+public class DependentReindexer {
+
+	private static final Logger logger = LoggerFactory.getLogger(DependentReindexer.class);
+
+	public static final int DEFAULT_BATCH_SIZE = 100;
+
+	protected HibernateSearch hibernateSearch;
+	protected int batchSize = DEFAULT_BATCH_SIZE;
+	protected Map<Class<?>, HibernateSearchQueryBuilderContext<?>> contexts = new HashMap<>();
+
+	/** Dirty associated entity values by the dependent entity class and the field **/
+	protected Map<Class<?>, Map<String, Set<Object>>> dirtyValues = new LinkedHashMap<>();
+
+	protected int reindexedCount = 0;
+
+	/** Reindexers bound to the transactions in progress, weakly keyed in case of the transaction never completed **/
+	protected static final Map<Transaction, DependentReindexer> transactionReindexers = new WeakHashMap<>();
+
+	public DependentReindexer(@Nonnull EntityManager entityManager) {
+		this.hibernateSearch = new HibernateSearch(entityManager);
+	}
+
+	/**
+	 * Returns the reindexer bound to the current transaction of the entity manager, which reindexes all collected dependents just
+	 * before the transaction commit. The reindexer is created and registered in the transaction on the first call, and all following
+	 * calls in the same transaction return the same reindexer.
+	 */
+	@Nonnull
+	public static DependentReindexer forTransaction(@Nonnull EntityManager entityManager) {
+		SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+		Transaction transaction = session.getTransaction();
+
+		synchronized (transactionReindexers) {
+			DependentReindexer reindexer = transactionReindexers.get(transaction);
+			if (reindexer!=null)
+				return reindexer;
+
+			// registered in the same queue as the Hibernate Search synchronization of the local transaction, so that the indexing works
+			// added when reindexing are processed by the synchronization registered after this one
+			DependentReindexer newReindexer = new DependentReindexer(entityManager);
+			session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) s -> newReindexer.reindex());
+			session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, s) -> {
+				synchronized (transactionReindexers) {
+					transactionReindexers.remove(transaction);
+				}
+
+				if (!success)
+					newReindexer.clear();
+			});
+
+			transactionReindexers.put(transaction, newReindexer);
+			return newReindexer;
+		}
+	}
+
+	/**
+	 * Sets the number of dependent entities loaded from the database at once. Each batch is flushed to the indexes, and the loaded
+	 * entities not managed by the session before are detached, so that the persistence context doesn't grow with the number of
+	 * reindexed dependents.
+	 */
+	@Nonnull
+	public DependentReindexer withBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Marks the associated entity as changed, so that all entities of {@code dependentClass} referencing it in the {@code field} are
+	 * reindexed.
+	 */
+	@Nonnull
+	public DependentReindexer markDirty(@Nonnull Class<?> dependentClass, @Nonnull String field, @Nonnull Object associatedEntity) {
+		dirtyValues
+			.computeIfAbsent(dependentClass, cls -> new LinkedHashMap<>())
+			.computeIfAbsent(field, f -> new LinkedHashSet<>())
+			.add(associatedEntity);
+		return this;
+	}
+
+	/**
+	 * Returns the number of dependent entities reindexed so far.
+	 */
+	public int getReindexedCount() {
+		return reindexedCount;
+	}
+
+	public void clear() {
+		dirtyValues.clear();
+	}
+
+	/**
+	 * Reindexes dependents of all entities marked as dirty so far.
+	 *
+	 * @return The number of reindexed dependent entities.
+	 */
+	public int reindex() {
+		if (dirtyValues.isEmpty())
+			return 0;
+
+		FullTextEntityManager fullTextEntityManager = hibernateSearch.fullTextEntityManager();
+		SessionImplementor session = hibernateSearch.entityManager().unwrap(SessionImplementor.class);
+		PersistenceContext persistenceContext = session.getPersistenceContext();
+		int count = 0;
+
+		for (Map.Entry<Class<?>, Map<String, Set<Object>>> entry: dirtyValues.entrySet()) {
+			List<Serializable> ids = findDependentIds(entry.getKey(), entry.getValue());
+			EntityPersister persister = session.getFactory().getMetamodel().entityPersister(entry.getKey());
+
+			for (int i = 0; i < ids.size(); i += batchSize) {
+				List<Serializable> batch = ids.subList(i, Math.min(ids.size(), i + batchSize));
+				Set<Serializable> unmanagedIds = new HashSet<>();
+				for (Serializable id: batch)
+					if (persistenceContext.getEntity(session.generateEntityKey(id, persister))==null)
+						unmanagedIds.add(id);
+
+				List<?> entities = session.byMultipleIds(entry.getKey()).multiLoad(batch);
+				for (Object entity: entities)
+					if (entity!=null) {
+						fullTextEntityManager.index(entity);
+						count++;
+					}
+
+				// the indexing works need the entities until they are flushed
+				fullTextEntityManager.flushToIndexes();
+				for (Object entity: entities)
+					if (entity!=null && unmanagedIds.contains(session.getIdentifier(entity)))
+						session.evict(entity);
+			}
+		}
+
+		dirtyValues.clear();
+		reindexedCount += count;
+
+		if (logger.isDebugEnabled())
+			logger.debug("Reindexed {} dependent entities", count);
+
+		return count;
+	}
+
+	/**
+	 * Finds deduplicated ids of the dependent entities referencing any of dirty associated entities in any of the fields.
+	 */
+	protected List<Serializable> findDependentIds(Class<?> dependentClass, Map<String, Set<Object>> fieldValues) {
+		HibernateSearchQueryBuilderContext<?> context = contexts.computeIfAbsent(dependentClass,
+			cls -> new HibernateSearchQueryBuilderContext<>(null, cls, hibernateSearch));
+
+		BooleanQuery.Builder builder = new BooleanQuery.Builder();
+		for (Map.Entry<String, Set<Object>> entry: fieldValues.entrySet())
+			builder.add(createTermsQuery(dependentClass, entry.getKey(), context.getFieldBridge(entry.getKey()), entry.getValue()),
+				BooleanClause.Occur.SHOULD);
+		Query query = builder.build();
+
+		LuceneIndexSearch<?> indexSearch = context.getIndexSearch();
+		Set<Serializable> ids = new LinkedHashSet<>();
+		indexSearch.search(null, searcher -> {
+			indexSearch.collectIds(searcher, query, ids::add);
+			return null;
+		});
+
+		return new ArrayList<>(ids);
+	}
+
+	protected Query createTermsQuery(Class<?> dependentClass, String field, FieldBridge fieldBridge, Set<Object> values) {
+		List<BytesRef> terms = new ArrayList<>(values.size());
+
+		for (Object value: values) {
+			if (fieldBridge instanceof LongEncodedFieldBridge) {
+				BytesRefBuilder term = new BytesRefBuilder();
+				NumericUtils.longToPrefixCoded(((LongEncodedFieldBridge) fieldBridge).toLong(value), 0, term);
+				terms.add(term.toBytesRef());
+			} else if (fieldBridge instanceof StringBridge) {
+				terms.add(new BytesRef(((StringBridge) fieldBridge).objectToString(value)));
+			} else
+				throw new SearchException(String.format("Can't find dependents of: %s by field: %s, which is not an entity field",
+					dependentClass.getSimpleName(), field));
+		}
+
+		return new TermsQuery(field, terms);
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.lifeinide.jsonql.hibernate.search.sharding;
+
+import com.lifeinide.jsonql.hibernate.search.BaseHibernateSearchFilterQueryBuilder;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
+import org.hibernate.search.exception.SearchException;
+import org.hibernate.search.filter.FullTextFilterImplementor;
+import org.hibernate.search.filter.ShardSensitiveOnlyFilter;
+import org.hibernate.search.spi.BuildContext;
+import org.hibernate.search.store.ShardIdentifierProviderTemplate;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Dynamic sharding strategy keeping documents with different values of a filter field (like tenant) in separate index shards. The
+ * shard identifier is the value of this field. To be configured for the entity index:
+ *
+ * <pre>{@code
+ * hibernate.search.MyEntity.sharding_strategy = com.lifeinide.jsonql.hibernate.search.sharding.FieldShardIdentifierProvider
+ * hibernate.search.MyEntity.sharding_strategy.field = tenant
+ * hibernate.search.MyEntity.sharding_strategy.initial_shards = tenant1,tenant2
+ * }</pre>
+ *
+ * The {@code initial_shards} should list the shards already existing in the index, so that they are searched by global queries after
+ * the restart. New shards are added automatically when the first document with a new field value is indexed.
+ *
+ * <p>
+ * To route queries to a single shard the entity needs to define the shard filter:
+ * <pre>{@code
+ * @Indexed
+ * @FullTextFilterDef(name = FieldShardIdentifierProvider.FILTER_NAME, impl = ShardSensitiveOnlyFilter.class)
+ * public class MyEntity {
+ * }
+ * }</pre>
+ *
+ * And the query builder needs to be executed with the shard key:
+ * <pre>{@code
+ * new HibernateSearchFilterQueryBuilder(...).withShard("tenant1").list(...);
+ * }</pre>
+ * </p>
+ *
+ * @see ShardSensitiveOnlyFilter
+ * @see BaseHibernateSearchFilterQueryBuilder#withShard
+ * @author Lukasz Frankowski
+ */
+public class FieldShardIdentifierProvider extends ShardIdentifierProviderTemplate {
+
+	public static final String FIELD_PROPERTY = "sharding_strategy.field";
+	public static final String INITIAL_SHARDS_PROPERTY = "sharding_strategy.initial_shards";
+
+	/** The name of the full text filter routing the query to a single shard **/
+	public static final String FILTER_NAME = "shard";
+
+	/** The name of the shard filter parameter with the shard key **/
+	public static final String FILTER_PARAMETER = "value";
+
+	/** The shard for documents having no value of the sharding field **/
+	public static final String NULL_SHARD = "_none";
+
+	protected String field;
+
+	@Override
+	protected Set<String> loadInitialShardNames(Properties properties, BuildContext buildContext) {
+		field = properties.getProperty(FIELD_PROPERTY);
+		if (field==null)
+			throw new SearchException(String.format("%s property is required for %s", FIELD_PROPERTY, getClass().getSimpleName()));
+
+		Set<String> shards = new LinkedHashSet<>();
+		String initialShards = properties.getProperty(INITIAL_SHARDS_PROPERTY);
+		if (initialShards!=null)
+			for (String shard: initialShards.split(","))
+				if (!shard.trim().isEmpty())
+					shards.add(shard.trim());
+
+		return shards;
+	}
+
+	@Override
+	public String getShardIdentifier(Class<?> entityType, Serializable id, String idAsString, Document document) {
+		IndexableField indexableField = document.getField(field);
+
+		String shard = NULL_SHARD;
+		if (indexableField!=null && indexableField.stringValue()!=null)
+			shard = indexableField.stringValue();
+		else if (indexableField!=null && indexableField.numericValue()!=null)
+			shard = indexableField.numericValue().toString();
+
+		addShard(shard);
+		return shard;
+	}
+
+	@Override
+	public Set<String> getShardIdentifiersForQuery(FullTextFilterImplementor[] fullTextFilters) {
+		if (fullTextFilters!=null)
+			for (FullTextFilterImplementor filter: fullTextFilters)
+				if (FILTER_NAME.equals(filter.getName())) {
+					String shard = String.valueOf(filter.getParameter(FILTER_PARAMETER));
+					return getAllShardIdentifiers().contains(shard) ? Collections.singleton(shard) : Collections.emptySet();
+				}
+
+		return getAllShardIdentifiers();
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.lifeinide.jsonql.hibernate.search.store;
+
+import org.apache.lucene.store.FSDirectory;
+import org.hibernate.search.exception.SearchException;
+import org.hibernate.search.indexes.spi.DirectoryBasedIndexManager;
+import org.hibernate.search.indexes.spi.IndexManager;
+import org.hibernate.search.spi.BuildContext;
+import org.hibernate.search.spi.IndexedTypeIdentifier;
+import org.hibernate.search.spi.SearchIntegrator;
+import org.hibernate.search.store.DirectoryProvider;
+import org.hibernate.search.store.spi.DirectoryHelper;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Keeps the index fully resident in the heap memory, for small and frequently queried entity types. The index is loaded from the
+ * filesystem index at startup and all index commits are mirrored back to it (see {@link MirroredRAMDirectory}), so the index
+ * survives restarts as with the default {@code filesystem} directory provider. To be configured per entity type, with the same
+ * {@code indexBase} and {@code indexName} properties as the {@code filesystem} directory provider:
+ *
+ * <pre>{@code
+ * <property name="hibernate.search.com.example.Dictionary.directory_provider"
+ *    value="com.lifeinide.jsonql.hibernate.search.store.MemoryResidentDirectoryProvider"/>
+ * }</pre>
+ *
+ * The memory used by each index can be monitored with {@link #getMemoryUsage(SearchIntegrator)}.
+ *
+ * @author Lukasz Frankowski
+ */
+public class MemoryResidentDirectoryProvider implements DirectoryProvider<MirroredRAMDirectory> {
+
+	protected MirroredRAMDirectory directory;
+
+	@Override
+	public void initialize(String directoryProviderName, Properties properties, BuildContext context) {
+		Path indexPath = DirectoryHelper.getVerifiedIndexPath(directoryProviderName, properties, true);
+
+		try {
+			directory = new MirroredRAMDirectory(FSDirectory.open(indexPath));
+		} catch (IOException e) {
+			throw new SearchException(String.format("Can't load index: %s into memory from: %s", directoryProviderName, indexPath), e);
+		}
+	}
+
+	@Override
+	public void start(DirectoryBasedIndexManager indexManager) {
+		DirectoryHelper.initializeIndexIfNeeded(directory);
+	}
+
+	@Override
+	public void stop() {
+		directory.close();
+	}
+
+	@Override
+	public MirroredRAMDirectory getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Returns the memory in bytes used by each memory resident index of the search factory, by the index name.
+	 */
+	@Nonnull
+	public static Map<String, Long> getMemoryUsage(@Nonnull SearchIntegrator searchIntegrator) {
+		Map<String, Long> result = new TreeMap<>();
+
+		for (IndexedTypeIdentifier type: searchIntegrator.getIndexedTypeIdentifiers())
+			for (IndexManager indexManager: searchIntegrator.getIndexBinding(type).getIndexManagerSelector().all())
+				if (indexManager instanceof DirectoryBasedIndexManager) {
+					DirectoryProvider<?> directoryProvider = ((DirectoryBasedIndexManager) indexManager).getDirectoryProvider();
+					if (directoryProvider instanceof MemoryResidentDirectoryProvider)
+						result.put(indexManager.getIndexName(),
+							((MemoryResidentDirectoryProvider) directoryProvider).getDirectory().ramBytesUsed());
+				}
+
+		return Collections.unmodifiableMap(result);
+	}
+
+}
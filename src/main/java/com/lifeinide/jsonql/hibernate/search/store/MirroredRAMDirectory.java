@@ -0,0 +1,101 @@
+package com.lifeinide.jsonql.hibernate.search.store;
+
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.Lock;
+import org.apache.lucene.store.RAMDirectory;
+
+import javax.annotation.Nonnull;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@link RAMDirectory} loaded from the persistent {@link FSDirectory}, with all writes mirrored back to it. The index files are
+ * copied to the persistent directory when they are synced by the index writer, so that each index commit is also persisted, while all
+ * reads are served from the memory.
+ *
+ * @author Lukasz Frankowski
+ */
+public class MirroredRAMDirectory extends RAMDirectory {
+
+	protected FSDirectory persistentDirectory;
+	protected Lock persistentLock;
+
+	/**
+	 * Locks the persistent directory for writing and loads its whole content into the memory. The lock is obtained first, so that the
+	 * content can't be changed by another writer while it's copied.
+	 */
+	public MirroredRAMDirectory(@Nonnull FSDirectory persistentDirectory) throws IOException {
+		this.persistentDirectory = persistentDirectory;
+		this.persistentLock = persistentDirectory.obtainLock(IndexWriter.WRITE_LOCK_NAME);
+
+		try {
+			for (String name: persistentDirectory.listAll())
+				if (!IndexWriter.WRITE_LOCK_NAME.equals(name) && !Files.isDirectory(persistentDirectory.getDirectory().resolve(name)))
+					copyFrom(persistentDirectory, name, name, IOContext.READONCE);
+		} catch (IOException | RuntimeException e) {
+			persistentLock.close();
+			throw e;
+		}
+	}
+
+	@Nonnull
+	public FSDirectory getPersistentDirectory() {
+		return persistentDirectory;
+	}
+
+	@Override
+	public void sync(Collection<String> names) throws IOException {
+		super.sync(names);
+
+		Set<String> persistentFiles = new HashSet<>(Arrays.asList(persistentDirectory.listAll()));
+		for (String name: names)
+			if (!persistentFiles.contains(name)) // index files are write-once
+				persistentDirectory.copyFrom(this, name, name, IOContext.DEFAULT);
+
+		persistentDirectory.sync(names);
+	}
+
+	@Override
+	public void renameFile(String source, String dest) throws IOException {
+		super.renameFile(source, dest);
+
+		try {
+			persistentDirectory.renameFile(source, dest);
+		} catch (NoSuchFileException | FileNotFoundException e) {
+			persistentDirectory.copyFrom(this, dest, dest, IOContext.DEFAULT); // the source has never been synced
+		}
+	}
+
+	@Override
+	public void deleteFile(String name) throws IOException {
+		super.deleteFile(name);
+
+		try {
+			persistentDirectory.deleteFile(name);
+		} catch (NoSuchFileException | FileNotFoundException e) {
+			// the file has never been synced
+		}
+	}
+
+	@Override
+	public void close() {
+		super.close();
+
+		try {
+			persistentLock.close();
+		} catch (IOException e) {
+			// ignored, the lock is released anyway when the persistent directory is closed
+		}
+
+		persistentDirectory.close();
+	}
+
+}
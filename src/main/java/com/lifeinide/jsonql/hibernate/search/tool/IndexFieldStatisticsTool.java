@@ -0,0 +1,36 @@
+package com.lifeinide.jsonql.hibernate.search.tool;
+
+import com.lifeinide.jsonql.hibernate.search.IndexFieldStatistics;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Prints {@link IndexFieldStatistics} of the index directory from the command line:
+ *
+ * <pre>{@code
+ * java -cp ... com.lifeinide.jsonql.hibernate.search.tool.IndexFieldStatisticsTool /var/index/com.example.MyEntity
+ * }</pre>
+ *
+ * @author Lukasz Frankowski
+ */
+public class IndexFieldStatisticsTool {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length!=1) {
+			System.err.println(String.format("Usage: %s <index directory>", IndexFieldStatisticsTool.class.getName()));
+			System.exit(1);
+		}
+
+		try (Directory directory = FSDirectory.open(Paths.get(args[0]));
+			 IndexReader indexReader = DirectoryReader.open(directory)) {
+			System.out.print(IndexFieldStatistics.format(IndexFieldStatistics.collect(indexReader)));
+			System.out.println(String.format("Total index size: %d bytes", IndexFieldStatistics.getIndexSize(directory)));
+		}
+	}
+
+}
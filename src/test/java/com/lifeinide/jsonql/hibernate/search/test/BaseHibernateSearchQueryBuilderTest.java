@@ -0,0 +1,130 @@
+package com.lifeinide.jsonql.hibernate.search.test;
+
+import com.lifeinide.jsonql.core.dto.Page;
+import com.lifeinide.jsonql.core.enums.QueryCondition;
+import com.lifeinide.jsonql.core.enums.QueryConjunction;
+import com.lifeinide.jsonql.core.filters.ListQueryFilter;
+import com.lifeinide.jsonql.core.filters.SingleValueQueryFilter;
+import com.lifeinide.jsonql.core.test.JsonQLBaseQueryBuilderTest;
+import com.lifeinide.jsonql.core.test.JsonQLQueryBuilderTestFeature;
+import com.lifeinide.jsonql.hibernate.search.HibernateSearchFilterQueryBuilder;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+
+import javax.annotation.Nonnull;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Common setup for the test suites run against {@link HibernateSearchEntity}.
+ *
+ * @author Lukasz Frankowski
+ */
+public abstract class BaseHibernateSearchQueryBuilderTest extends JsonQLBaseQueryBuilderTest<
+	EntityManager,
+	Long,
+	HibernateSearchEntity,
+	HibernateSearchFilterQueryBuilder<HibernateSearchEntity, Page<HibernateSearchEntity>>
+> {
+
+	public static final String PERSISTENCE_UNIT_NAME = "test-jpa";
+	public static final String INDEX_BASE = "tmp";
+	public static final String SEARCHABLE_STRING = "in the middle of nowhere";
+	public static final String SEARCHABLE_STRING_PART = "middle";
+	public static final String ASSOCIATED_NAME = "associated";
+
+	protected EntityManagerFactory entityManagerFactory;
+
+	@BeforeAll
+	public void init() {
+		entityManagerFactory = Persistence.createEntityManagerFactory(persistenceUnitName());
+		doWithEntityManager(em -> populateData(em::persist));
+	}
+
+	@AfterAll
+	public void done() {
+		if (entityManagerFactory!=null)
+			entityManagerFactory.close();
+
+		try {
+			FileUtils.deleteDirectory(FileSystems.getDefault().getPath(indexBase()).toFile());
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	protected boolean supports(JsonQLQueryBuilderTestFeature feature) {
+		switch (feature) {
+			case STRICT_INEQUALITIES:
+			case STRICT_DECIMALS:
+			case SORTING:
+				return false;
+		}
+
+		return super.supports(feature);
+	}
+
+	@Nonnull
+	@Override
+	protected HibernateSearchEntity buildEntity(Long previousId) {
+		return new HibernateSearchEntity(previousId==null ? 1L : previousId+1);
+	}
+
+	@Override
+	protected HibernateSearchAssociatedEntity buildAssociatedEntity() {
+		return new HibernateSearchAssociatedEntity(1L);
+	}
+
+	@Override
+	protected void doTest(BiConsumer<EntityManager, HibernateSearchFilterQueryBuilder<HibernateSearchEntity, Page<HibernateSearchEntity>>> c) {
+		doWithEntityManager(em -> c.accept(em, createQueryBuilder(em)));
+	}
+
+	protected HibernateSearchFilterQueryBuilder<HibernateSearchEntity, Page<HibernateSearchEntity>> createQueryBuilder(EntityManager em) {
+		return new HibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING);
+	}
+
+	protected String persistenceUnitName() {
+		return PERSISTENCE_UNIT_NAME;
+	}
+
+	protected String indexBase() {
+		return INDEX_BASE;
+	}
+
+	protected <T> SingleValueQueryFilter<T> singleValueFilter(QueryCondition condition, T value) {
+		SingleValueQueryFilter<T> filter = new SingleValueQueryFilter<>();
+		filter.setCondition(condition);
+		filter.setValue(value);
+		return filter;
+	}
+
+	protected ListQueryFilter<SingleValueQueryFilter<?>> listFilter(QueryConjunction conjunction, SingleValueQueryFilter<?>... filters) {
+		ListQueryFilter<SingleValueQueryFilter<?>> filter = new ListQueryFilter<>();
+		filter.setConjunction(conjunction);
+		filter.setFilters(Arrays.asList(filters));
+		return filter;
+	}
+
+	protected void doWithEntityManager(Consumer<EntityManager> c) {
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		entityManager.getTransaction().begin();
+
+		try {
+			c.accept(entityManager);
+		} finally {
+			entityManager.getTransaction().commit();
+			entityManager.close();
+		}
+	}
+
+
+}
@@ -0,0 +1,33 @@
+package com.lifeinide.jsonql.hibernate.search.test;
+
+import com.lifeinide.jsonql.core.dto.Page;
+import com.lifeinide.jsonql.hibernate.search.HibernateSearchFilterQueryBuilder;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Runs the shared test suite only, with filters compiled straight into Lucene queries.
+ *
+ * @author Lukasz Frankowski
+ */
+public class DirectHibernateSearchQueryBuilderTest extends BaseHibernateSearchQueryBuilderTest {
+
+	public static final String PERSISTENCE_UNIT_NAME = "test-jpa-direct";
+	public static final String INDEX_BASE = "tmp-direct";
+
+	@Override
+	protected HibernateSearchFilterQueryBuilder<HibernateSearchEntity, Page<HibernateSearchEntity>> createQueryBuilder(EntityManager em) {
+		return super.createQueryBuilder(em).withDirectCompilation();
+	}
+
+	@Override
+	protected String persistenceUnitName() {
+		return PERSISTENCE_UNIT_NAME;
+	}
+
+	@Override
+	protected String indexBase() {
+		return INDEX_BASE;
+	}
+
+}
@@ -3,12 +3,17 @@ package com.lifeinide.jsonql.hibernate.search.test;
 import com.lifeinide.jsonql.core.test.IJsonQLBaseTestEntity;
 import com.lifeinide.jsonql.hibernate.search.HibernateSearch;
 import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.hibernate.search.annotations.Analyze;
 import org.hibernate.search.annotations.Analyzer;
+import org.hibernate.search.annotations.ContainedIn;
 import org.hibernate.search.annotations.Field;
 import org.hibernate.search.annotations.Indexed;
+import org.hibernate.search.annotations.Norms;
 
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.OneToMany;
+import java.util.Set;
 
 /**
  * @author Lukasz Frankowski
@@ -23,6 +28,13 @@ public class HibernateSearchAssociatedEntity implements IJsonQLBaseTestEntity<Lo
 	@Analyzer(impl = EnglishAnalyzer.class)
 	protected String q = HibernateSearchQueryBuilderTest.SEARCHABLE_STRING;
 
+	@Field(analyze = Analyze.NO, norms = Norms.NO)
+	protected String name = HibernateSearchQueryBuilderTest.ASSOCIATED_NAME;
+
+	@OneToMany(mappedBy = "entityVal")
+	@ContainedIn
+	protected Set<HibernateSearchEntity> entities;
+
 	public HibernateSearchAssociatedEntity() {
 	}
 
@@ -47,5 +59,21 @@ public class HibernateSearchAssociatedEntity implements IJsonQLBaseTestEntity<Lo
 	public void setQ(String q) {
 		this.q = q;
 	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Set<HibernateSearchEntity> getEntities() {
+		return entities;
+	}
+
+	public void setEntities(Set<HibernateSearchEntity> entities) {
+		this.entities = entities;
+	}
 	
 }
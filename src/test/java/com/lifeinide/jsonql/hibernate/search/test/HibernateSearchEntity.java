@@ -5,6 +5,9 @@ import com.lifeinide.jsonql.core.test.IJsonQLTestParentEntity;
 import com.lifeinide.jsonql.core.test.JsonQLTestEntityEnum;
 import com.lifeinide.jsonql.hibernate.search.HibernateSearch;
 import com.lifeinide.jsonql.hibernate.search.bridge.BigDecimalRangeBridge;
+import com.lifeinide.jsonql.hibernate.search.bridge.CompactKeywordFieldBridge;
+import com.lifeinide.jsonql.hibernate.search.bridge.CompactLongFieldBridge;
+import com.lifeinide.jsonql.hibernate.search.bridge.NullMarkerBridge;
 import org.apache.lucene.analysis.en.EnglishAnalyzer;
 import org.hibernate.search.annotations.*;
 
@@ -17,6 +20,7 @@ import java.time.LocalDate;
  */
 @Entity
 @Indexed
+@ClassBridge(name = HibernateSearch.FIELD_NULLS, impl = NullMarkerBridge.class, analyze = Analyze.NO, norms = Norms.NO)
 public class HibernateSearchEntity implements IJsonQLTestEntity<Long>, IJsonQLTestParentEntity<Long, HibernateSearchAssociatedEntity> {
 
 	@Id private Long id;
@@ -31,7 +35,10 @@ public class HibernateSearchEntity implements IJsonQLTestEntity<Long>, IJsonQLTe
 	@Field(analyze = Analyze.NO, norms = Norms.NO, store = Store.YES)
 	protected boolean booleanVal;
 
-	@Field(analyze = Analyze.NO, norms = Norms.NO, store = Store.YES)
+	@Fields({
+		@Field(analyze = Analyze.NO, norms = Norms.NO, store = Store.YES),
+		@Field(name = "longValCompact", analyze = Analyze.NO, norms = Norms.NO, bridge = @FieldBridge(impl = CompactLongFieldBridge.class))
+	})
 	protected Long longVal;
 
 	@Field(analyze = Analyze.NO, norms = Norms.NO, store = Store.YES)
@@ -42,12 +49,18 @@ public class HibernateSearchEntity implements IJsonQLTestEntity<Long>, IJsonQLTe
 	protected LocalDate dateVal;
 
 	@Enumerated(EnumType.STRING)
-	@Field(analyze = Analyze.NO, norms = Norms.NO, store = Store.YES)
+	@Fields({
+		@Field(analyze = Analyze.NO, norms = Norms.NO, store = Store.YES),
+		@Field(name = "enumValCompact", analyze = Analyze.NO, norms = Norms.NO, bridge = @FieldBridge(impl = CompactKeywordFieldBridge.class))
+	})
 	protected JsonQLTestEntityEnum enumVal;
 
 	@ManyToOne
-	@Field(analyze = Analyze.NO, norms = Norms.NO, store = Store.YES)
-	@FieldBridge(impl = DomainFieldBridge.class)
+	@IndexedEmbedded(includePaths = "name")
+	@Fields({
+		@Field(analyze = Analyze.NO, norms = Norms.NO, store = Store.YES, bridge = @FieldBridge(impl = DomainFieldBridge.class)),
+		@Field(name = "entityValId", analyze = Analyze.NO, norms = Norms.NO, bridge = @FieldBridge(impl = NumericDomainFieldBridge.class))
+	})
 	protected HibernateSearchAssociatedEntity entityVal;
 
 	public HibernateSearchEntity() {
@@ -0,0 +1,34 @@
+package com.lifeinide.jsonql.hibernate.search.test;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * An entity not mapped for Hibernate Search.
+ *
+ * @author Lukasz Frankowski
+ */
+@Entity
+public class HibernateSearchNotIndexedEntity {
+
+	@Id Long id;
+
+	protected String name;
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+}
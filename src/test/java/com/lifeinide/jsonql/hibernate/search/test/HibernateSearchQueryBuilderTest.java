@@ -1,114 +1,1051 @@
 package com.lifeinide.jsonql.hibernate.search.test;
 
+import com.lifeinide.jsonql.core.dto.DefaultPageableRequest;
 import com.lifeinide.jsonql.core.dto.Page;
-import com.lifeinide.jsonql.core.test.JsonQLBaseQueryBuilderTest;
-import com.lifeinide.jsonql.core.test.JsonQLQueryBuilderTestFeature;
+import com.lifeinide.jsonql.core.enums.QueryCondition;
+import com.lifeinide.jsonql.core.enums.QueryConjunction;
+import com.lifeinide.jsonql.core.enums.SortDirection;
+import com.lifeinide.jsonql.core.intr.SortField;
+import com.lifeinide.jsonql.core.intr.Sortable;
+import com.lifeinide.jsonql.core.test.JsonQLTestEntityEnum;
 import com.lifeinide.jsonql.hibernate.search.DefaultHibernateSearchFilterQueryBuilder;
+import com.lifeinide.jsonql.hibernate.search.FieldSearchStrategy;
+import com.lifeinide.jsonql.hibernate.search.HibernateSearch;
+import com.lifeinide.jsonql.hibernate.search.HibernateSearchBootstrap;
 import com.lifeinide.jsonql.hibernate.search.HibernateSearchFilterQueryBuilder;
+import com.lifeinide.jsonql.hibernate.search.HibernateSearchResultCache;
+import com.lifeinide.jsonql.hibernate.search.IndexFieldStatistics;
+import com.lifeinide.jsonql.hibernate.search.LuceneIndexSearch;
+import com.lifeinide.jsonql.hibernate.search.MultiFieldSearchOptions;
+import com.lifeinide.jsonql.hibernate.search.QueryTimeoutStrategy;
+import com.lifeinide.jsonql.hibernate.search.SortedIndex;
+import com.lifeinide.jsonql.hibernate.search.SortedIndexSupport;
+import com.lifeinide.jsonql.hibernate.search.bridge.CompactLongFieldBridge;
+import com.lifeinide.jsonql.hibernate.search.indexing.AsyncIndexer;
+import com.lifeinide.jsonql.hibernate.search.indexing.ConsistencyToken;
+import com.lifeinide.jsonql.hibernate.search.indexing.DependentReindexer;
+import com.lifeinide.jsonql.hibernate.search.store.MemoryResidentDirectoryProvider;
+import com.lifeinide.jsonql.hibernate.search.store.MirroredRAMDirectory;
 import org.apache.commons.io.FileUtils;
-import org.junit.jupiter.api.AfterAll;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.LockObtainFailedException;
+import org.apache.lucene.store.RAMDirectory;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.search.exception.SearchException;
+import org.hibernate.search.indexes.IndexReaderAccessor;
+import org.hibernate.search.jpa.Search;
+import org.hibernate.search.spi.SearchIntegrator;
 import org.junit.jupiter.api.Assertions;
-import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
-import javax.annotation.Nonnull;
 import javax.persistence.EntityManager;
-import javax.persistence.EntityManagerFactory;
-import javax.persistence.Persistence;
+import javax.persistence.QueryTimeoutException;
 import java.io.IOException;
 import java.nio.file.FileSystems;
-import java.util.function.BiConsumer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 /**
  * @author Lukasz Frankowski
  */
-public class HibernateSearchQueryBuilderTest extends JsonQLBaseQueryBuilderTest<
-	EntityManager,
-	Long,
-	HibernateSearchEntity,
-	HibernateSearchFilterQueryBuilder<HibernateSearchEntity, Page<HibernateSearchEntity>>
-> {
+public class HibernateSearchQueryBuilderTest extends BaseHibernateSearchQueryBuilderTest {
 
-	public static final String PERSISTENCE_UNIT_NAME = "test-jpa";
-	public static final String SEARCHABLE_STRING = "in the middle of nowhere";
-	public static final String SEARCHABLE_STRING_PART = "middle";
+	@Test
+	public void testLocalAndGlobalSearch() {
+		doWithEntityManager(em -> {
+			DefaultHibernateSearchFilterQueryBuilder<?> qb =
+				new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART);
+			Page<?> page = qb.list();
+			Assertions.assertEquals(100, page.getCount());
 
-	protected EntityManagerFactory entityManagerFactory;
+			qb = new DefaultHibernateSearchFilterQueryBuilder<>(em, SEARCHABLE_STRING_PART);
+			page = qb.list();
+			Assertions.assertEquals(101, page.getCount());
+		});
+	}
+
+	@Test
+	public void testQueryLimits() {
+		doWithEntityManager(em -> {
+			DefaultHibernateSearchFilterQueryBuilder<HibernateSearchEntity> qb =
+				new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART);
+			qb.withTimeout(1, TimeUnit.MINUTES, QueryTimeoutStrategy.PARTIAL_RESULTS);
+			Page<?> page = qb.list();
+			Assertions.assertEquals(100, page.getCount());
+			Assertions.assertFalse(qb.hasPartialResults());
 
-	@BeforeAll
-	public void init() {
-		entityManagerFactory = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT_NAME);
-		doWithEntityManager(em -> populateData(em::persist));
+			// the text query and two filters
+			Assertions.assertEquals(10, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.add("stringVal", singleValueFilter(QueryCondition.eq, "s1"))
+				.add("booleanVal", singleValueFilter(QueryCondition.eq, false))
+				.withMaxClauseCount(3)
+				.list().getCount());
+			DefaultHibernateSearchFilterQueryBuilder<HibernateSearchEntity> limited =
+				new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART);
+			limited.add("stringVal", singleValueFilter(QueryCondition.eq, "s1"))
+				.add("booleanVal", singleValueFilter(QueryCondition.eq, false))
+				.withMaxClauseCount(2);
+			Assertions.assertThrows(SearchException.class, limited::list);
+		});
 	}
 
-	@AfterAll
-	public void done() {
-		if (entityManagerFactory!=null)
-			entityManagerFactory.close();
+	@Test
+	public void testMaxWildcardTerms() {
+		doWithEntityManager(em -> {
+			Map<String, FieldSearchStrategy> fields = Collections.singletonMap("stringVal", FieldSearchStrategy.WILDCARD_PHRASE);
 
+			// "s*" matches all ten distinct values of the field
+			Assertions.assertEquals(100, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, "s", fields)
+				.list().getCount());
+			Assertions.assertEquals(10, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, "s", fields)
+				.withMaxWildcardTerms(1).list().getCount());
+		});
+	}
+
+	@Test
+	public void testQueryTimeout() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
 		try {
-			FileUtils.deleteDirectory(FileSystems.getDefault().getPath("tmp").toFile());
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+			doWithEntityManager(em -> {
+				// the full text query and the parallel search directly on the index
+				for (ExecutorService searchExecutor: Arrays.asList(null, executor)) {
+					DefaultHibernateSearchFilterQueryBuilder<HibernateSearchEntity> qb =
+						new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART);
+					qb.withParallelSearch(searchExecutor).withTimeout(1, TimeUnit.NANOSECONDS, QueryTimeoutStrategy.PARTIAL_RESULTS);
+					Assertions.assertTrue(qb.list().getCount() < 100);
+					Assertions.assertTrue(qb.hasPartialResults());
+
+					// the next execution resets the flag
+					qb.withTimeout(1, TimeUnit.MINUTES, QueryTimeoutStrategy.PARTIAL_RESULTS);
+					Assertions.assertEquals(100, qb.list().getCount());
+					Assertions.assertFalse(qb.hasPartialResults());
+
+					DefaultHibernateSearchFilterQueryBuilder<HibernateSearchEntity> failing =
+						new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART);
+					failing.withParallelSearch(searchExecutor).withTimeout(1, TimeUnit.NANOSECONDS, QueryTimeoutStrategy.FAIL);
+					Assertions.assertThrows(QueryTimeoutException.class, failing::list);
+				}
+
+				DefaultHibernateSearchFilterQueryBuilder<HibernateSearchEntity> qb =
+					new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART);
+				qb.withTimeout(1, TimeUnit.NANOSECONDS, QueryTimeoutStrategy.PARTIAL_RESULTS);
+				Set<Object> ids = new HashSet<>();
+				qb.ids(ids::add);
+				Assertions.assertTrue(ids.size() < 100);
+				Assertions.assertTrue(qb.hasPartialResults());
+
+				Assertions.assertTrue(qb.collapse("entityValId").list().getCount() < 100);
+				Assertions.assertTrue(qb.hasPartialResults());
+			});
+		} finally {
+			executor.shutdown();
 		}
 	}
 
-	@Override
-	protected boolean supports(JsonQLQueryBuilderTestFeature feature) {
-		switch (feature) {
-			case STRICT_INEQUALITIES:
-			case STRICT_DECIMALS:
-			case NULLS:
-			case SORTING:
-				return false;
+	@Test
+	public void testNumericEntityBridge() {
+		doWithEntityManager(em -> {
+			for (Long id: new Long[] {1L, 2L}) {
+				long stringCount = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+					.add("entityVal", singleValueFilter(QueryCondition.eq, id)).list().getCount();
+				long numericCount = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+					.add("entityValId", singleValueFilter(QueryCondition.eq, id)).list().getCount();
+				Assertions.assertEquals(stringCount, numericCount);
+			}
+
+			// "or" list of ids is looked up with a single terms query
+			long count = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.add("entityValId", singleValueFilter(QueryCondition.eq, 1L)).list().getCount();
+			Assertions.assertTrue(count > 0);
+			Assertions.assertEquals(count, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.add("entityValId", listFilter(QueryConjunction.or,
+					singleValueFilter(QueryCondition.eq, 1L),
+					singleValueFilter(QueryCondition.eq, em.find(HibernateSearchAssociatedEntity.class, 1L)),
+					singleValueFilter(QueryCondition.eq, 1000L)))
+				.list().getCount());
+			Assertions.assertEquals(0, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.add("entityValId", listFilter(QueryConjunction.or,
+					singleValueFilter(QueryCondition.eq, 1000L),
+					singleValueFilter(QueryCondition.eq, 1001L)))
+				.list().getCount());
+		});
+
+		// not persisted entity is not indexed
+		Document document = new Document();
+		new NumericDomainFieldBridge().set("entityValId", new HibernateSearchAssociatedEntity(), document, null);
+		Assertions.assertTrue(document.getFields().isEmpty());
+
+		// and can't be used as the filter value
+		doWithEntityManager(em -> Assertions.assertThrows(SearchException.class, () ->
+			new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.add("entityValId", singleValueFilter(QueryCondition.eq, new HibernateSearchAssociatedEntity())).list()));
+	}
+
+	@Test
+	public void testNullFiltering() {
+		doWithEntityManager(em -> {
+			long expectedNullCount = em.createQuery("select count(e) from HibernateSearchEntity e where e.longVal is null", Long.class)
+				.getSingleResult();
+			Assertions.assertTrue(expectedNullCount > 0);
+			Assertions.assertTrue(expectedNullCount < 100);
+
+			long nullCount = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.add("longVal", singleValueFilter(QueryCondition.isNull, null)).list().getCount();
+			long notNullCount = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.add("longVal", singleValueFilter(QueryCondition.notNull, null)).list().getCount();
+			Assertions.assertEquals(expectedNullCount, nullCount);
+			Assertions.assertEquals(100 - expectedNullCount, notNullCount);
+
+			// the entity without NullMarkerBridge can't filter nulls
+			Assertions.assertThrows(SearchException.class, () ->
+				new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchSortedEntity.class, SEARCHABLE_STRING_PART)
+					.add("rank", singleValueFilter(QueryCondition.isNull, null)));
+		});
+	}
+
+	@Test
+	public void testEmbeddedFieldFiltering() {
+		doWithEntityManager(em -> {
+			long count = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.add("entityVal", singleValueFilter(QueryCondition.eq, 1L)).list().getCount();
+			long embeddedCount = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.add("entityVal.name", singleValueFilter(QueryCondition.eq, ASSOCIATED_NAME)).list().getCount();
+			Assertions.assertEquals(count, embeddedCount);
+		});
+
+		// the change of the associated entity is propagated to the entity documents
+		try {
+			doWithEntityManager(em -> em.find(HibernateSearchAssociatedEntity.class, 1L).setName("changed"));
+			doWithEntityManager(em -> {
+				long count = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+					.add("entityVal", singleValueFilter(QueryCondition.eq, 1L)).list().getCount();
+				Assertions.assertEquals(count, countByAssociatedName(em, "changed"));
+				Assertions.assertEquals(0, countByAssociatedName(em, ASSOCIATED_NAME));
+			});
+		} finally {
+			doWithEntityManager(em -> em.find(HibernateSearchAssociatedEntity.class, 1L).setName(ASSOCIATED_NAME));
 		}
+	}
+
+	@Test
+	public void testParallelSearch() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			doWithEntityManager(em -> {
+				Page<?> page = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+					.withParallelSearch(executor)
+					.list();
+				Assertions.assertEquals(100, page.getCount());
+				Assertions.assertEquals(100, page.getData().size());
 
-		return super.supports(feature);
+				DefaultPageableRequest request = new DefaultPageableRequest();
+				request.setPageSize(10);
+				request.setPage(2);
+				Page<HibernateSearchEntity> expected = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class,
+					SEARCHABLE_STRING_PART).list(request, null);
+				Page<HibernateSearchEntity> parallel = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class,
+					SEARCHABLE_STRING_PART).withParallelSearch(executor).list(request, null);
+				Assertions.assertEquals(100, parallel.getCount());
+				Assertions.assertEquals(expected.getData(), parallel.getData());
+			});
+		} finally {
+			executor.shutdown();
+		}
 	}
 
-	@Nonnull
-	@Override
-	protected HibernateSearchEntity buildEntity(Long previousId) {
-		return new HibernateSearchEntity(previousId==null ? 1L : previousId+1);
+	@Test
+	public void testSharedIndex() {
+		doWithEntityManager(em -> em.persist(new HibernateSearchSharedIndexEntity(1L)));
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			doWithEntityManager(em -> {
+				// the other type documents in the entity index are filtered out on all search paths
+				Assertions.assertEquals(100, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class,
+					SEARCHABLE_STRING_PART).list().getCount());
+				Assertions.assertEquals(100, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class,
+					SEARCHABLE_STRING_PART).withParallelSearch(executor).list().getCount());
+				Assertions.assertEquals(100, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class,
+					SEARCHABLE_STRING_PART).longIds().length);
+			});
+		} finally {
+			executor.shutdown();
+			doWithEntityManager(em -> em.remove(em.find(HibernateSearchSharedIndexEntity.class, 1L)));
+		}
 	}
 
-	@Override
-	protected HibernateSearchAssociatedEntity buildAssociatedEntity() {
-		return new HibernateSearchAssociatedEntity(1L);
+	@Test
+	public void testSharding() {
+		doWithEntityManager(em -> {
+			for (long id = 1; id <= 5; id++)
+				em.persist(new HibernateSearchShardedEntity(id, id <= 3 ? "a" : "b"));
+		});
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			doWithEntityManager(em -> {
+				// the documents are routed to the shards by the field value
+				Assertions.assertEquals(3, shardDocCount(em, "a"));
+				Assertions.assertEquals(2, shardDocCount(em, "b"));
+
+				Assertions.assertEquals(3, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchShardedEntity.class,
+					SEARCHABLE_STRING_PART).withShard("a").list().getCount());
+				Assertions.assertEquals(2, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchShardedEntity.class,
+					SEARCHABLE_STRING_PART).withShard("b").list().getCount());
+				Assertions.assertEquals(0, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchShardedEntity.class,
+					SEARCHABLE_STRING_PART).withShard("c").list().getCount());
+
+				Page<HibernateSearchShardedEntity> page = new DefaultHibernateSearchFilterQueryBuilder<>(em,
+					HibernateSearchShardedEntity.class, SEARCHABLE_STRING_PART).withShard("a").list();
+				Assertions.assertTrue(page.getData().stream().allMatch(entity -> "a".equals(entity.getTenant())));
+
+				// the direct index search can't apply the shard filter
+				Assertions.assertThrows(SearchException.class, new DefaultHibernateSearchFilterQueryBuilder<>(em,
+					HibernateSearchShardedEntity.class, SEARCHABLE_STRING_PART).withShard("a")::longIds);
+
+				// the queries without the shard fan out to all shards
+				Assertions.assertEquals(5, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchShardedEntity.class,
+					SEARCHABLE_STRING_PART).list().getCount());
+				Assertions.assertEquals(5, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchShardedEntity.class,
+					SEARCHABLE_STRING_PART).withParallelSearch(executor).list().getCount());
+			});
+		} finally {
+			executor.shutdown();
+			doWithEntityManager(em -> em.createQuery("select e from HibernateSearchShardedEntity e", HibernateSearchShardedEntity.class)
+				.getResultList().forEach(em::remove));
+		}
 	}
 
-	@Override
-	protected void doTest(BiConsumer<EntityManager, HibernateSearchFilterQueryBuilder<HibernateSearchEntity, Page<HibernateSearchEntity>>> c) {
-		doWithEntityManager(em -> c.accept(em,
-			new HibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING)));
+	protected int shardDocCount(EntityManager em, String shard) {
+		IndexReaderAccessor indexReaderAccessor = Search.getFullTextEntityManager(em).getSearchFactory().getIndexReaderAccessor();
+		IndexReader indexReader = indexReaderAccessor.open(String.format("%s.%s", HibernateSearchShardedEntity.class.getName(), shard));
+		try {
+			return indexReader.numDocs();
+		} finally {
+			indexReaderAccessor.close(indexReader);
+		}
 	}
 
 	@Test
-	public void testLocalAndGlobalSearch() {
+	public void testSortedIndex() throws IOException {
+		// the ranks are indexed in several segments and in a different order than sorted
+		for (long batch = 0; batch < 5; batch++) {
+			long first = batch * 10 + 1;
+			doWithEntityManager(em -> {
+				for (long id = first; id < first + 10; id++)
+					em.persist(new HibernateSearchSortedEntity(id, (id * 7) % 50 + 1));
+			});
+		}
+
+		Sortable<SortField> byRank = sortBy("rank", SortDirection.DESC);
+		DefaultPageableRequest request = new DefaultPageableRequest();
+		request.setPageSize(10);
+		request.setPage(2);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try (Directory directory = FSDirectory.open(FileSystems.getDefault().getPath(indexBase(),
+				HibernateSearchSortedEntity.class.getName()))) {
+			SortedIndexSupport.sortIndex(directory, HibernateSearchSortedEntity.class.getAnnotation(SortedIndex.class));
+			try (DirectoryReader reader = DirectoryReader.open(directory)) {
+				Assertions.assertEquals(1, reader.leaves().size());
+				Assertions.assertEquals(50, reader.numDocs());
+			}
+
+			doWithEntityManager(em -> {
+				// the collection stops in the sorted segment as soon as the page is filled
+				DefaultHibernateSearchFilterQueryBuilder<HibernateSearchSortedEntity> qb =
+					new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchSortedEntity.class, SEARCHABLE_STRING_PART);
+				Page<HibernateSearchSortedEntity> page = qb.list(request, byRank);
+				Assertions.assertEquals(ranks(40, 31), ranks(page));
+				Assertions.assertTrue(qb.hasApproximateCount());
+				Assertions.assertTrue(page.getCount() >= 20);
+				Assertions.assertTrue(page.getCount() < 50);
+
+				page = qb.withExactCount().list(request, byRank);
+				Assertions.assertEquals(ranks(40, 31), ranks(page));
+				Assertions.assertFalse(qb.hasApproximateCount());
+				Assertions.assertEquals(50, page.getCount());
+
+				page = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchSortedEntity.class, SEARCHABLE_STRING_PART)
+					.withParallelSearch(executor).withExactCount().list(request, byRank);
+				Assertions.assertEquals(ranks(40, 31), ranks(page));
+				Assertions.assertEquals(50, page.getCount());
+
+				qb = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchSortedEntity.class, SEARCHABLE_STRING_PART);
+				qb.withTimeout(1, TimeUnit.NANOSECONDS, QueryTimeoutStrategy.PARTIAL_RESULTS).list(request, byRank);
+				Assertions.assertTrue(qb.hasPartialResults());
+			});
+
+			// the document indexed afterwards is in a new segment, which is not sorted and collected entirely
+			doWithEntityManager(em -> em.persist(new HibernateSearchSortedEntity(51L, 100L)));
+			request.setPage(1);
+			doWithEntityManager(em -> {
+				Page<HibernateSearchSortedEntity> page = new DefaultHibernateSearchFilterQueryBuilder<>(em,
+					HibernateSearchSortedEntity.class, SEARCHABLE_STRING_PART).withExactCount().list(request, byRank);
+				List<Long> expected = new ArrayList<>(Collections.singletonList(100L));
+				expected.addAll(ranks(50, 42));
+				Assertions.assertEquals(expected, ranks(page));
+				Assertions.assertEquals(51, page.getCount());
+
+				// the collapsed groups of all segments are ordered by the sorted index field
+				page = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchSortedEntity.class, SEARCHABLE_STRING_PART)
+					.withParallelSearch(executor).collapse("rank").list(request, byRank);
+				Assertions.assertEquals(expected, ranks(page));
+				Assertions.assertEquals(51, page.getCount());
+			});
+		} finally {
+			executor.shutdown();
+			doWithEntityManager(em -> em.createQuery("select e from HibernateSearchSortedEntity e", HibernateSearchSortedEntity.class)
+				.getResultList().forEach(em::remove));
+		}
+	}
+
+	protected static Sortable<SortField> sortBy(String field, SortDirection direction) {
+		SortField sortField = new SortField() {
+
+			@Override
+			public String getSortField() {
+				return field;
+			}
+
+			@Override
+			public SortDirection getSortDirection() {
+				return direction;
+			}
+
+		};
+
+		return new Sortable<SortField>() {
+
+			@Override
+			public List<SortField> getSort() {
+				return Collections.singletonList(sortField);
+			}
+
+		};
+	}
+
+	protected static List<Long> ranks(long from, long to) {
+		List<Long> ranks = new ArrayList<>();
+		for (long rank = from; rank >= to; rank--)
+			ranks.add(rank);
+		return ranks;
+	}
+
+	protected static List<Long> ranks(Page<HibernateSearchSortedEntity> page) {
+		return page.getData().stream().map(HibernateSearchSortedEntity::getRank).collect(Collectors.toList());
+	}
+
+	@Test
+	public void testResultCache() {
+		HibernateSearchResultCache resultCache = new HibernateSearchResultCache(10);
+		Consumer<EntityManager> search = em -> Assertions.assertEquals(100,
+			new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.withResultCache(resultCache)
+				.list().getCount());
+
+		doWithEntityManager(search);
+		doWithEntityManager(search);
+		Assertions.assertEquals(1, resultCache.getMisses());
+		Assertions.assertEquals(1, resultCache.getHits());
+
+		// the index write changes the index version and invalidates the cached result
+		doWithEntityManager(em -> Search.getFullTextEntityManager(em).index(em.find(HibernateSearchEntity.class, 1L)));
+		doWithEntityManager(search);
+		Assertions.assertEquals(2, resultCache.getMisses());
+		Assertions.assertEquals(1, resultCache.getHits());
+		Assertions.assertEquals(1, resultCache.size());
+	}
+
+	@Test
+	public void testIndexVersion() throws IOException {
+		try (Directory directory = new RAMDirectory()) {
+			try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()))) {
+				indexWriter.addDocument(new Document());
+			}
+
+			try (DirectoryReader reader = DirectoryReader.open(directory)) {
+				Assertions.assertNotNull(LuceneIndexSearch.getIndexVersion(reader));
+				// the version of readers not opened from a directory is unknown and the results searched with them are not cached
+				Assertions.assertNull(LuceneIndexSearch.getIndexVersion(new FilterLeafReader(reader.leaves().get(0).reader())));
+			}
+		}
+	}
+
+	@Test
+	public void testQueryOptimization() {
 		doWithEntityManager(em -> {
-			DefaultHibernateSearchFilterQueryBuilder<?> qb =
+			long count = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.add("entityValId", singleValueFilter(QueryCondition.eq, 1L)).list().getCount();
+			long optimizedCount = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.add("entityValId", singleValueFilter(QueryCondition.ge, 1L))
+				.add("entityValId", singleValueFilter(QueryCondition.le, 1L))
+				.withQueryOptimization()
+				.list().getCount();
+			Assertions.assertEquals(count, optimizedCount);
+
+			long contradictoryCount = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.add("entityValId", singleValueFilter(QueryCondition.eq, 1L))
+				.add("entityValId", singleValueFilter(QueryCondition.eq, 2L))
+				.withQueryOptimization()
+				.list().getCount();
+			Assertions.assertEquals(0, contradictoryCount);
+		});
+	}
+
+	@Test
+	public void testIds() {
+		doWithEntityManager(em -> {
+			Set<Long> expected = new HashSet<>();
+			new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.list().getData().forEach(entity -> expected.add(entity.getId()));
+			Assertions.assertEquals(100, expected.size());
+
+			Set<Object> ids = new HashSet<>();
+			new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART).ids(ids::add);
+			Assertions.assertEquals(expected, ids);
+
+			long[] longIds = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.longIds();
+			Assertions.assertEquals(expected, LongStream.of(longIds).boxed().collect(Collectors.toSet()));
+		});
+	}
+
+	@Test
+	public void testCollapse() {
+		doWithEntityManager(em -> {
+			DefaultHibernateSearchFilterQueryBuilder<HibernateSearchEntity> qb =
 				new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART);
-			Page<?> page = qb.list();
-			Assertions.assertEquals(100, page.getCount());
+			Page<HibernateSearchEntity> page = qb.collapse("entityValId").list();
 
-			qb = new DefaultHibernateSearchFilterQueryBuilder<>(em, SEARCHABLE_STRING_PART);
-			page = qb.list();
-			Assertions.assertEquals(101, page.getCount());
+			Set<Object> entityVals = new HashSet<>();
+			page.getData().forEach(entity -> entityVals.add(entity.getEntityVal()==null ? null : entity.getEntityVal().getId()));
+			Assertions.assertEquals(page.getCount(), entityVals.size());
+			Assertions.assertEquals(page.getCount(), qb.getCollapsedCounts().size());
+			Assertions.assertEquals(100, qb.getCollapsedCounts().values().stream().mapToLong(Long::longValue).sum());
+
+			// sorted doc values
+			qb = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART);
+			page = qb.collapse("enumValCompact").list();
+			Set<JsonQLTestEntityEnum> enumVals = new HashSet<>();
+			page.getData().forEach(entity -> enumVals.add(entity.getEnumVal()));
+			Assertions.assertEquals(JsonQLTestEntityEnum.values().length, page.getCount());
+			Assertions.assertEquals(page.getCount(), enumVals.size());
+			Assertions.assertEquals(100, qb.getCollapsedCounts().values().stream().mapToLong(Long::longValue).sum());
+
+			// not supported with the shard routing and the sort other than the sorted index order
+			DefaultHibernateSearchFilterQueryBuilder<HibernateSearchEntity> sharded =
+				new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART);
+			Assertions.assertThrows(SearchException.class, sharded.collapse("enumValCompact").withShard(1)::list);
+			DefaultHibernateSearchFilterQueryBuilder<HibernateSearchEntity> sorted =
+				new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART);
+			Assertions.assertThrows(SearchException.class,
+				() -> sorted.collapse("enumValCompact").list(null, sortBy("longVal", SortDirection.ASC)));
+		});
+	}
+
+	@Test
+	public void testDependentReindexer() {
+		doWithEntityManager(em -> {
+			long count = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+				.add("entityVal", singleValueFilter(QueryCondition.eq, 1L)).list().getCount();
+			em.clear();
+			HibernateSearchAssociatedEntity associatedEntity = em.find(HibernateSearchAssociatedEntity.class, 1L);
+
+			DependentReindexer reindexer = new DependentReindexer(em)
+				.markDirty(HibernateSearchEntity.class, "entityVal", associatedEntity)
+				.markDirty(HibernateSearchEntity.class, "entityValId", associatedEntity)
+				.markDirty(HibernateSearchEntity.class, "entityVal", associatedEntity);
+			int managedCount = em.unwrap(Session.class).getStatistics().getEntityCount();
+			Assertions.assertEquals(count, reindexer.withBatchSize(3).reindex());
+			Assertions.assertEquals(0, reindexer.reindex());
+
+			// the dependents loaded by the reindexer are detached, and the entities managed before are kept
+			Assertions.assertEquals(managedCount, em.unwrap(Session.class).getStatistics().getEntityCount());
+			Assertions.assertTrue(em.contains(associatedEntity));
+		});
+
+		try {
+			// the bulk update bypasses the automatic indexing, so the dependents keep the old embedded name in the index
+			renameAssociatedEntity("renamed");
+			doWithEntityManager(em -> Assertions.assertEquals(0, countByAssociatedName(em, "renamed")));
+
+			List<DependentReindexer> reindexers = new ArrayList<>();
+			doWithEntityManager(em -> {
+				DependentReindexer reindexer = DependentReindexer.forTransaction(em);
+				Assertions.assertSame(reindexer, DependentReindexer.forTransaction(em));
+				reindexer.markDirty(HibernateSearchEntity.class, "entityVal", em.find(HibernateSearchAssociatedEntity.class, 1L));
+				DependentReindexer.forTransaction(em)
+					.markDirty(HibernateSearchEntity.class, "entityValId", em.find(HibernateSearchAssociatedEntity.class, 1L));
+				reindexers.add(reindexer);
+			});
+
+			// the dependents are reindexed once on the commit
+			doWithEntityManager(em -> {
+				long count = countByAssociatedName(em, "renamed");
+				Assertions.assertTrue(count > 0);
+				Assertions.assertEquals(count, reindexers.get(0).getReindexedCount());
+				Assertions.assertEquals(0, countByAssociatedName(em, ASSOCIATED_NAME));
+				Assertions.assertNotSame(reindexers.get(0), DependentReindexer.forTransaction(em));
+			});
+		} finally {
+			renameAssociatedEntity(ASSOCIATED_NAME);
+			doWithEntityManager(em -> DependentReindexer.forTransaction(em)
+				.markDirty(HibernateSearchEntity.class, "entityVal", em.find(HibernateSearchAssociatedEntity.class, 1L)));
+		}
+	}
+
+	protected void renameAssociatedEntity(String name) {
+		doWithEntityManager(em -> em.createQuery("update HibernateSearchAssociatedEntity set name = :name")
+			.setParameter("name", name)
+			.executeUpdate());
+	}
+
+	protected long countByAssociatedName(EntityManager em, String name) {
+		return new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+			.add("entityVal.name", singleValueFilter(QueryCondition.eq, name)).list().getCount();
+	}
+
+	@Test
+	public void testAsyncIndexer() throws InterruptedException {
+		List<Long> ids = new ArrayList<>();
+		doWithEntityManager(em -> new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+			.list().getData().forEach(entity -> ids.add(entity.getId())));
+
+		try (AsyncIndexer asyncIndexer = new AsyncIndexer(entityManagerFactory, 10, 2).withBatchSize(5)) {
+			List<Long> sequences = new ArrayList<>();
+			for (Long id: ids) {
+				sequences.add(asyncIndexer.enqueue(HibernateSearchEntity.class, id, AsyncIndexer.Operation.INDEX));
+				sequences.add(asyncIndexer.enqueue(HibernateSearchEntity.class, id, AsyncIndexer.Operation.INDEX));
+			}
+
+			ConsistencyToken token = asyncIndexer.getConsistencyToken(sequences.stream().mapToLong(Long::longValue).toArray());
+			Assertions.assertTrue(token.await(1, TimeUnit.MINUTES));
+			Assertions.assertEquals(asyncIndexer.getLastSequence(), asyncIndexer.getIndexedSequence());
+			Assertions.assertEquals(0, asyncIndexer.getQueueDepth());
+			Assertions.assertEquals(0, asyncIndexer.getLag());
+			Assertions.assertTrue(asyncIndexer.getIndexedCount() >= ids.size());
+			Assertions.assertTrue(asyncIndexer.getIndexedCount() <= 2L * ids.size());
+		}
+
+		doWithEntityManager(em -> Assertions.assertEquals(100,
+			new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART).list().getCount()));
+	}
+
+	@Test
+	public void testAsyncIndexerVisibility() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger active = new AtomicInteger();
+		AtomicInteger maxActive = new AtomicInteger();
+
+		try (AsyncIndexer asyncIndexer = new AsyncIndexer(entityManagerFactory, 10, 2) {
+			@Override
+			protected void index(List<Work> batch) {
+				maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+				started.countDown();
+				try {
+					release.await(1, TimeUnit.MINUTES);
+					super.index(batch);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				} finally {
+					active.decrementAndGet();
+				}
+			}
+		}) {
+			// the bulk update isn't indexed automatically
+			String stringVal = updateStringVal(1L, "async");
+			doWithEntityManager(em -> Assertions.assertEquals(0, countByStringVal(em, "async")));
+
+			try {
+				asyncIndexer.enqueue(HibernateSearchEntity.class, 1L, AsyncIndexer.Operation.INDEX);
+				Assertions.assertTrue(started.await(1, TimeUnit.MINUTES));
+				long sequence = asyncIndexer.enqueue(HibernateSearchEntity.class, 1L, AsyncIndexer.Operation.INDEX);
+
+				// the second work for the same entity waits until the first one is indexed
+				Thread.sleep(100);
+				Assertions.assertEquals(1, asyncIndexer.getQueueDepth());
+				Assertions.assertTrue(sequence > asyncIndexer.getIndexedSequence());
+				doWithEntityManager(em -> Assertions.assertEquals(0, countByStringVal(em, "async")));
+
+				release.countDown();
+				Assertions.assertTrue(asyncIndexer.awaitIndexed(1, TimeUnit.MINUTES, sequence));
+				Assertions.assertEquals(1, maxActive.get());
+				Assertions.assertEquals(2, asyncIndexer.getIndexedCount());
+				doWithEntityManager(em -> Assertions.assertEquals(1, countByStringVal(em, "async")));
+			} finally {
+				restoreStringVal(1L, stringVal);
+			}
+		}
+	}
+
+	@Test
+	public void testAsyncIndexerFailure() throws InterruptedException {
+		AtomicBoolean failing = new AtomicBoolean(true);
+		AtomicInteger attempts = new AtomicInteger();
+
+		try (AsyncIndexer asyncIndexer = new AsyncIndexer(entityManagerFactory, 10, 1) {
+			@Override
+			protected void index(List<Work> batch) {
+				attempts.incrementAndGet();
+				if (failing.get())
+					throw new IllegalStateException("Index not available");
+				super.index(batch);
+			}
+		}.withMaxAttempts(2)) {
+			long indexedSequence = asyncIndexer.getIndexedSequence();
+			String stringVal = updateStringVal(1L, "failed");
+			try {
+				long sequence = asyncIndexer.enqueue(HibernateSearchEntity.class, 1L, AsyncIndexer.Operation.INDEX);
+
+				// the failed work isn't indexed and holds the watermark
+				Assertions.assertFalse(asyncIndexer.awaitIndexed(1, TimeUnit.MINUTES, sequence));
+				Assertions.assertEquals(2, attempts.get());
+				Assertions.assertEquals(1, asyncIndexer.getFailedCount());
+				Assertions.assertEquals(0, asyncIndexer.getIndexedCount());
+				Assertions.assertEquals(indexedSequence, asyncIndexer.getIndexedSequence());
+				doWithEntityManager(em -> Assertions.assertEquals(0, countByStringVal(em, "failed")));
+
+				failing.set(false);
+				asyncIndexer.retryFailed();
+				Assertions.assertTrue(asyncIndexer.awaitIndexed(1, TimeUnit.MINUTES, sequence));
+				Assertions.assertEquals(0, asyncIndexer.getFailedCount());
+				Assertions.assertEquals(1, asyncIndexer.getIndexedCount());
+				doWithEntityManager(em -> Assertions.assertEquals(1, countByStringVal(em, "failed")));
+			} finally {
+				restoreStringVal(1L, stringVal);
+			}
+		}
+	}
+
+	/**
+	 * Updates the value in the database only, bypassing the automatic indexing.
+	 *
+	 * @return The previous value.
+	 */
+	protected String updateStringVal(long id, String value) {
+		List<String> previous = new ArrayList<>();
+		doWithEntityManager(em -> {
+			previous.add(em.find(HibernateSearchEntity.class, id).getStringVal());
+			em.createQuery("update HibernateSearchEntity set stringVal = :value where id = :id")
+				.setParameter("value", value)
+				.setParameter("id", id)
+				.executeUpdate();
+		});
+		return previous.get(0);
+	}
+
+	/**
+	 * Restores the value updated with {@link #updateStringVal} both in the database and in the index.
+	 */
+	protected void restoreStringVal(long id, String value) {
+		doWithEntityManager(em -> em.find(HibernateSearchEntity.class, id).setStringVal(value));
+	}
+
+	protected long countByStringVal(EntityManager em, String value) {
+		return new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+			.add("stringVal", singleValueFilter(QueryCondition.eq, value)).list().getCount();
+	}
+
+	@Test
+	public void testConsistencyToken() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicBoolean failing = new AtomicBoolean(false);
+
+		try (AsyncIndexer asyncIndexer = new AsyncIndexer(entityManagerFactory, 10, 1) {
+			@Override
+			protected void index(List<Work> batch) {
+				try {
+					release.await(1, TimeUnit.MINUTES);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				if (failing.get())
+					throw new IllegalStateException("Index not available");
+				super.index(batch);
+			}
+		}.withMaxAttempts(1)) {
+			String stringVal = updateStringVal(1L, "consistent");
+			try {
+				long sequence = asyncIndexer.enqueue(HibernateSearchEntity.class, 1L, AsyncIndexer.Operation.INDEX);
+				ConsistencyToken token = asyncIndexer.getConsistencyToken(sequence);
+				Assertions.assertFalse(token.isIndexed());
+
+				// the wait times out and the query is executed on the stale index
+				doWithEntityManager(em -> {
+					HibernateSearchFilterQueryBuilder<HibernateSearchEntity, Page<HibernateSearchEntity>> qb =
+						new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+							.add("stringVal", singleValueFilter(QueryCondition.eq, "consistent"));
+					Assertions.assertEquals(0, qb.withConsistency(token, 100, TimeUnit.MILLISECONDS).list().getCount());
+					Assertions.assertTrue(qb.hasStaleResults());
+				});
+
+				// the query waits until the freshly committed change is indexed
+				new Thread(() -> {
+					try {
+						Thread.sleep(100);
+					} catch (InterruptedException ignored) {
+					}
+					release.countDown();
+				}).start();
+				doWithEntityManager(em -> {
+					HibernateSearchFilterQueryBuilder<HibernateSearchEntity, Page<HibernateSearchEntity>> qb =
+						new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+							.add("stringVal", singleValueFilter(QueryCondition.eq, "consistent"));
+					Assertions.assertEquals(1, qb.withConsistency(token, 1, TimeUnit.MINUTES).list().getCount());
+					Assertions.assertFalse(qb.hasStaleResults());
+					Assertions.assertTrue(token.isIndexed());
+				});
+
+				// the failed work is never indexed
+				failing.set(true);
+				updateStringVal(1L, "inconsistent");
+				long failedSequence = asyncIndexer.enqueue(HibernateSearchEntity.class, 1L, AsyncIndexer.Operation.INDEX);
+				ConsistencyToken failedToken = asyncIndexer.getConsistencyToken(failedSequence);
+				Assertions.assertFalse(failedToken.await(1, TimeUnit.MINUTES));
+				Assertions.assertEquals(1, asyncIndexer.getFailedCount());
+				Assertions.assertFalse(failedToken.isIndexed());
+				doWithEntityManager(em -> {
+					HibernateSearchFilterQueryBuilder<HibernateSearchEntity, Page<HibernateSearchEntity>> qb =
+						new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+							.add("stringVal", singleValueFilter(QueryCondition.eq, "inconsistent"));
+					Assertions.assertEquals(0, qb.withConsistency(failedToken, 1, TimeUnit.MINUTES).list().getCount());
+					Assertions.assertTrue(qb.hasStaleResults());
+				});
+
+				// the failed work holds the watermark, but doesn't fail the tokens of other changes
+				failing.set(false);
+				String otherStringVal = updateStringVal(2L, "other");
+				try {
+					// the token of the session is taken once
+					List<ConsistencyToken> tokens = new ArrayList<>();
+					doWithEntityManager(em -> {
+						asyncIndexer.enqueue(em.unwrap(SessionImplementor.class), HibernateSearchEntity.class, 2L,
+							AsyncIndexer.Operation.INDEX);
+						tokens.add(asyncIndexer.getConsistencyToken(em));
+						Assertions.assertEquals(0, asyncIndexer.getConsistencyToken(em).getSequences().length);
+					});
+					ConsistencyToken otherToken = tokens.get(0);
+					Assertions.assertEquals(1, otherToken.getSequences().length);
+					doWithEntityManager(em -> {
+						HibernateSearchFilterQueryBuilder<HibernateSearchEntity, Page<HibernateSearchEntity>> qb =
+							new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+								.add("stringVal", singleValueFilter(QueryCondition.eq, "other"));
+						Assertions.assertEquals(1, qb.withConsistency(otherToken, 1, TimeUnit.MINUTES).list().getCount());
+						Assertions.assertFalse(qb.hasStaleResults());
+					});
+					Assertions.assertTrue(asyncIndexer.getIndexedSequence() < asyncIndexer.getLastSequence());
+					Assertions.assertFalse(failedToken.isIndexed());
+				} finally {
+					restoreStringVal(2L, otherStringVal);
+				}
+			} finally {
+				restoreStringVal(1L, stringVal);
+			}
+		}
+	}
+
+	@Test
+	public void testBootstrap() {
+		HibernateSearchBootstrap bootstrap = new HibernateSearchBootstrap(entityManagerFactory)
+			.withEntity(HibernateSearchEntity.class, "longVal", "entityVal", "entityValId")
+			.withWarmUpQuery(HibernateSearchEntity.class, SEARCHABLE_STRING_PART);
+		Assertions.assertFalse(bootstrap.isReady());
+		bootstrap.start();
+		Assertions.assertTrue(bootstrap.isReady());
+
+		HibernateSearchBootstrap invalid = new HibernateSearchBootstrap(entityManagerFactory)
+			.withEntity(HibernateSearchEntity.class, HibernateSearchFilterQueryBuilder.defaultSearchFields(), "noSuchField");
+		Assertions.assertThrows(SearchException.class, invalid::start);
+		Assertions.assertFalse(invalid.isReady());
+
+		HibernateSearchBootstrap notIndexed = new HibernateSearchBootstrap(entityManagerFactory)
+			.withEntity(HibernateSearchEntity.class)
+			.withEntity(HibernateSearchNotIndexedEntity.class);
+		SearchException e = Assertions.assertThrows(SearchException.class, notIndexed::start);
+		Assertions.assertTrue(e.getMessage().contains("HibernateSearchNotIndexedEntity is not indexed"), e.getMessage());
+		Assertions.assertFalse(notIndexed.isReady());
+	}
+
+	@Test
+	public void testMemoryResidentIndex() throws IOException {
+		doWithEntityManager(em -> {
+			SearchIntegrator searchIntegrator = Search.getFullTextEntityManager(em).getSearchFactory().unwrap(SearchIntegrator.class);
+			Long memoryUsage = MemoryResidentDirectoryProvider.getMemoryUsage(searchIntegrator)
+				.get(HibernateSearchAssociatedEntity.class.getName());
+			Assertions.assertNotNull(memoryUsage);
+			Assertions.assertTrue(memoryUsage > 0);
+		});
+
+		// the committed index is mirrored to the filesystem index
+		Path indexPath = FileSystems.getDefault().getPath(indexBase(), HibernateSearchAssociatedEntity.class.getName());
+		try (FSDirectory fsDirectory = FSDirectory.open(indexPath); DirectoryReader reader = DirectoryReader.open(fsDirectory)) {
+			Assertions.assertEquals(1, reader.numDocs());
+		}
+
+		Path path = Files.createTempDirectory("mirrored");
+		try {
+			MirroredRAMDirectory directory = new MirroredRAMDirectory(FSDirectory.open(path));
+			try {
+				// the persistent directory is locked before it's loaded
+				Assertions.assertThrows(LockObtainFailedException.class, () -> new MirroredRAMDirectory(FSDirectory.open(path)));
+
+				try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()))) {
+					Document document = new Document();
+					document.add(new StringField("name", "mirrored", Field.Store.YES));
+					writer.addDocument(document);
+				}
+			} finally {
+				directory.close();
+			}
+
+			// the document is found both in the filesystem index and in the index loaded again into the memory
+			try (FSDirectory fsDirectory = FSDirectory.open(path); DirectoryReader reader = DirectoryReader.open(fsDirectory)) {
+				Assertions.assertEquals(1, new IndexSearcher(reader).count(new TermQuery(new Term("name", "mirrored"))));
+			}
+
+			MirroredRAMDirectory reopened = new MirroredRAMDirectory(FSDirectory.open(path));
+			try (DirectoryReader reader = DirectoryReader.open(reopened)) {
+				Assertions.assertEquals(1, new IndexSearcher(reader).count(new TermQuery(new Term("name", "mirrored"))));
+			} finally {
+				reopened.close();
+			}
+		} finally {
+			FileUtils.deleteDirectory(path.toFile());
+		}
+	}
+
+	@Test
+	public void testMultiFieldSearch() {
+		doWithEntityManager(em -> {
+			Map<String, FieldSearchStrategy> fields = new LinkedHashMap<>();
+			fields.put(HibernateSearch.FIELD_TEXT, FieldSearchStrategy.TERMS);
+			fields.put(HibernateSearch.FIELD_ID, FieldSearchStrategy.TERMS);
+
+			Assertions.assertEquals(100, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class,
+				"nowhere middle", fields).list().getCount());
+			Assertions.assertEquals(0, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class,
+				"middle unknown", fields).list().getCount());
+
+			MultiFieldSearchOptions options = new MultiFieldSearchOptions()
+				.withBoost(HibernateSearch.FIELD_TEXT, 2f)
+				.withTieBreaker(0.1f)
+				.withMinimumShouldMatch(1);
+			Assertions.assertEquals(100, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class,
+				"middle unknown", fields, options).list().getCount());
+
+			// stopwords and the words searched in the non-analyzed field don't count to the required terms
+			fields.put("stringVal", FieldSearchStrategy.TERMS);
+			Assertions.assertEquals(100, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class,
+				"a middle", fields).list().getCount());
+			Assertions.assertEquals(10, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class,
+				"s1", fields).list().getCount());
+			Assertions.assertEquals(0, new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class,
+				"a unknown", fields).list().getCount());
+		});
+	}
+
+	@Test
+	public void testCompactFieldBridges() {
+		doWithEntityManager(em -> {
+			for (long value = 0; value < 5; value++) {
+				long count = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+					.add("longVal", singleValueFilter(QueryCondition.ge, value)).list().getCount();
+				long compactCount = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+					.add("longValCompact", singleValueFilter(QueryCondition.ge, value)).list().getCount();
+				Assertions.assertEquals(count, compactCount);
+			}
+
+			for (JsonQLTestEntityEnum value: JsonQLTestEntityEnum.values()) {
+				long count = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+					.add("enumVal", singleValueFilter(QueryCondition.eq, value)).list().getCount();
+				long compactCount = new DefaultHibernateSearchFilterQueryBuilder<>(em, HibernateSearchEntity.class, SEARCHABLE_STRING_PART)
+					.add("enumValCompact", singleValueFilter(QueryCondition.eq, value)).list().getCount();
+				Assertions.assertEquals(count, compactCount);
+			}
+
+			Map<String, IndexFieldStatistics.FieldStatistics> statistics = new HashMap<>();
+			IndexFieldStatistics.collect(em, HibernateSearchEntity.class).forEach(s -> statistics.put(s.getField(), s));
+			Assertions.assertTrue(statistics.get("longVal").getStoredBytes() > 0);
+			Assertions.assertEquals(0, statistics.get("longValCompact").getStoredBytes());
+			Assertions.assertEquals(IndexOptions.DOCS, statistics.get("enumValCompact").getIndexOptions());
+			Assertions.assertEquals(DocValuesType.SORTED, statistics.get("enumValCompact").getDocValuesType());
+			Assertions.assertEquals(0, statistics.get("enumValCompact").getStoredBytes());
+
+			CompactLongFieldBridge bridge = new CompactLongFieldBridge();
+			Instant instant = Instant.parse("2020-01-02T00:00:00Z");
+			Assertions.assertEquals(bridge.toLong(Date.from(instant)), bridge.toLong(instant));
+			Assertions.assertEquals(instant.toEpochMilli(), bridge.toLong(LocalDate.of(2020, 1, 2)));
+			Assertions.assertEquals(instant.toEpochMilli(), bridge.toLong(LocalDateTime.of(2020, 1, 2, 0, 0)));
+			Assertions.assertEquals(instant.toEpochMilli(), bridge.toLong(instant.atOffset(ZoneOffset.ofHours(2))));
 		});
 	}
 
-	protected void doWithEntityManager(Consumer<EntityManager> c) {
-		EntityManager entityManager = entityManagerFactory.createEntityManager();
-		entityManager.getTransaction().begin();
+	@Test
+	public void testIndexFieldStatisticsLiveDocs() {
+		long[] storedBytes = new long[1];
+		doWithEntityManager(em -> storedBytes[0] = storedBytes(em, HibernateSearch.FIELD_TEXT));
+
+		// the update deletes the previous document, which remains in the index until merged away
+		String[] previous = new String[1];
+		doWithEntityManager(em -> {
+			HibernateSearchEntity entity = em.find(HibernateSearchEntity.class, 1L);
+			previous[0] = entity.getStringVal();
+			entity.setStringVal("changed");
+		});
 
 		try {
-			c.accept(entityManager);
+			doWithEntityManager(em -> Assertions.assertEquals(storedBytes[0], storedBytes(em, HibernateSearch.FIELD_TEXT)));
 		} finally {
-			entityManager.getTransaction().commit();
-			entityManager.close();
+			doWithEntityManager(em -> em.find(HibernateSearchEntity.class, 1L).setStringVal(previous[0]));
 		}
 	}
 
+	protected long storedBytes(EntityManager em, String field) {
+		return IndexFieldStatistics.collect(em, HibernateSearchEntity.class).stream()
+			.filter(s -> s.getField().equals(field))
+			.mapToLong(IndexFieldStatistics.FieldStatistics::getStoredBytes)
+			.sum();
+	}
 
 }
@@ -0,0 +1,68 @@
+package com.lifeinide.jsonql.hibernate.search.test;
+
+import com.lifeinide.jsonql.hibernate.search.HibernateSearch;
+import com.lifeinide.jsonql.hibernate.search.sharding.FieldShardIdentifierProvider;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.Analyzer;
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.FullTextFilterDef;
+import org.hibernate.search.annotations.Indexed;
+import org.hibernate.search.annotations.Norms;
+import org.hibernate.search.filter.ShardSensitiveOnlyFilter;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * An entity indexed in shards by {@link #tenant}, see {@link FieldShardIdentifierProvider} configuration in {@code persistence.xml}.
+ *
+ * @author Lukasz Frankowski
+ */
+@Entity
+@Indexed
+@FullTextFilterDef(name = FieldShardIdentifierProvider.FILTER_NAME, impl = ShardSensitiveOnlyFilter.class)
+public class HibernateSearchShardedEntity {
+
+	@Id Long id;
+
+	@Field(name = HibernateSearch.FIELD_TEXT)
+	@Analyzer(impl = EnglishAnalyzer.class)
+	protected String q = HibernateSearchQueryBuilderTest.SEARCHABLE_STRING;
+
+	@Field(analyze = Analyze.NO, norms = Norms.NO)
+	protected String tenant;
+
+	public HibernateSearchShardedEntity() {
+	}
+
+	public HibernateSearchShardedEntity(Long id, String tenant) {
+		this.id = id;
+		this.tenant = tenant;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getQ() {
+		return q;
+	}
+
+	public void setQ(String q) {
+		this.q = q;
+	}
+
+	public String getTenant() {
+		return tenant;
+	}
+
+	public void setTenant(String tenant) {
+		this.tenant = tenant;
+	}
+
+}
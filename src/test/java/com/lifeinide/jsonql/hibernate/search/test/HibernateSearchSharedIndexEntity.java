@@ -0,0 +1,50 @@
+package com.lifeinide.jsonql.hibernate.search.test;
+
+import com.lifeinide.jsonql.hibernate.search.HibernateSearch;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.hibernate.search.annotations.Analyzer;
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.Indexed;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * An entity indexed in the same index as {@link HibernateSearchEntity}.
+ *
+ * @author Lukasz Frankowski
+ */
+@Entity
+@Indexed(index = "com.lifeinide.jsonql.hibernate.search.test.HibernateSearchEntity")
+public class HibernateSearchSharedIndexEntity {
+
+	@Id Long id;
+
+	@Field(name = HibernateSearch.FIELD_TEXT)
+	@Analyzer(impl = EnglishAnalyzer.class)
+	protected String q = HibernateSearchQueryBuilderTest.SEARCHABLE_STRING;
+
+	public HibernateSearchSharedIndexEntity() {
+	}
+
+	public HibernateSearchSharedIndexEntity(Long id) {
+		this.id = id;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getQ() {
+		return q;
+	}
+
+	public void setQ(String q) {
+		this.q = q;
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.lifeinide.jsonql.hibernate.search.test;
+
+import com.lifeinide.jsonql.hibernate.search.HibernateSearch;
+import com.lifeinide.jsonql.hibernate.search.SortedIndex;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.search.SortField;
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.Analyzer;
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.Indexed;
+import org.hibernate.search.annotations.Norms;
+import org.hibernate.search.annotations.SortableField;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * An entity with the index segments sorted by {@link #rank} in descending order.
+ *
+ * @author Lukasz Frankowski
+ */
+@Entity
+@Indexed
+@SortedIndex(field = "rank", type = SortField.Type.LONG, reverse = true)
+public class HibernateSearchSortedEntity {
+
+	@Id Long id;
+
+	@Field(name = HibernateSearch.FIELD_TEXT)
+	@Analyzer(impl = EnglishAnalyzer.class)
+	protected String q = HibernateSearchQueryBuilderTest.SEARCHABLE_STRING;
+
+	@Field(analyze = Analyze.NO, norms = Norms.NO)
+	@SortableField
+	protected Long rank;
+
+	public HibernateSearchSortedEntity() {
+	}
+
+	public HibernateSearchSortedEntity(Long id, Long rank) {
+		this.id = id;
+		this.rank = rank;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getQ() {
+		return q;
+	}
+
+	public void setQ(String q) {
+		this.q = q;
+	}
+
+	public Long getRank() {
+		return rank;
+	}
+
+	public void setRank(Long rank) {
+		this.rank = rank;
+	}
+
+}
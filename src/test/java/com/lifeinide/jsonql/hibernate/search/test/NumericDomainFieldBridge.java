@@ -0,0 +1,21 @@
+package com.lifeinide.jsonql.hibernate.search.test;
+
+import com.lifeinide.jsonql.core.test.IJsonQLBaseTestEntity;
+import com.lifeinide.jsonql.hibernate.search.bridge.BaseNumericDomainFieldBridge;
+
+/**
+ * @author Lukasz Frankowski
+ */
+public class NumericDomainFieldBridge extends BaseNumericDomainFieldBridge<IJsonQLBaseTestEntity<Long>> {
+
+	@Override
+	public Long getEntityId(IJsonQLBaseTestEntity<Long> entity) {
+		return entity.getId();
+	}
+
+	@Override
+	public boolean isEntity(Object entity) {
+		return entity instanceof IJsonQLBaseTestEntity;
+	}
+
+}